@@ -0,0 +1,56 @@
+package benchmark;
+
+import emitter.Emitter;
+import lexer.Lexer;
+import org.openjdk.jmh.annotations.*;
+import parser.Parser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmitterBenchmark {
+    @Param({"1000", "100000"})
+    int statements;
+
+    String source;
+    Path outputFile;
+    Emitter emitter;
+
+    @Setup
+    public void setup() throws IOException {
+        this.source = SyntheticPrograms.generate(this.statements, 1, 64);
+        this.outputFile = Files.createTempFile("emitterBenchmark", ".c");
+        this.emitter = new Emitter(this.outputFile.toString());
+        new Parser(new Lexer(this.source), this.emitter).program();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(this.outputFile);
+    }
+
+    @Benchmark
+    public void writeFile() throws IOException {
+        this.emitter.writeFile();
+    }
+
+    // Emitting the generated code line by line, without parsing
+    @Benchmark
+    public Emitter emitLines() {
+        Emitter emitter = new Emitter(this.outputFile.toString());
+        for (int i = 0; i < this.statements; i++) {
+            emitter.emitIndent(1 + i % 3);
+            emitter.emit("v" + (i % 64) + " = ");
+            emitter.emitLine("v1*2+1;");
+        }
+        return emitter;
+    }
+}
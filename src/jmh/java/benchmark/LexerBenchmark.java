@@ -0,0 +1,46 @@
+package benchmark;
+
+import lexer.Lexer;
+import lexer.TokenBuffer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import token.Token;
+import token.TokenType;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LexerBenchmark {
+    @Param({"1000", "100000"})
+    int statements;
+
+    String source;
+    TokenBuffer tokens;
+
+    @Setup
+    public void setup() {
+        this.source = SyntheticPrograms.generate(this.statements, 1, 64);
+        this.tokens = new TokenBuffer();
+    }
+
+    @Benchmark
+    public void getToken(Blackhole blackhole) {
+        Lexer lexer = new Lexer(this.source);
+        Token token;
+        do {
+            token = lexer.getToken();
+            blackhole.consume(token);
+        } while (token.getTokenKind() != TokenType.EOF);
+    }
+
+    @Benchmark
+    public int tokenize() {
+        new Lexer(this.source).tokenize(this.tokens);
+        return this.tokens.size();
+    }
+}
@@ -0,0 +1,40 @@
+package benchmark;
+
+import emitter.Emitter;
+import lexer.Lexer;
+import lexer.TokenBuffer;
+import org.openjdk.jmh.annotations.*;
+import parser.Parser;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+    @Param({"1000", "10000", "100000"})
+    int statements;
+
+    @Param({"1", "4", "16"})
+    int depth;
+
+    TokenBuffer tokens;
+
+    @Setup
+    public void setup() {
+        String source = SyntheticPrograms.generate(this.statements, this.depth, 256);
+        this.tokens = new TokenBuffer();
+        new Lexer(source).tokenize(this.tokens);
+    }
+
+    // Parses the pre-lexed program, the emitter only buffers the C code
+    @Benchmark
+    public Emitter program() {
+        Emitter emitter = new Emitter("benchmark.c");
+        new Parser(this.tokens, emitter).program();
+        return emitter;
+    }
+}
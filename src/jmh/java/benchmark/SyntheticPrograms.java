@@ -0,0 +1,35 @@
+package benchmark;
+
+// Builds valid TeenyTiny programs of a given size for the benchmarks
+class SyntheticPrograms {
+    private SyntheticPrograms() {
+    }
+
+    // statements top level statements, each a block of IF/WHILE nested depth
+    // deep around a LET, with variables declared up front
+    static String generate(int statements, int depth, int variables) {
+        StringBuilder program = new StringBuilder();
+        for (int i = 0; i < variables; i++) {
+            program.append("LET v").append(i).append(" = ").append(i).append('\n');
+        }
+        for (int i = 0; i < statements; i++) {
+            String target = "v" + (i % variables);
+            String operand = "v" + ((i * 7 + 3) % variables);
+            for (int d = 1; d < depth; d++) {
+                program.append(d % 2 == 0 ? "WHILE " : "IF ")
+                        .append(target).append(" < ").append(d * 10)
+                        .append(d % 2 == 0 ? " REPEAT\n" : " THEN\n");
+            }
+            switch (i % 4) {
+                case 0 -> program.append("LET ").append(target).append(" = ").append(operand).append(" * 2 + 1\n");
+                case 1 -> program.append("PRINT ").append(operand).append(" / 3 - ").append(target).append('\n');
+                case 2 -> program.append("LET ").append(target).append(" = (").append(operand).append(" + 1) * (").append(target).append(" - 2)\n");
+                default -> program.append("PRINT \"statement ").append(i).append("\"\n");
+            }
+            for (int d = depth - 1; d >= 1; d--) {
+                program.append(d % 2 == 0 ? "ENDWHILE\n" : "ENDIF\n");
+            }
+        }
+        return program.toString();
+    }
+}
@@ -1,8 +1,38 @@
+import ast.Program;
+import codegen.CGenerator;
+import compiler.BatchCompiler;
+import compiler.CompileCache;
+import compiler.CompileOptions;
+import compiler.SourceCompiler;
+import compiler.WatchCompiler;
+import daemon.CompileDaemon;
+import daemon.DaemonClient;
+import daemon.DaemonProtocol;
+import diagnostic.CompileException;
+import diagnostic.RunException;
+import interpreter.Interpreter;
+import jvm.JvmProgram;
+import lexer.AsciiCharSequence;
 import lexer.Lexer;
+import lexer.TokenBuffer;
 import parser.Parser;
 import emitter.Emitter;
+import runtime.ProgramIO;
+import stats.CompileStats;
+import vm.BytecodeCompiler;
+import vm.VirtualMachine;
 
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class Main {
     private static String readFromFile(InputStream inputStream) throws IOException {
@@ -18,35 +48,252 @@ public class Main {
         return resultStringBuilder.toString();
     }
 
+    // Options such as "-O" and "--run" may appear anywhere in the arguments
+    private static String[] removeOption(String[] args, String option) {
+        return Arrays.stream(args).filter(arg -> !arg.equals(option)).toArray(String[]::new);
+    }
+
+    private static String[] removeOptionWithValue(String[] args, int index) {
+        String[] rest = new String[args.length - 2];
+        System.arraycopy(args, 0, rest, 0, index);
+        System.arraycopy(args, index + 2, rest, index, args.length - index - 2);
+        return rest;
+    }
+
+    // --batch <outputDir> <files, directories or globs...>
+    private static void batch(String[] args, CompileOptions options) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: --batch <outputDir> <files, directories or globs...>");
+            return;
+        }
+        BatchCompiler batchCompiler = new BatchCompiler(Paths.get(args[1]),
+                Runtime.getRuntime().availableProcessors(), options);
+        BatchCompiler.Result result = batchCompiler.compile(Arrays.asList(args).subList(2, args.length));
+        for (BatchCompiler.Failure failure : result.getFailures()) {
+            System.err.println(failure.getSourceFile() + ": " + failure.getMessage());
+        }
+        System.out.println(result.summary());
+    }
+
+    // --watch <outputDir> <files or directories...>
+    private static void watch(String[] args, CompileOptions options) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: --watch <outputDir> <files or directories...>");
+            return;
+        }
+        try (WatchCompiler watchCompiler = new WatchCompiler(Paths.get(args[1]), options,
+                WatchCompiler.DEFAULT_DEBOUNCE_MILLIS, System.out)) {
+            System.out.println("Watching for changes, press Ctrl+C to stop");
+            watchCompiler.watch(Arrays.asList(args).subList(2, args.length));
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Writes output.c from the cache, or compiles and caches it
+    private static void compileCached(byte[] source, CompileOptions options, CompileStats stats) throws IOException {
+        stats.end("read");
+        stats.count("sourceBytes", source.length);
+        System.out.println("PROGRAM");
+        byte[] output = SourceCompiler.generate(source, options);
+        stats.end("generate");
+        Files.write(Paths.get("output.c"), output);
+        stats.end("write");
+        stats.count("bytesEmitted", output.length);
+        System.out.println("Compiling completed.");
+    }
+
+    // --daemon <socketFile>
+    private static void daemon(String[] args, CompileOptions options) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: --daemon <socketFile>");
+            return;
+        }
+        // Closed only by the shutdown hook, which also runs if serve throws
+        CompileDaemon daemon = new CompileDaemon(Paths.get(args[1]), options.getCache());
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                daemon.close();
+            }
+            catch (IOException e) {
+                e.printStackTrace();
+            }
+        }));
+        System.out.println("Compile daemon listening on " + args[1]);
+        daemon.serve();
+    }
+
+    // --client <socketFile> <source files...>
+    // Like compiling each file on its own, but on a running daemon: one file is
+    // written to output.c, several to <name>.c, in the current directory.
+    private static void client(String[] args, CompileOptions options) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: --client <socketFile> <source files...>");
+            return;
+        }
+        Path workingDir = Paths.get("").toAbsolutePath();
+        List<String> sources = Arrays.asList(args).subList(2, args.length);
+        List<CompletableFuture<DaemonProtocol.Response>> responses = new ArrayList<CompletableFuture<DaemonProtocol.Response>>();
+        try (DaemonClient client = new DaemonClient(Paths.get(args[1]))) {
+            for (String source : sources) {
+                Path sourceFile = Paths.get(source).toAbsolutePath();
+                String name = sourceFile.getFileName().toString().replaceFirst("\\.teenytiny$", "");
+                Path outputFile = workingDir.resolve(sources.size() == 1 ? "output.c" : name + ".c");
+                List<String> request = new ArrayList<String>();
+                if (options.isOptimize()) {
+                    request.add("-O");
+                }
+                request.add(sourceFile.toString());
+                request.add(outputFile.toString());
+                responses.add(client.compile(request));
+            }
+            for (int i = 0; i < responses.size(); i++) {
+                DaemonProtocol.Response response = responses.get(i).join();
+                if (response.isOk()) {
+                    System.out.println("Compiled " + sources.get(i) + " to " + response.getMessage());
+                } else {
+                    System.err.println(sources.get(i) + ": " + response.getMessage());
+                }
+            }
+        }
+        catch (CompletionException e) {
+            System.err.println(e.getCause().getMessage());
+        }
+    }
+
+    private static void countParsed(CompileStats stats, Parser parser) {
+        stats.end("parse");
+        stats.count("statements", parser.getStatementCount());
+        stats.count("symbols", parser.getSymbolCount());
+        stats.count("labels", parser.getLabelCount());
+    }
+
+    private static void printStats(boolean printStats, CompileStats stats) {
+        if (printStats) {
+            System.err.println(stats.toJson());
+        }
+    }
+
     public static void main(String[] args) {
         try {
-            System.out.println("Teeny Tiny Compiler");
+            // --run executes the program instead of writing C, so only its own output is
+            // printed. --jvm and --vm do the same with the program compiled to a JVM
+            // class or to bytecode for the VirtualMachine.
+            boolean jvm = Arrays.asList(args).contains("--jvm");
+            boolean vm = Arrays.asList(args).contains("--vm");
+            boolean run = jvm || vm || Arrays.asList(args).contains("--run");
+            if (!run) {
+                System.out.println("Teeny Tiny Compiler");
+            }
+
+            // --cache <dir> reuses C code generated before for the same source and options
+            CompileCache cache = null;
+            int cacheArg = Arrays.asList(args).indexOf("--cache");
+            if (cacheArg >= 0 && cacheArg + 1 < args.length) {
+                cache = new CompileCache(Paths.get(args[cacheArg + 1]));
+                args = removeOptionWithValue(args, cacheArg);
+            }
 
+            // --stats prints the time and allocations of each phase as JSON on stderr
+            boolean printStats = Arrays.asList(args).contains("--stats");
+            // --parallel splits the compile of each source over all cores
+            CompileOptions options = new CompileOptions(Arrays.asList(args).contains("-O"), cache,
+                    Arrays.asList(args).contains("--parallel"));
+            for (String option : new String[] {"-O", "--run", "--jvm", "--vm", "--stats", "--parallel"}) {
+                args = removeOption(args, option);
+            }
+
+            if (args.length > 0 && args[0].equals("--batch")) {
+                batch(args, options);
+                return;
+            }
+            if (args.length > 0 && args[0].equals("--watch")) {
+                watch(args, options);
+                return;
+            }
+            if (args.length > 0 && args[0].equals("--daemon")) {
+                daemon(args, options);
+                return;
+            }
+            if (args.length > 0 && args[0].equals("--client")) {
+                client(args, options);
+                return;
+            }
+
+            CompileStats stats = new CompileStats();
             ClassLoader classloader = Thread.currentThread().getContextClassLoader();
-            InputStream sourceFile;
-            if (args.length > 1) {
-                if (args[1].equals("testPrograms")) {
-                    sourceFile = classloader.getResourceAsStream("srcPrograms/" + args[0]);
-                } else {
-                    sourceFile = new FileInputStream(args[0]);
+            CharSequence source = null;
+            if (args.length > 1 && args[1].equals("testPrograms")) {
+                InputStream sourceFile = classloader.getResourceAsStream("srcPrograms/" + args[0]);
+                source = readFromFile(sourceFile);
+                if (cache != null && !run) {
+                    compileCached(source.toString().getBytes(StandardCharsets.UTF_8), options, stats);
+                    printStats(printStats, stats);
+                    return;
                 }
+            } else if (args.length > 0 && args[0].equals("-")) {
+                // Stream the source from standard input, see below
             } else if (args.length > 0) {
-                sourceFile = new FileInputStream(args[0]);
+                if (cache != null && !run) {
+                    compileCached(Files.readAllBytes(Paths.get(args[0])), options, stats);
+                    printStats(printStats, stats);
+                    return;
+                }
+                source = AsciiCharSequence.map(Paths.get(args[0]));
             } else {
-                System.out.println("Default Source File: helloWorld.teenytiny");
-                sourceFile = classloader.getResourceAsStream("srcPrograms/helloWorld.teenytiny");
+                if (!run) {
+                    System.out.println("Default Source File: helloWorld.teenytiny");
+                }
+                InputStream sourceFile = classloader.getResourceAsStream("srcPrograms/helloWorld.teenytiny");
+                source = readFromFile(sourceFile);
             }
 
-            String source = readFromFile(sourceFile);
-
-            Lexer lexer = new Lexer(source);
             Emitter emitter = new Emitter("output.c");
-            Parser parser = new Parser(lexer, emitter);
+            Parser parser;
+            if (source != null) {
+                stats.end("read");
+                stats.count("sourceBytes", source.length());
+                TokenBuffer tokens = SourceCompiler.tokenize(source, options);
+                stats.end("lex");
+                stats.count("tokens", tokens.size());
+                parser = new Parser(tokens, emitter);
+            } else {
+                // The source is read and lexed as it is parsed
+                parser = new Parser(new Lexer(Channels.newChannel(System.in)), emitter);
+            }
+            options.configure(parser);
+
+            if (run) {
+                Program program = parser.parseAndTransform();
+                countParsed(stats, parser);
+                ProgramIO io = new ProgramIO(System.in, System.out);
+                if (jvm) {
+                    JvmProgram.compile(program).run(io);
+                } else if (vm) {
+                    VirtualMachine.run(BytecodeCompiler.compile(program), io);
+                } else {
+                    new Interpreter(program).run(io);
+                }
+                stats.end("run");
+                printStats(printStats, stats);
+                return;
+            }
 
-            parser.program();
+            System.out.println("PROGRAM");
+            Program program = parser.parseAndTransform();
+            countParsed(stats, parser);
+            CGenerator generator = new CGenerator(emitter);
+            options.configure(generator);
+            generator.generate(program);
+            stats.end("generate");
             emitter.writeFile();
+            stats.end("write");
+            stats.count("bytesEmitted", Files.size(Paths.get("output.c")));
             System.out.println("Compiling completed.");
+            printStats(printStats, stats);
         }
+        catch (CompileException | RunException e) { System.err.println(e.getMessage()); }
         catch (IOException e) { e.printStackTrace(); }
     }
 }
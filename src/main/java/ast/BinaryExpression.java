@@ -0,0 +1,59 @@
+package ast;
+
+import token.TokenType;
+
+public class BinaryExpression extends Expression {
+    private final TokenType operator;
+    private final Expression left;
+    private final Expression right;
+
+    public BinaryExpression(TokenType operator, Expression left, Expression right) {
+        this.operator = operator;
+        this.left = left;
+        this.right = right;
+    }
+
+    public TokenType getOperator() {
+        return this.operator;
+    }
+
+    public Expression getLeft() {
+        return this.left;
+    }
+
+    public Expression getRight() {
+        return this.right;
+    }
+
+    public boolean isArithmetic() {
+        return isArithmetic(this.operator);
+    }
+
+    public static boolean isArithmetic(TokenType operator) {
+        return operator == TokenType.PLUS || operator == TokenType.MINUS
+                || operator == TokenType.ASTERISK || operator == TokenType.SLASH;
+    }
+
+    // Type the operands are converted to before the operation
+    public CType getOperandType() {
+        return CType.common(this.left.getType(), this.right.getType());
+    }
+
+    @Override
+    public CType getType() {
+        return this.isArithmetic() ? this.getOperandType() : CType.INT;
+    }
+
+    // C precedence of the operator, higher binds tighter
+    public static int precedence(TokenType operator) {
+        return switch (operator) {
+            case ASTERISK, SLASH -> 6;
+            case PLUS, MINUS -> 5;
+            case LT, LTEQ, GT, GTEQ -> 4;
+            case EQEQ, NOTEQ -> 3;
+            case AND -> 2;
+            case OR -> 1;
+            default -> throw new IllegalArgumentException("Not a binary operator: " + operator);
+        };
+    }
+}
@@ -0,0 +1,87 @@
+package ast;
+
+import token.TokenType;
+
+// Evaluates operators the way the generated C does. Values of every type
+// are carried in a double, which holds any int or float exactly, and are
+// rounded to the operation's type after each step.
+public class CArithmetic {
+    private CArithmetic() {
+    }
+
+    // Implicit conversion of a value to the given type
+    public static double convert(double value, CType type) {
+        return switch (type) {
+            case INT -> (int) value;
+            case FLOAT -> (float) value;
+            case DOUBLE -> value;
+        };
+    }
+
+    // Integer division by zero throws ArithmeticException
+    public static double arithmetic(TokenType operator, CType type, double left, double right) {
+        if (type == CType.INT) {
+            int a = (int) left;
+            int b = (int) right;
+            return switch (operator) {
+                case PLUS -> a + b;
+                case MINUS -> a - b;
+                case ASTERISK -> a * b;
+                case SLASH -> a / b;
+                default -> throw new IllegalArgumentException("Not an arithmetic operator: " + operator);
+            };
+        }
+        if (type == CType.FLOAT) {
+            float a = (float) left;
+            float b = (float) right;
+            return switch (operator) {
+                case PLUS -> a + b;
+                case MINUS -> a - b;
+                case ASTERISK -> a * b;
+                case SLASH -> a / b;
+                default -> throw new IllegalArgumentException("Not an arithmetic operator: " + operator);
+            };
+        }
+        return switch (operator) {
+            case PLUS -> left + right;
+            case MINUS -> left - right;
+            case ASTERISK -> left * right;
+            case SLASH -> left / right;
+            default -> throw new IllegalArgumentException("Not an arithmetic operator: " + operator);
+        };
+    }
+
+    // Comparison or logical operator, operands already converted to their common type
+    public static double compare(TokenType operator, double left, double right) {
+        boolean result = switch (operator) {
+            case EQEQ -> left == right;
+            case NOTEQ -> left != right;
+            case LT -> left < right;
+            case LTEQ -> left <= right;
+            case GT -> left > right;
+            case GTEQ -> left >= right;
+            case AND -> left != 0 && right != 0;
+            case OR -> left != 0 || right != 0;
+            default -> throw new IllegalArgumentException("Not a comparison operator: " + operator);
+        };
+        return result ? 1 : 0;
+    }
+
+    public static double binary(TokenType operator, CType operandType, double left, double right) {
+        left = convert(left, operandType);
+        right = convert(right, operandType);
+        if (BinaryExpression.isArithmetic(operator)) {
+            return arithmetic(operator, operandType, left, right);
+        }
+        return compare(operator, left, right);
+    }
+
+    public static double unary(TokenType operator, CType type, double value) {
+        return switch (operator) {
+            case PLUS -> value;
+            case MINUS -> type == CType.INT ? -(int) value : type == CType.FLOAT ? -(float) value : -value;
+            case NOT -> value == 0 ? 1 : 0;
+            default -> throw new IllegalArgumentException("Not a unary operator: " + operator);
+        };
+    }
+}
@@ -0,0 +1,15 @@
+package ast;
+
+// C type of an expression in the generated code. Variables are float,
+// number literals are int or double depending on whether they have a
+// decimal point, and comparisons give int, the same as in C.
+public enum CType {
+    INT,
+    FLOAT,
+    DOUBLE;
+
+    // Usual arithmetic conversion of two operands
+    public static CType common(CType left, CType right) {
+        return left.ordinal() >= right.ordinal() ? left : right;
+    }
+}
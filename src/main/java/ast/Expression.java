@@ -0,0 +1,5 @@
+package ast;
+
+public abstract class Expression {
+    public abstract CType getType();
+}
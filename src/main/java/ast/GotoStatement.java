@@ -0,0 +1,13 @@
+package ast;
+
+public class GotoStatement extends Statement {
+    private final String label;
+
+    public GotoStatement(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return this.label;
+    }
+}
@@ -0,0 +1,19 @@
+package ast;
+
+// An expression in parentheses
+public class GroupExpression extends Expression {
+    private final Expression inner;
+
+    public GroupExpression(Expression inner) {
+        this.inner = inner;
+    }
+
+    public Expression getInner() {
+        return this.inner;
+    }
+
+    @Override
+    public CType getType() {
+        return this.inner.getType();
+    }
+}
@@ -0,0 +1,13 @@
+package ast;
+
+public class InputStatement extends Statement {
+    private final VariableExpression variable;
+
+    public InputStatement(VariableExpression variable) {
+        this.variable = variable;
+    }
+
+    public VariableExpression getVariable() {
+        return this.variable;
+    }
+}
@@ -0,0 +1,13 @@
+package ast;
+
+public class LabelStatement extends Statement {
+    private final String name;
+
+    public LabelStatement(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+}
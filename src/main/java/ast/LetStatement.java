@@ -0,0 +1,19 @@
+package ast;
+
+public class LetStatement extends Statement {
+    private final VariableExpression variable;
+    private final Expression expression;
+
+    public LetStatement(VariableExpression variable, Expression expression) {
+        this.variable = variable;
+        this.expression = expression;
+    }
+
+    public VariableExpression getVariable() {
+        return this.variable;
+    }
+
+    public Expression getExpression() {
+        return this.expression;
+    }
+}
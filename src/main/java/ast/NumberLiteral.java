@@ -0,0 +1,44 @@
+package ast;
+
+public class NumberLiteral extends Expression {
+    private final String text;
+    private final CType type;
+    private final double value;
+
+    public NumberLiteral(String text, CType type, double value) {
+        this.text = text;
+        this.type = type;
+        this.value = value;
+    }
+
+    // A number as written in the source: int without a decimal point,
+    // double with one. Like C, a leading zero makes an int octal. Integers
+    // too big for an int are kept as double here, but C makes them long,
+    // which the backends don't model, so the Parser rejects them.
+    public static NumberLiteral fromSource(String text) {
+        double value = Double.parseDouble(text);
+        if (text.length() > 1 && text.charAt(0) == '0' && text.matches("[0-7]+")) {
+            value = Long.parseLong(text, 8);
+        }
+        boolean isInt = text.indexOf('.') < 0 && value <= Integer.MAX_VALUE;
+        return new NumberLiteral(text, isInt ? CType.INT : CType.DOUBLE, value);
+    }
+
+    // Whole number that C would make a long
+    public boolean isTooBigForInt() {
+        return this.type == CType.DOUBLE && this.text.indexOf('.') < 0;
+    }
+
+    public String getText() {
+        return this.text;
+    }
+
+    @Override
+    public CType getType() {
+        return this.type;
+    }
+
+    public double getValue() {
+        return this.value;
+    }
+}
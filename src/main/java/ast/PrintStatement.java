@@ -0,0 +1,24 @@
+package ast;
+
+public class PrintStatement extends Statement {
+    private final Expression expression;
+    private final boolean cast;
+
+    public PrintStatement(Expression expression) {
+        this(expression, true);
+    }
+
+    public PrintStatement(Expression expression, boolean cast) {
+        this.expression = expression;
+        this.cast = cast;
+    }
+
+    public Expression getExpression() {
+        return this.expression;
+    }
+
+    // Whether the C converts the value to float before printing it
+    public boolean hasCast() {
+        return this.cast;
+    }
+}
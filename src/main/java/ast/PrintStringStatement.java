@@ -0,0 +1,13 @@
+package ast;
+
+public class PrintStringStatement extends Statement {
+    private final String text;
+
+    public PrintStringStatement(String text) {
+        this.text = text;
+    }
+
+    public String getText() {
+        return this.text;
+    }
+}
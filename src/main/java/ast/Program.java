@@ -0,0 +1,22 @@
+package ast;
+
+import java.util.List;
+
+public class Program {
+    private final List<Statement> statements;
+    private final List<String> variables;
+
+    public Program(List<Statement> statements, List<String> variables) {
+        this.statements = statements;
+        this.variables = variables;
+    }
+
+    public List<Statement> getStatements() {
+        return this.statements;
+    }
+
+    // Variable names in the order they were first assigned, indexed by symbol id
+    public List<String> getVariables() {
+        return this.variables;
+    }
+}
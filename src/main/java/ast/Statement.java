@@ -0,0 +1,4 @@
+package ast;
+
+public abstract class Statement {
+}
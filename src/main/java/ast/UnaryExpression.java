@@ -0,0 +1,27 @@
+package ast;
+
+import token.TokenType;
+
+// "+" or "-" in front of a primary, or the "!" of a NOT condition
+public class UnaryExpression extends Expression {
+    private final TokenType operator;
+    private final Expression operand;
+
+    public UnaryExpression(TokenType operator, Expression operand) {
+        this.operator = operator;
+        this.operand = operand;
+    }
+
+    public TokenType getOperator() {
+        return this.operator;
+    }
+
+    public Expression getOperand() {
+        return this.operand;
+    }
+
+    @Override
+    public CType getType() {
+        return this.operator == TokenType.NOT ? CType.INT : this.operand.getType();
+    }
+}
@@ -0,0 +1,25 @@
+package ast;
+
+public class VariableExpression extends Expression {
+    private final String name;
+    private final int symbolId;
+
+    public VariableExpression(String name, int symbolId) {
+        this.name = name;
+        this.symbolId = symbolId;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    // Index of the variable in Program.getVariables()
+    public int getSymbolId() {
+        return this.symbolId;
+    }
+
+    @Override
+    public CType getType() {
+        return CType.FLOAT;
+    }
+}
@@ -0,0 +1,21 @@
+package ast;
+
+import java.util.List;
+
+public class WhileStatement extends Statement {
+    private final Expression condition;
+    private final List<Statement> body;
+
+    public WhileStatement(Expression condition, List<Statement> body) {
+        this.condition = condition;
+        this.body = body;
+    }
+
+    public Expression getCondition() {
+        return this.condition;
+    }
+
+    public List<Statement> getBody() {
+        return this.body;
+    }
+}
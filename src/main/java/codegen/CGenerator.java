@@ -0,0 +1,196 @@
+package codegen;
+
+import ast.*;
+import emitter.Emitter;
+import token.Token;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// Writes a program out as C through an Emitter. A statement's C only
+// depends on the statement and its depth, so with a pool the top level
+// statements are written into separate fragments at the same time, then
+// added to the Emitter in order.
+public class CGenerator {
+    // Top level statements per fragment of a parallel generate
+    public static final int DEFAULT_FRAGMENT_STATEMENTS = 4096;
+
+    private final Emitter emitter;
+    private ForkJoinPool pool;
+    private int fragmentStatements;
+
+    public CGenerator(Emitter emitter) {
+        this.emitter = emitter;
+        this.pool = null;
+        this.fragmentStatements = DEFAULT_FRAGMENT_STATEMENTS;
+    }
+
+    public void setParallel(ForkJoinPool pool) {
+        this.setParallel(pool, DEFAULT_FRAGMENT_STATEMENTS);
+    }
+
+    public void setParallel(ForkJoinPool pool, int fragmentStatements) {
+        if (fragmentStatements < 1) {
+            throw new IllegalArgumentException("Fragment size " + fragmentStatements);
+        }
+        this.pool = pool;
+        this.fragmentStatements = fragmentStatements;
+    }
+
+    public void generate(Program program) {
+        this.emitter.headerLine("#include <stdio.h>");
+        this.emitter.headerLine("");
+        this.emitter.headerLine("int main() {");
+        for (String variable : program.getVariables()) {
+            this.emitter.headerIndent(1);
+            this.emitter.headerLine("float " + variable + ";");
+        }
+
+        List<Statement> statements = program.getStatements();
+        if (this.pool != null && this.pool.getParallelism() >= 2 && statements.size() > this.fragmentStatements) {
+            this.fragments(statements);
+        } else {
+            this.statements(statements, 0, statements.size());
+        }
+
+        this.emitter.emitIndent(1);
+        this.emitter.emitLine("return 0;");
+        this.emitter.emitLine("}");
+    }
+
+    private void statements(List<Statement> statements, int from, int to) {
+        for (int i = from; i < to; i++) {
+            this.emitter.emitIndent(1);
+            this.statement(statements.get(i), 1);
+        }
+    }
+
+    // Each fragment has its own Emitter, so nothing is shared while writing them
+    private void fragments(List<Statement> statements) {
+        List<Callable<Emitter>> fragments = new ArrayList<Callable<Emitter>>();
+        for (int from = 0; from < statements.size(); from += this.fragmentStatements) {
+            int start = from;
+            int end = Math.min(from + this.fragmentStatements, statements.size());
+            fragments.add(() -> {
+                Emitter fragment = new Emitter(null);
+                new CGenerator(fragment).statements(statements, start, end);
+                return fragment;
+            });
+        }
+        for (Future<Emitter> fragment : this.pool.invokeAll(fragments)) {
+            this.emitter.emitCode(join(fragment));
+        }
+    }
+
+    private static Emitter join(Future<Emitter> fragment) {
+        try {
+            return fragment.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while generating", e);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // The statement's first line has already been indented
+    private void statement(Statement statement, int indents) {
+        if (statement instanceof LabelStatement label) {
+            this.emitter.emitLine(label.getName() + ":");
+        }
+        else if (statement instanceof GotoStatement gotoStatement) {
+            this.emitter.emitLine("goto " + gotoStatement.getLabel() + ";");
+        }
+        else if (statement instanceof PrintStringStatement print) {
+            this.emitter.emitLine("printf(\"" + print.getText() + "\\n\");");
+        }
+        else if (statement instanceof PrintStatement print && !print.hasCast()) {
+            this.emitter.emit("printf(\"%" + ".2f\\n\", ");
+            this.expression(print.getExpression());
+            this.emitter.emitLine(");");
+        }
+        else if (statement instanceof PrintStatement print) {
+            this.emitter.emit("printf(\"%" + ".2f\\n\", (float)(");
+            this.expression(print.getExpression());
+            this.emitter.emitLine("));");
+        }
+        else if (statement instanceof InputStatement input) {
+            // Emit scanf but also validate the input.
+            // If invalid, set the variable to 0 and clear the input.
+            String name = input.getVariable().getName();
+            this.emitter.emitLine("if (0 == scanf(\"%" + "f\", &" + name + ")) {");
+            this.emitter.emitIndent(indents + 1);
+            this.emitter.emitLine(name + " = 0;");
+            this.emitter.emitIndent(indents + 1);
+            this.emitter.emitLine("scanf(\"%" + "*s\");");
+            this.emitter.emitIndent(indents);
+            this.emitter.emitLine("}");
+        }
+        else if (statement instanceof LetStatement let) {
+            this.emitter.emit(let.getVariable().getName() + " = ");
+            this.expression(let.getExpression());
+            this.emitter.emitLine(";");
+        }
+        else if (statement instanceof IfStatement ifStatement) {
+            this.emitter.emit("if (");
+            this.block(ifStatement.getCondition(), ifStatement.getBody(), indents);
+        }
+        else if (statement instanceof WhileStatement whileStatement) {
+            this.emitter.emit("while (");
+            this.block(whileStatement.getCondition(), whileStatement.getBody(), indents);
+        }
+        else {
+            throw new IllegalArgumentException("Unknown statement " + statement);
+        }
+    }
+
+    private void block(Expression condition, List<Statement> body, int indents) {
+        this.expression(condition);
+        if (body.isEmpty()) {
+            this.emitter.emitLine(") {}");
+            return;
+        }
+        this.emitter.emitLine(") {");
+        for (Statement statement : body) {
+            this.emitter.emitIndent(indents + 1);
+            this.statement(statement, indents + 1);
+        }
+        this.emitter.emitIndent(indents);
+        this.emitter.emitLine("}");
+    }
+
+    private void expression(Expression expression) {
+        if (expression instanceof NumberLiteral number) {
+            this.emitter.emit(number.getText());
+        }
+        else if (expression instanceof VariableExpression variable) {
+            this.emitter.emit(variable.getName());
+        }
+        else if (expression instanceof UnaryExpression unary) {
+            this.emitter.emit(Token.fixedText(unary.getOperator()));
+            this.expression(unary.getOperand());
+        }
+        else if (expression instanceof BinaryExpression binary) {
+            this.expression(binary.getLeft());
+            this.emitter.emit(Token.fixedText(binary.getOperator()));
+            this.expression(binary.getRight());
+        }
+        else if (expression instanceof GroupExpression group) {
+            this.emitter.emit("(");
+            this.expression(group.getInner());
+            this.emitter.emit(")");
+        }
+        else {
+            throw new IllegalArgumentException("Unknown expression " + expression);
+        }
+    }
+}
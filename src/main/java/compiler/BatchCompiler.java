@@ -0,0 +1,242 @@
+package compiler;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Compiles many source files at once on a work-stealing pool. Every file
+// is compiled by its own Lexer, Parser and Emitter, and a file that fails
+// is recorded without stopping the others.
+public class BatchCompiler {
+    public static final String SOURCE_EXTENSION = ".teenytiny";
+
+    private final Path outputDir;
+    private final int parallelism;
+    private final CompileOptions options;
+
+    public BatchCompiler(Path outputDir) {
+        this(outputDir, Runtime.getRuntime().availableProcessors());
+    }
+
+    public BatchCompiler(Path outputDir, int parallelism) {
+        this(outputDir, parallelism, CompileOptions.DEFAULT);
+    }
+
+    public BatchCompiler(Path outputDir, int parallelism, CompileOptions options) {
+        this.outputDir = outputDir;
+        this.parallelism = parallelism;
+        this.options = options;
+    }
+
+    public static class Failure {
+        private final Path sourceFile;
+        private final String message;
+
+        public Failure(Path sourceFile, String message) {
+            this.sourceFile = sourceFile;
+            this.message = message;
+        }
+
+        public Path getSourceFile() {
+            return this.sourceFile;
+        }
+
+        public String getMessage() {
+            return this.message;
+        }
+    }
+
+    public static class Result {
+        private final int compiled;
+        private final long sourceBytes;
+        private final long elapsedNanos;
+        private final List<Failure> failures;
+
+        public Result(int compiled, long sourceBytes, long elapsedNanos, List<Failure> failures) {
+            this.compiled = compiled;
+            this.sourceBytes = sourceBytes;
+            this.elapsedNanos = elapsedNanos;
+            this.failures = failures;
+        }
+
+        public int getCompiled() {
+            return this.compiled;
+        }
+
+        public List<Failure> getFailures() {
+            return this.failures;
+        }
+
+        public long getSourceBytes() {
+            return this.sourceBytes;
+        }
+
+        public long getElapsedNanos() {
+            return this.elapsedNanos;
+        }
+
+        public String summary() {
+            double seconds = Math.max(this.elapsedNanos, 1) / 1e9;
+            int files = this.compiled + this.failures.size();
+            return String.format("Compiled %d of %d files in %.3f s (%.1f files/s, %.2f MB/s), %d failed",
+                    this.compiled, files, seconds, files / seconds,
+                    this.sourceBytes / seconds / (1024 * 1024), this.failures.size());
+        }
+    }
+
+    private static class Job {
+        private final Path sourceFile;
+        private final Path outputFile;
+
+        Job(Path sourceFile, Path outputFile) {
+            this.sourceFile = sourceFile;
+            this.outputFile = outputFile;
+        }
+    }
+
+    public Result compile(List<String> inputs) throws IOException {
+        List<Job> jobs = new ArrayList<Job>();
+        for (String input : inputs) {
+            this.addJobs(input, jobs);
+        }
+
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newWorkStealingPool(this.parallelism);
+        try {
+            List<Future<Failure>> results = new ArrayList<Future<Failure>>();
+            for (Job job : jobs) {
+                results.add(executor.submit(() -> this.compileJob(job)));
+            }
+
+            int compiled = 0;
+            long sourceBytes = 0;
+            List<Failure> failures = new ArrayList<Failure>();
+            for (int i = 0; i < jobs.size(); i++) {
+                Failure failure = waitFor(results.get(i), jobs.get(i));
+                if (failure == null) {
+                    compiled++;
+                } else {
+                    failures.add(failure);
+                }
+                sourceBytes += sizeOf(jobs.get(i).sourceFile);
+            }
+            return new Result(compiled, sourceBytes, System.nanoTime() - start, failures);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Failure compileJob(Job job) {
+        try {
+            Path parent = job.outputFile.getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            SourceCompiler.compile(job.sourceFile, job.outputFile, this.options);
+            return null;
+        }
+        catch (Exception e) {
+            String message = e.getMessage() != null ? e.getMessage() : e.toString();
+            return new Failure(job.sourceFile, message);
+        }
+    }
+
+    private static Failure waitFor(Future<Failure> result, Job job) {
+        try {
+            return result.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Failure(job.sourceFile, "Interrupted");
+        }
+        catch (ExecutionException e) {
+            return new Failure(job.sourceFile, e.getCause().toString());
+        }
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        }
+        catch (IOException e) {
+            return 0;
+        }
+    }
+
+    // An input is a source file, a directory searched for source files,
+    // or a glob pattern such as "programs/**.teenytiny"
+    private void addJobs(String input, List<Job> jobs) throws IOException {
+        if (isGlob(input)) {
+            Path base = globBase(input);
+            PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + input);
+            for (Path file : walk(base)) {
+                if (matcher.matches(file)) {
+                    jobs.add(new Job(file, this.outputFor(base.relativize(file))));
+                }
+            }
+        }
+        else {
+            Path path = Paths.get(input);
+            if (Files.isDirectory(path)) {
+                for (Path file : walk(path)) {
+                    if (file.toString().endsWith(SOURCE_EXTENSION)) {
+                        jobs.add(new Job(file, this.outputFor(path.relativize(file))));
+                    }
+                }
+            }
+            else {
+                jobs.add(new Job(path, this.outputFor(path.getFileName())));
+            }
+        }
+    }
+
+    private Path outputFor(Path relativeSource) {
+        return outputFor(this.outputDir, relativeSource);
+    }
+
+    // name.teenytiny becomes name.c, keeping the directories the source is in
+    static Path outputFor(Path outputDir, Path relativeSource) {
+        String name = relativeSource.getFileName().toString();
+        if (name.endsWith(SOURCE_EXTENSION)) {
+            name = name.substring(0, name.length() - SOURCE_EXTENSION.length());
+        }
+        Path parent = relativeSource.getParent();
+        Path relativeOutput = parent == null ? Paths.get(name + ".c") : parent.resolve(name + ".c");
+        return outputDir.resolve(relativeOutput);
+    }
+
+    private static boolean isGlob(String input) {
+        return input.indexOf('*') >= 0 || input.indexOf('?') >= 0
+                || input.indexOf('[') >= 0 || input.indexOf('{') >= 0;
+    }
+
+    // Longest leading directory of the pattern without glob characters
+    private static Path globBase(String pattern) {
+        Path patternPath = Paths.get(pattern);
+        Path base = patternPath.getRoot();
+        for (Path part : patternPath) {
+            if (isGlob(part.toString())) {
+                break;
+            }
+            base = base == null ? part : base.resolve(part);
+        }
+        return base == null ? Paths.get("") : base;
+    }
+
+    private static List<Path> walk(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package compiler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Generated C code stored on disk under a hash of the source, the compiler
+// version, the compiler's class files and the options, so an unchanged
+// file isn't compiled again and a rebuilt compiler doesn't reuse old code.
+// Entries are written to a temporary file and moved into place, so several
+// processes can share the directory and never read a partial entry. When
+// the entries grow past the size limit, the least recently used ones are
+// deleted; reading an entry updates its modified time.
+public class CompileCache {
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+    private static final String ENTRY_EXTENSION = ".c";
+    // Changes whenever any pass or the code generator does
+    private static final byte[] CODE_HASH = codeHash();
+
+    private final Path directory;
+    private final long maxBytes;
+    // Bytes this process believes are stored, checked against the directory before evicting
+    private long size;
+
+    public CompileCache(Path directory) throws IOException {
+        this(directory, DEFAULT_MAX_BYTES);
+    }
+
+    public CompileCache(Path directory, long maxBytes) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.maxBytes = maxBytes;
+        this.size = 0;
+        for (Entry entry : this.entries()) {
+            this.size += entry.size;
+        }
+    }
+
+    public static String key(byte[] source, CompileOptions options) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(SourceCompiler.VERSION.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(CODE_HASH);
+            digest.update(options.key().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(source);
+            StringBuilder hex = new StringBuilder(64);
+            for (byte b : digest.digest()) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Hash of the class files in the directory or jar the compiler was loaded from
+    private static byte[] codeHash() {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            CodeSource source = CompileCache.class.getProtectionDomain().getCodeSource();
+            if (source == null) {
+                return digest.digest();
+            }
+            Path location = Paths.get(source.getLocation().toURI());
+            if (Files.isRegularFile(location)) {
+                digest.update(Files.readAllBytes(location));
+                return digest.digest();
+            }
+            List<Path> classFiles;
+            try (Stream<Path> paths = Files.walk(location)) {
+                classFiles = paths.filter(path -> path.toString().endsWith(".class")).sorted().collect(Collectors.toList());
+            }
+            for (Path classFile : classFiles) {
+                digest.update(location.relativize(classFile).toString().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(Files.readAllBytes(classFile));
+            }
+            return digest.digest();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        catch (NoSuchAlgorithmException | URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // The stored C code, or null
+    public byte[] get(String key) throws IOException {
+        Path entry = this.directory.resolve(key + ENTRY_EXTENSION);
+        try {
+            byte[] output = Files.readAllBytes(entry);
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+            return output;
+        }
+        catch (NoSuchFileException e) {
+            // Not stored, or evicted by another process
+            return null;
+        }
+    }
+
+    public synchronized void put(String key, byte[] output) throws IOException {
+        Path entry = this.directory.resolve(key + ENTRY_EXTENSION);
+        Path temporary = Files.createTempFile(this.directory, key, ".tmp");
+        long replaced;
+        try {
+            replaced = Files.size(entry);
+        }
+        catch (NoSuchFileException e) {
+            replaced = 0;
+        }
+        try {
+            Files.write(temporary, output);
+            try {
+                Files.move(temporary, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        finally {
+            Files.deleteIfExists(temporary);
+        }
+        this.size += output.length - replaced;
+        if (this.size > this.maxBytes) {
+            this.evict();
+        }
+    }
+
+    public long getSize() {
+        return this.size;
+    }
+
+    private static class Entry {
+        private final Path path;
+        private final long size;
+        private final long lastModified;
+
+        Entry(Path path, long size, long lastModified) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+
+    private List<Entry> entries() throws IOException {
+        List<Entry> entries = new ArrayList<Entry>();
+        try (Stream<Path> paths = Files.list(this.directory)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                if (!path.toString().endsWith(ENTRY_EXTENSION)) {
+                    continue;
+                }
+                try {
+                    entries.add(new Entry(path, Files.size(path), Files.getLastModifiedTime(path).toMillis()));
+                }
+                catch (NoSuchFileException e) {
+                    // Evicted by another process
+                }
+            }
+        }
+        return entries;
+    }
+
+    // Deletes least recently used entries until the cache is within its limit
+    private void evict() throws IOException {
+        List<Entry> entries = this.entries();
+        long total = 0;
+        for (Entry entry : entries) {
+            total += entry.size;
+        }
+        entries.sort((a, b) -> Long.compare(a.lastModified, b.lastModified));
+        for (Entry entry : entries) {
+            if (total <= this.maxBytes) {
+                break;
+            }
+            Files.deleteIfExists(entry.path);
+            total -= entry.size;
+        }
+        this.size = total;
+    }
+}
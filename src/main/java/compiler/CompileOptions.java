@@ -0,0 +1,67 @@
+package compiler;
+
+import codegen.CGenerator;
+import parser.Parser;
+import pass.PassManager;
+
+import java.util.concurrent.ForkJoinPool;
+
+// Settings for a compile. Default output is the plain translation of the
+// source; "-O" runs the optimization passes first. With a cache, output
+// already generated for the same source and settings is reused.
+// Parallel compiles split the work on one source over the common
+// fork/join pool and generate the same C.
+public class CompileOptions {
+    public static final CompileOptions DEFAULT = new CompileOptions(false);
+
+    private final boolean optimize;
+    private final CompileCache cache;
+    private final boolean parallel;
+
+    public CompileOptions(boolean optimize) {
+        this(optimize, null);
+    }
+
+    public CompileOptions(boolean optimize, CompileCache cache) {
+        this(optimize, cache, false);
+    }
+
+    public CompileOptions(boolean optimize, CompileCache cache, boolean parallel) {
+        this.optimize = optimize;
+        this.cache = cache;
+        this.parallel = parallel;
+    }
+
+    public boolean isOptimize() {
+        return this.optimize;
+    }
+
+    public boolean isParallel() {
+        return this.parallel;
+    }
+
+    // Null when not caching
+    public CompileCache getCache() {
+        return this.cache;
+    }
+
+    // The settings that change the generated C, as part of the cache key
+    public String key() {
+        return "optimize=" + this.optimize;
+    }
+
+    public void configure(Parser parser) {
+        if (this.optimize) {
+            parser.addPass(PassManager.optimizations());
+        }
+        if (this.parallel) {
+            parser.setParallel(ForkJoinPool.commonPool());
+        }
+    }
+
+    public void configure(CGenerator generator) {
+        if (this.parallel) {
+            generator.setParallel(ForkJoinPool.commonPool());
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package compiler;
+
+import emitter.Emitter;
+import lexer.AsciiCharSequence;
+import lexer.Lexer;
+import lexer.ParallelLexer;
+import lexer.TokenBuffer;
+import parser.Parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+
+// Compiles one TeenyTiny source file to a C file. Nothing is shared
+// between calls, so separate files can be compiled on separate threads.
+public class SourceCompiler {
+    // The project version from the build. Cache keys also hash the
+    // compiler's class files, so the code changing is enough to change them.
+    public static final String VERSION = version();
+
+    private SourceCompiler() {
+    }
+
+    private static String version() {
+        Properties build = new Properties();
+        try (InputStream input = SourceCompiler.class.getResourceAsStream("version.properties")) {
+            if (input != null) {
+                build.load(input);
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return build.getProperty("version", "unknown");
+    }
+
+    public static void compile(Path sourceFile, Path outputFile) throws IOException {
+        compile(sourceFile, outputFile, CompileOptions.DEFAULT);
+    }
+
+    public static void compile(Path sourceFile, Path outputFile, CompileOptions options) throws IOException {
+        if (options.getCache() != null) {
+            Files.write(outputFile, generate(Files.readAllBytes(sourceFile), options));
+            return;
+        }
+        compile(AsciiCharSequence.map(sourceFile), outputFile, options);
+    }
+
+    public static void compile(CharSequence source, Path outputFile) throws IOException {
+        compile(source, outputFile, CompileOptions.DEFAULT);
+    }
+
+    public static void compile(CharSequence source, Path outputFile, CompileOptions options) throws IOException {
+        TokenBuffer tokens = tokenize(source, options);
+
+        Emitter emitter = new Emitter(outputFile.toString());
+        Parser parser = new Parser(tokens, emitter);
+        options.configure(parser);
+        parser.program();
+        emitter.writeFile();
+    }
+
+    // The C code for the source, without writing a file
+    public static String generate(CharSequence source, CompileOptions options) throws IOException {
+        TokenBuffer tokens = tokenize(source, options);
+
+        Emitter emitter = new Emitter(null);
+        Parser parser = new Parser(tokens, emitter);
+        options.configure(parser);
+        parser.program();
+        StringWriter output = new StringWriter();
+        emitter.writeTo(output);
+        return output.toString();
+    }
+
+    // The C code for a source file's bytes, taken from the cache without
+    // lexing or parsing when the options have one and it holds the code
+    public static byte[] generate(byte[] source, CompileOptions options) throws IOException {
+        CompileCache cache = options.getCache();
+        String key = null;
+        if (cache != null) {
+            key = CompileCache.key(source, options);
+            byte[] cached = cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        byte[] output = generate(AsciiCharSequence.source(ByteBuffer.wrap(source)), options)
+                .getBytes(StandardCharsets.UTF_8);
+        if (cache != null) {
+            cache.put(key, output);
+        }
+        return output;
+    }
+
+    public static TokenBuffer tokenize(CharSequence source, CompileOptions options) {
+        TokenBuffer tokens = new TokenBuffer();
+        if (options.isParallel()) {
+            new ParallelLexer().tokenize(source, tokens);
+        } else {
+            new Lexer(source).tokenize(tokens);
+        }
+        return tokens;
+    }
+
+    // Compiles the source file, leaving the output file untouched when it
+    // already holds the same C code. Returns whether the file was written.
+    public static boolean compileIfChanged(Path sourceFile, Path outputFile, CompileOptions options) throws IOException {
+        byte[] output = generate(Files.readAllBytes(sourceFile), options);
+        if (Files.exists(outputFile) && Arrays.equals(output, Files.readAllBytes(outputFile))) {
+            return false;
+        }
+        Path parent = outputFile.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Files.write(outputFile, output);
+        return true;
+    }
+}
@@ -0,0 +1,188 @@
+package compiler;
+
+import diagnostic.CompileException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Compiles source files and then recompiles each one whenever it changes,
+// until closed. Changes are collected until none have arrived for the
+// debounce time, so an editor saving a file in several writes causes one
+// compile. An output file is only rewritten when its C code changes.
+public class WatchCompiler implements Closeable {
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 100;
+
+    private final Path outputDir;
+    private final CompileOptions options;
+    private final long debounceMillis;
+    private final PrintStream log;
+    private final WatchService watcher;
+    private final Map<WatchKey, Path> directories;
+    // Watched directory to the input directory it is in, outputs keep the layout below it
+    private final Map<Path, Path> roots;
+    // Source files named as inputs, compiled to the top of the output directory
+    private final Set<Path> files;
+
+    public WatchCompiler(Path outputDir, CompileOptions options, long debounceMillis, PrintStream log) throws IOException {
+        this.outputDir = outputDir;
+        this.options = options;
+        this.debounceMillis = debounceMillis;
+        this.log = log;
+        this.watcher = outputDir.getFileSystem().newWatchService();
+        this.directories = new HashMap<WatchKey, Path>();
+        this.roots = new HashMap<Path, Path>();
+        this.files = new HashSet<Path>();
+    }
+
+    // Compiles the inputs, files or directories of source files, then
+    // watches them until close() is called
+    public void watch(List<String> inputs) throws IOException, InterruptedException {
+        List<Path> sources = new ArrayList<Path>();
+        for (String input : inputs) {
+            Path path = Paths.get(input).toAbsolutePath().normalize();
+            if (Files.isDirectory(path)) {
+                sources.addAll(this.registerTree(path, path));
+            } else {
+                this.files.add(path);
+                this.register(path.getParent());
+                sources.add(path);
+            }
+        }
+        for (Path source : sources) {
+            this.compile(source);
+        }
+
+        try {
+            this.watchChanges();
+        }
+        catch (ClosedWatchServiceException e) {
+            // Closed, stop watching
+        }
+    }
+
+    private void watchChanges() throws IOException, InterruptedException {
+        Set<Path> changed = new LinkedHashSet<Path>();
+        while (true) {
+            WatchKey key = changed.isEmpty()
+                    ? this.watcher.take()
+                    : this.watcher.poll(this.debounceMillis, TimeUnit.MILLISECONDS);
+            if (key == null) {
+                // Nothing new within the debounce time
+                for (Path file : changed) {
+                    this.compile(file);
+                }
+                changed.clear();
+                continue;
+            }
+
+            Path directory = this.directories.get(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    // Events were lost, so check every source
+                    changed.addAll(this.allSources());
+                    continue;
+                }
+                Path file = directory.resolve((Path) event.context());
+                Path root = this.roots.get(directory);
+                if (root != null && Files.isDirectory(file)) {
+                    changed.addAll(this.registerTree(file, root));
+                } else {
+                    changed.add(file);
+                }
+            }
+            if (!key.reset()) {
+                this.directories.remove(key);
+            }
+        }
+    }
+
+    private void register(Path directory) throws IOException {
+        WatchKey key = directory.register(this.watcher,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        this.directories.put(key, directory);
+    }
+
+    // Watches the directory and those below it, returns the source files in them.
+    // Each directory is watched before it is listed, so a file created meanwhile
+    // is either listed or seen as an event.
+    private List<Path> registerTree(Path directory, Path root) throws IOException {
+        this.register(directory);
+        this.roots.put(directory, root);
+        List<Path> sources = new ArrayList<Path>();
+        try (Stream<Path> paths = Files.list(directory)) {
+            for (Path path : paths.sorted().collect(Collectors.toList())) {
+                if (Files.isDirectory(path)) {
+                    sources.addAll(this.registerTree(path, root));
+                } else if (path.toString().endsWith(BatchCompiler.SOURCE_EXTENSION)) {
+                    sources.add(path);
+                }
+            }
+        }
+        return sources;
+    }
+
+    private List<Path> allSources() throws IOException {
+        List<Path> sources = new ArrayList<Path>(this.files);
+        for (Path root : new HashSet<Path>(this.roots.values())) {
+            sources.addAll(this.registerTree(root, root));
+        }
+        return sources;
+    }
+
+    // The output for a watched source file, null for other files
+    private Path outputFor(Path file) {
+        if (this.files.contains(file)) {
+            return BatchCompiler.outputFor(this.outputDir, file.getFileName());
+        }
+        Path root = this.roots.get(file.getParent());
+        if (root != null && file.toString().endsWith(BatchCompiler.SOURCE_EXTENSION)) {
+            return BatchCompiler.outputFor(this.outputDir, root.relativize(file));
+        }
+        return null;
+    }
+
+    private void compile(Path file) {
+        Path output = this.outputFor(file);
+        if (output == null || !Files.isRegularFile(file)) {
+            return;
+        }
+        try {
+            if (SourceCompiler.compileIfChanged(file, output, this.options)) {
+                this.log.println("Compiled " + file + " to " + output);
+            } else {
+                this.log.println("Unchanged " + output);
+            }
+        }
+        catch (CompileException e) {
+            this.log.println(file + ": " + e.getMessage());
+        }
+        // A bug or a source nested too deeply only stops this file
+        catch (IOException | RuntimeException | StackOverflowError e) {
+            this.log.println(file + ": " + e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.watcher.close();
+    }
+}
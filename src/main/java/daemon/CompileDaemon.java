@@ -0,0 +1,145 @@
+package daemon;
+
+import compiler.CompileCache;
+import compiler.CompileOptions;
+import compiler.SourceCompiler;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Compiles files for DaemonClients connecting over a Unix domain socket,
+// so each compile runs on a JVM that has already started and warmed up.
+// Requests from every connection run concurrently on one work-stealing
+// pool and each response is sent as soon as its compile finishes.
+//
+// A request's arguments are ["-O"] <source file> <output file>, with
+// absolute paths since the daemon's working directory is its own.
+public class CompileDaemon implements Closeable {
+    private final Path socketFile;
+    private final CompileCache cache;
+    private final ServerSocketChannel server;
+    private final ExecutorService compilers;
+    private final ExecutorService connections;
+    private final AtomicBoolean closed;
+
+    public CompileDaemon(Path socketFile, CompileCache cache) throws IOException {
+        this.socketFile = socketFile;
+        this.cache = cache;
+        // A socket file left by a daemon that didn't shut down cleanly
+        Files.deleteIfExists(socketFile);
+        this.server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        this.server.bind(UnixDomainSocketAddress.of(socketFile));
+        this.compilers = Executors.newWorkStealingPool();
+        this.connections = Executors.newCachedThreadPool();
+        this.closed = new AtomicBoolean();
+    }
+
+    // Accepts connections until closed
+    public void serve() throws IOException {
+        while (true) {
+            SocketChannel channel;
+            try {
+                channel = this.server.accept();
+            }
+            catch (ClosedChannelException e) {
+                return;
+            }
+            this.connections.execute(() -> this.handle(channel));
+        }
+    }
+
+    private void handle(SocketChannel channel) {
+        // Counts the connection's requests still compiling
+        Phaser running = new Phaser(1);
+        try (channel) {
+            DataInputStream in = DaemonProtocol.input(channel);
+            DataOutputStream out = DaemonProtocol.output(channel);
+            while (true) {
+                DaemonProtocol.Request request;
+                try {
+                    request = DaemonProtocol.readRequest(in);
+                }
+                catch (EOFException e) {
+                    break;
+                }
+                running.register();
+                this.compilers.execute(() -> {
+                    try {
+                        DaemonProtocol.Response response;
+                        try {
+                            response = this.compile(request);
+                        }
+                        catch (Throwable e) {
+                            // Such as a StackOverflowError; the client still waits for a response
+                            response = failure(request, e);
+                        }
+                        synchronized (out) {
+                            DaemonProtocol.writeResponse(out, response);
+                        }
+                    }
+                    catch (IOException e) {
+                        // The client has gone
+                    }
+                    finally {
+                        running.arriveAndDeregister();
+                    }
+                });
+            }
+            running.arriveAndAwaitAdvance();
+        }
+        catch (IOException e) {
+            // The client has gone
+        }
+    }
+
+    DaemonProtocol.Response compile(DaemonProtocol.Request request) {
+        List<String> files = new ArrayList<String>(request.getArgs());
+        boolean optimize = files.remove("-O");
+        if (files.size() != 2) {
+            return new DaemonProtocol.Response(request.getId(), false,
+                    "Expected [-O] <source file> <output file>, got " + request.getArgs());
+        }
+        try {
+            Path output = Paths.get(files.get(1));
+            SourceCompiler.compile(Paths.get(files.get(0)), output, new CompileOptions(optimize, this.cache));
+            return new DaemonProtocol.Response(request.getId(), true, output.toString());
+        }
+        catch (IOException | RuntimeException e) {
+            return failure(request, e);
+        }
+    }
+
+    private static DaemonProtocol.Response failure(DaemonProtocol.Request request, Throwable e) {
+        String message = e.getMessage() != null ? e.getMessage() : e.toString();
+        return new DaemonProtocol.Response(request.getId(), false, message);
+    }
+
+    // Only the first call closes, so a shutdown hook and the owner can both call it
+    @Override
+    public void close() throws IOException {
+        if (!this.closed.compareAndSet(false, true)) {
+            return;
+        }
+        this.server.close();
+        this.connections.shutdownNow();
+        this.compilers.shutdown();
+        Files.deleteIfExists(this.socketFile);
+    }
+}
@@ -0,0 +1,73 @@
+package daemon;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Connection to a CompileDaemon. Requests are sent straight away, without
+// waiting for earlier ones to finish, and each returns a future completed
+// when its response arrives.
+public class DaemonClient implements Closeable {
+    private final SocketChannel channel;
+    private final DataOutputStream out;
+    private final Map<Integer, CompletableFuture<DaemonProtocol.Response>> pending;
+    private final AtomicInteger nextId;
+    private final Thread reader;
+
+    public DaemonClient(Path socketFile) throws IOException {
+        this.channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        this.channel.connect(UnixDomainSocketAddress.of(socketFile));
+        this.out = DaemonProtocol.output(this.channel);
+        this.pending = new ConcurrentHashMap<Integer, CompletableFuture<DaemonProtocol.Response>>();
+        this.nextId = new AtomicInteger();
+
+        DataInputStream in = DaemonProtocol.input(this.channel);
+        this.reader = new Thread(() -> this.readResponses(in), "daemon-client");
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    public CompletableFuture<DaemonProtocol.Response> compile(List<String> args) throws IOException {
+        int id = this.nextId.getAndIncrement();
+        CompletableFuture<DaemonProtocol.Response> response = new CompletableFuture<DaemonProtocol.Response>();
+        this.pending.put(id, response);
+        synchronized (this.out) {
+            DaemonProtocol.writeRequest(this.out, new DaemonProtocol.Request(id, args));
+        }
+        return response;
+    }
+
+    private void readResponses(DataInputStream in) {
+        try {
+            while (true) {
+                DaemonProtocol.Response response = DaemonProtocol.readResponse(in);
+                CompletableFuture<DaemonProtocol.Response> waiting = this.pending.remove(response.getId());
+                if (waiting != null) {
+                    waiting.complete(response);
+                }
+            }
+        }
+        catch (IOException e) {
+            IOException closed = new IOException("Connection to the compile daemon closed", e);
+            for (CompletableFuture<DaemonProtocol.Response> waiting : this.pending.values()) {
+                waiting.completeExceptionally(closed);
+            }
+            this.pending.clear();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+}
@@ -0,0 +1,138 @@
+package daemon;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Messages between DaemonClient and CompileDaemon. A request is an id and
+// the compile arguments; a response is the request's id, whether it
+// succeeded and the output file or error message. Clients send requests
+// without waiting, and responses come back in the order compiles finish.
+// Strings are sent as a length and UTF-8 bytes, as error messages can be
+// longer than writeUTF allows.
+public class DaemonProtocol {
+    private DaemonProtocol() {
+    }
+
+    public static class Request {
+        private final int id;
+        private final List<String> args;
+
+        public Request(int id, List<String> args) {
+            this.id = id;
+            this.args = args;
+        }
+
+        public int getId() {
+            return this.id;
+        }
+
+        public List<String> getArgs() {
+            return this.args;
+        }
+    }
+
+    public static class Response {
+        private final int id;
+        private final boolean ok;
+        private final String message;
+
+        public Response(int id, boolean ok, String message) {
+            this.id = id;
+            this.ok = ok;
+            this.message = message;
+        }
+
+        public int getId() {
+            return this.id;
+        }
+
+        public boolean isOk() {
+            return this.ok;
+        }
+
+        // The output file when ok, otherwise the error
+        public String getMessage() {
+            return this.message;
+        }
+    }
+
+    static void writeRequest(DataOutputStream out, Request request) throws IOException {
+        out.writeInt(request.getId());
+        out.writeInt(request.getArgs().size());
+        for (String arg : request.getArgs()) {
+            writeString(out, arg);
+        }
+        out.flush();
+    }
+
+    static Request readRequest(DataInputStream in) throws IOException {
+        int id = in.readInt();
+        int count = in.readInt();
+        List<String> args = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            args.add(readString(in));
+        }
+        return new Request(id, args);
+    }
+
+    static void writeResponse(DataOutputStream out, Response response) throws IOException {
+        out.writeInt(response.getId());
+        out.writeBoolean(response.isOk());
+        writeString(out, response.getMessage());
+        out.flush();
+    }
+
+    static Response readResponse(DataInputStream in) throws IOException {
+        return new Response(in.readInt(), in.readBoolean(), readString(in));
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Streams that call the channel directly, so one thread can read while
+    // another writes. Channels.newInputStream and newOutputStream share a lock.
+    static DataInputStream input(SocketChannel channel) {
+        return new DataInputStream(new BufferedInputStream(new InputStream() {
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                return this.read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) throws IOException {
+                return channel.read(ByteBuffer.wrap(bytes, offset, length));
+            }
+        }));
+    }
+
+    static DataOutputStream output(SocketChannel channel) {
+        return new DataOutputStream(new BufferedOutputStream(new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                this.write(new byte[] {(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        }));
+    }
+}
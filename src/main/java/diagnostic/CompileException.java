@@ -0,0 +1,40 @@
+package diagnostic;
+
+import java.util.List;
+
+// Thrown when the source program can't be compiled. Unlike exiting the
+// JVM, this lets one bad file fail on its own in a batch of files.
+public class CompileException extends RuntimeException {
+    private final List<Diagnostic> diagnostics;
+
+    public CompileException(String message) {
+        super(message);
+        this.diagnostics = List.of();
+    }
+
+    public CompileException(Diagnostics diagnostics) {
+        super(message(diagnostics));
+        this.diagnostics = diagnostics.getDiagnostics();
+    }
+
+    // The source errors behind the exception, empty when it isn't caused by the source
+    public List<Diagnostic> getDiagnostics() {
+        return this.diagnostics;
+    }
+
+    // One diagnostic per line
+    private static String message(Diagnostics diagnostics) {
+        StringBuilder message = new StringBuilder();
+        for (Diagnostic diagnostic : diagnostics.getDiagnostics()) {
+            if (message.length() > 0) {
+                message.append('\n');
+            }
+            message.append(diagnostic);
+        }
+        int notReported = diagnostics.getErrorCount() - Diagnostics.MAX_REPORTED;
+        if (notReported > 0) {
+            message.append('\n').append(notReported).append(" more errors");
+        }
+        return message.toString();
+    }
+}
@@ -0,0 +1,57 @@
+package diagnostic;
+
+// One error found in a source program, at the line and column of the
+// character or token it was found at. Lines and columns count from 1.
+public class Diagnostic {
+    public enum Kind {
+        // Characters that don't make a token
+        LEXICAL("Lexer error"),
+        // Tokens that don't make a statement
+        SYNTAX("Parser error"),
+        // Statements that are well formed but refer to undeclared names
+        SEMANTIC("Parser error");
+
+        private final String description;
+
+        Kind(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return this.description;
+        }
+    }
+
+    private final Kind kind;
+    private final int line;
+    private final int column;
+    private final String message;
+
+    public Diagnostic(Kind kind, int line, int column, String message) {
+        this.kind = kind;
+        this.line = line;
+        this.column = column;
+        this.message = message;
+    }
+
+    public Kind getKind() {
+        return this.kind;
+    }
+
+    public int getLine() {
+        return this.line;
+    }
+
+    public int getColumn() {
+        return this.column;
+    }
+
+    public String getMessage() {
+        return this.message;
+    }
+
+    @Override
+    public String toString() {
+        return this.line + ":" + this.column + ": " + this.kind.getDescription() + ". " + this.message;
+    }
+}
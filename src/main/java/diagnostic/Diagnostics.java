@@ -0,0 +1,51 @@
+package diagnostic;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Errors collected while lexing and parsing one source program, so all of
+// them are reported together instead of stopping at the first. Only the
+// first MAX_REPORTED are kept, in case the input isn't a program at all.
+public class Diagnostics {
+    public static final int MAX_REPORTED = 100;
+
+    private final List<Diagnostic> diagnostics;
+    private int errorCount;
+
+    public Diagnostics() {
+        this.diagnostics = new ArrayList<Diagnostic>();
+        this.errorCount = 0;
+    }
+
+    public void report(Diagnostic.Kind kind, int line, int column, String message) {
+        this.errorCount++;
+        if (this.diagnostics.size() < MAX_REPORTED) {
+            this.diagnostics.add(new Diagnostic(kind, line, column, message));
+        }
+    }
+
+    // Adds the errors found in a part of the source that starts lineOffset lines in
+    public void addAll(Diagnostics diagnostics, int lineOffset) {
+        for (Diagnostic diagnostic : diagnostics.diagnostics) {
+            this.report(diagnostic.getKind(), diagnostic.getLine() + lineOffset, diagnostic.getColumn(), diagnostic.getMessage());
+        }
+        this.errorCount += diagnostics.errorCount - diagnostics.diagnostics.size();
+    }
+
+    public boolean hasErrors() {
+        return this.errorCount > 0;
+    }
+
+    // Including the errors past MAX_REPORTED that weren't kept
+    public int getErrorCount() {
+        return this.errorCount;
+    }
+
+    // The kept diagnostics in source order
+    public List<Diagnostic> getDiagnostics() {
+        List<Diagnostic> sorted = new ArrayList<Diagnostic>(this.diagnostics);
+        sorted.sort(Comparator.comparingInt(Diagnostic::getLine).thenComparingInt(Diagnostic::getColumn));
+        return sorted;
+    }
+}
@@ -0,0 +1,9 @@
+package diagnostic;
+
+// Thrown when a program run without the C compiler does something C
+// leaves undefined, such as dividing an int by zero
+public class RunException extends RuntimeException {
+    public RunException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,132 @@
+package emitter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Writes OutputBuffers to a file one byte per char, straight from their
+// chunks. Generated C is ASCII, so this is its UTF-8 encoding without
+// building a String or a byte array of the whole output first.
+class ChannelOutput {
+    // Buffers filled before each gathering write, 1 MB
+    private static final int GATHER_BUFFERS = 16;
+    // Bytes mapped at a time in memory-mapped mode
+    private static final long MAP_WINDOW = 64L * 1024 * 1024;
+
+    private ChannelOutput() {
+    }
+
+    // Writes the parts one after another. Returns false, leaving the file
+    // to be written again some other way, if a char isn't ASCII.
+    static boolean write(Path file, boolean memoryMapped, OutputBuffer... parts) throws IOException {
+        if (memoryMapped) {
+            return writeMapped(file, parts);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer[] gather = new ByteBuffer[GATHER_BUFFERS];
+            int filled = 0;
+            try {
+                gather[0] = DirectBufferPool.acquire();
+                for (OutputBuffer part : parts) {
+                    for (int i = 0; i < part.chunkCount(); i++) {
+                        char[] chunk = part.chunk(i);
+                        int length = part.chunkFill(i);
+                        int pos = 0;
+                        while (pos < length) {
+                            ByteBuffer buffer = gather[filled];
+                            int count = Math.min(buffer.remaining(), length - pos);
+                            if (!encode(chunk, pos, count, buffer)) {
+                                return false;
+                            }
+                            pos += count;
+                            if (!buffer.hasRemaining()) {
+                                filled++;
+                                if (filled == GATHER_BUFFERS) {
+                                    writeAll(channel, gather, filled);
+                                    filled = 0;
+                                }
+                                else if (gather[filled] == null) {
+                                    gather[filled] = DirectBufferPool.acquire();
+                                }
+                            }
+                        }
+                    }
+                }
+                writeAll(channel, gather, filled + 1);
+                return true;
+            } finally {
+                for (int i = 0; i < GATHER_BUFFERS; i++) {
+                    if (gather[i] != null) {
+                        DirectBufferPool.release(gather[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean encode(char[] chunk, int from, int count, ByteBuffer buffer) {
+        for (int i = from; i < from + count; i++) {
+            char c = chunk[i];
+            if (c >= 0x80) {
+                return false;
+            }
+            buffer.put((byte) c);
+        }
+        return true;
+    }
+
+    // Writes the first count buffers with as few calls as the channel
+    // takes, then leaves them empty for the next ones
+    private static void writeAll(FileChannel channel, ByteBuffer[] gather, int count) throws IOException {
+        long remaining = 0;
+        for (int i = 0; i < count; i++) {
+            remaining += gather[i].flip().remaining();
+        }
+        while (remaining > 0) {
+            remaining -= channel.write(gather, 0, count);
+        }
+        for (int i = 0; i < count; i++) {
+            gather[i].clear();
+        }
+    }
+
+    // Sizes the file for the whole output and fills it through a window
+    // mapped onto it, so the bytes go straight into the page cache
+    private static boolean writeMapped(Path file, OutputBuffer... parts) throws IOException {
+        long size = 0;
+        for (OutputBuffer part : parts) {
+            size += part.length();
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long windowStart = 0;
+            MappedByteBuffer window = null;
+            for (OutputBuffer part : parts) {
+                for (int i = 0; i < part.chunkCount(); i++) {
+                    char[] chunk = part.chunk(i);
+                    int length = part.chunkFill(i);
+                    int pos = 0;
+                    while (pos < length) {
+                        if (window == null || !window.hasRemaining()) {
+                            if (window != null) {
+                                windowStart += window.capacity();
+                            }
+                            window = channel.map(FileChannel.MapMode.READ_WRITE, windowStart,
+                                    Math.min(MAP_WINDOW, size - windowStart));
+                        }
+                        int count = Math.min(window.remaining(), length - pos);
+                        if (!encode(chunk, pos, count, window)) {
+                            return false;
+                        }
+                        pos += count;
+                    }
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package emitter;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Direct byte buffers kept between writes. A direct buffer is written to
+// a channel without being copied again, but is slow to allocate, so the
+// buffers are reused by every Emitter, on whatever thread it runs.
+class DirectBufferPool {
+    static final int BUFFER_SIZE = 64 * 1024;
+    // Enough for a few writes at a time, 4 MB in all
+    private static final int MAX_POOLED = 64;
+
+    private static final ConcurrentLinkedQueue<ByteBuffer> buffers = new ConcurrentLinkedQueue<ByteBuffer>();
+    private static final AtomicInteger pooled = new AtomicInteger();
+
+    private DirectBufferPool() {
+    }
+
+    // An empty buffer of BUFFER_SIZE bytes
+    static ByteBuffer acquire() {
+        ByteBuffer buffer = buffers.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+        pooled.decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    static void release(ByteBuffer buffer) {
+        if (pooled.incrementAndGet() <= MAX_POOLED) {
+            buffers.offer(buffer);
+        } else {
+            pooled.decrementAndGet();
+        }
+    }
+}
@@ -1,48 +1,93 @@
 package emitter;
 
 import java.io.IOException;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
 public class Emitter {
+    private static final String INDENT = "    ";
+    private static final String[] INDENTS = new String[16];
+
+    static {
+        for (int i = 0; i < INDENTS.length; i++) {
+            INDENTS[i] = INDENT.repeat(i);
+        }
+    }
+
     private final String fullPath;
-    private String header;
-    private String code;
-    
+    private final OutputBuffer header;
+    private final OutputBuffer code;
+    private boolean memoryMapped;
+
     public Emitter(String fullPath) {
         this.fullPath = fullPath;
-        this.header = "";
-        this.code = "";
+        this.header = new OutputBuffer();
+        this.code = new OutputBuffer();
+        this.memoryMapped = false;
+    }
+
+    // Has writeFile() fill the file through a memory mapping, which saves
+    // a copy per byte for very large outputs
+    public void setMemoryMapped(boolean memoryMapped) {
+        this.memoryMapped = memoryMapped;
+    }
+
+    private static String indentString(int indents) {
+        if (indents >= 0 && indents < INDENTS.length) {
+            return INDENTS[indents];
+        }
+        return INDENT.repeat(indents);
     }
-    
-    public void emit(String code) {
-        this.code += code;
+
+    public void emit(CharSequence code) {
+        this.code.append(code);
     }
-    
-    public void emitLine(String code) {
-        this.code += code + "\n";
+
+    public void emitLine(CharSequence code) {
+        this.code.append(code).append('\n');
     }
-    
+
+    // Appends the code emitted into another Emitter, such as a fragment built on another thread
+    public void emitCode(Emitter fragment) {
+        this.code.append(fragment.code);
+    }
+
     public void emitIndent(int indents) {
-        this.code += "    ".repeat(indents);
+        this.code.append(indentString(indents));
     }
-    
-    public void headerLine(String code) {
-        this.header += code + "\n";
+
+    public void headerLine(CharSequence code) {
+        this.header.append(code).append('\n');
     }
-    
+
     public void headerIndent(int indents) {
-        this.header += "    ".repeat(indents);
+        this.header.append(indentString(indents));
     }
-    
+
+    // Written from the buffers through a FileChannel, or as UTF-8 text if the
+    // code has non ASCII characters, which a source's strings can give it
     public void writeFile() throws IOException {
         Path outputFile = Paths.get(fullPath);
-        if (this.header.trim().length() == 0) {
-            this.header = this.header.trim();
+        if (this.header.isBlank()) {
+            this.header.clear();
+        }
+        if (ChannelOutput.write(outputFile, this.memoryMapped, this.header, this.code)) {
+            return;
+        }
+        try (Writer writer = Files.newBufferedWriter(outputFile, StandardCharsets.UTF_8)) {
+            this.writeTo(writer);
+        }
+    }
+
+    // Writes what writeFile() would put in the file
+    public void writeTo(Writer writer) throws IOException {
+        if (this.header.isBlank()) {
+            this.header.clear();
         }
-        String outputContents = this.header + this.code;
-        Files.writeString(outputFile, outputContents, StandardCharsets.UTF_8);
+        this.header.writeTo(writer);
+        this.code.writeTo(writer);
     }
 }
@@ -0,0 +1,152 @@
+package emitter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+
+// Append-only text buffer made of fixed size char chunks.
+// Appending never copies what has already been written, so building
+// an output of n characters costs O(n) time and memory.
+public class OutputBuffer implements CharSequence {
+    private static final int CHUNK_SIZE = 8192;
+
+    private final ArrayList<char[]> chunks;
+    private char[] curChunk;
+    private int curFill;
+    private int length;
+
+    public OutputBuffer() {
+        this.chunks = new ArrayList<char[]>();
+        this.clear();
+    }
+
+    public OutputBuffer append(CharSequence text) {
+        int textLength = text.length();
+        int textPos = 0;
+        while (textPos < textLength) {
+            if (this.curFill == CHUNK_SIZE) {
+                this.newChunk();
+            }
+            int count = Math.min(CHUNK_SIZE - this.curFill, textLength - textPos);
+            if (text instanceof String) {
+                ((String) text).getChars(textPos, textPos + count, this.curChunk, this.curFill);
+            }
+            else {
+                for (int i = 0; i < count; i++) {
+                    this.curChunk[this.curFill + i] = text.charAt(textPos + i);
+                }
+            }
+            this.curFill += count;
+            textPos += count;
+        }
+        this.length += textLength;
+        return this;
+    }
+
+    // Appends everything in the other buffer, a chunk at a time
+    public OutputBuffer append(OutputBuffer other) {
+        for (int i = 0; i < other.chunks.size(); i++) {
+            this.append(other.chunks.get(i), other.chunkFill(i));
+        }
+        return this;
+    }
+
+    private void append(char[] text, int textLength) {
+        int textPos = 0;
+        while (textPos < textLength) {
+            if (this.curFill == CHUNK_SIZE) {
+                this.newChunk();
+            }
+            int count = Math.min(CHUNK_SIZE - this.curFill, textLength - textPos);
+            System.arraycopy(text, textPos, this.curChunk, this.curFill, count);
+            this.curFill += count;
+            textPos += count;
+        }
+        this.length += textLength;
+    }
+
+    public OutputBuffer append(char c) {
+        if (this.curFill == CHUNK_SIZE) {
+            this.newChunk();
+        }
+        this.curChunk[this.curFill++] = c;
+        this.length++;
+        return this;
+    }
+
+    private void newChunk() {
+        this.curChunk = new char[CHUNK_SIZE];
+        this.curFill = 0;
+        this.chunks.add(this.curChunk);
+    }
+
+    public void clear() {
+        this.chunks.clear();
+        this.newChunk();
+        this.length = 0;
+    }
+
+    // Same test String.trim() uses: every character is <= ' '
+    public boolean isBlank() {
+        for (int i = 0; i < this.chunks.size(); i++) {
+            char[] chunk = this.chunks.get(i);
+            int fill = this.chunkFill(i);
+            for (int j = 0; j < fill; j++) {
+                if (chunk[j] > ' ') {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public void writeTo(Writer writer) throws IOException {
+        for (int i = 0; i < this.chunks.size(); i++) {
+            writer.write(this.chunks.get(i), 0, this.chunkFill(i));
+        }
+    }
+
+    int chunkCount() {
+        return this.chunks.size();
+    }
+
+    char[] chunk(int chunkIndex) {
+        return this.chunks.get(chunkIndex);
+    }
+
+    // Chars used in the chunk, all of it except in the last one
+    int chunkFill(int chunkIndex) {
+        return chunkIndex == this.chunks.size() - 1 ? this.curFill : CHUNK_SIZE;
+    }
+
+    @Override
+    public int length() {
+        return this.length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= this.length) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return this.chunks.get(index / CHUNK_SIZE)[index % CHUNK_SIZE];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        StringBuilder builder = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            builder.append(this.charAt(i));
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(this.length);
+        for (int i = 0; i < this.chunks.size(); i++) {
+            builder.append(this.chunks.get(i), 0, this.chunkFill(i));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,156 @@
+package generator;
+
+import java.util.Random;
+
+// Builds large valid TeenyTiny programs for stress tests and benchmarks.
+// The same settings and seed always give the same program. The program
+// has exactly the number of statements asked for, counting the LETs
+// declaring the variables, one LABEL and one GOTO per label, IF and WHILE
+// statements and the statements in their blocks.
+public class ProgramGenerator {
+    private static final String[] ARITHMETIC = {" + ", " - ", " * ", " / "};
+    private static final String[] COMPARISON = {" < ", " <= ", " > ", " >= ", " == ", " != "};
+
+    private final int variables;
+    private final int labels;
+    private final int depth;
+    private final int expressionLength;
+    private final long seed;
+
+    // depth is how deep IF and WHILE blocks may nest, 0 for none.
+    // expressionLength is the number of operands in each expression.
+    public ProgramGenerator(int variables, int labels, int depth, int expressionLength, long seed) {
+        if (variables < 1 || labels < 0 || depth < 0 || expressionLength < 1) {
+            throw new IllegalArgumentException("Needs a variable and an operand per expression");
+        }
+        this.variables = variables;
+        this.labels = labels;
+        this.depth = depth;
+        this.expressionLength = expressionLength;
+        this.seed = seed;
+    }
+
+    public String generate(int statements) {
+        if (statements < this.variables + 2 * this.labels) {
+            throw new IllegalArgumentException("Too few statements for " + this.variables
+                    + " variables and " + this.labels + " labels");
+        }
+        Random random = new Random(this.seed);
+        StringBuilder program = new StringBuilder(statements * (16 + 8 * this.expressionLength));
+        for (int i = 0; i < this.variables; i++) {
+            program.append("LET v").append(i).append(" = ").append(i).append('\n');
+        }
+
+        // The 2 * labels LABEL and GOTO statements are spread evenly over the
+        // rest, each GOTO going back to the label just before it
+        int rest = statements - this.variables;
+        long labelStatements = 2L * this.labels;
+        int labelsEmitted = 0;
+        // Closing keyword of each open block, innermost last
+        StringBuilder closing = new StringBuilder();
+        int open = 0;
+        for (int i = 0; i < rest; i++) {
+            this.indent(program, open);
+            long labelStatement = (i + 1) * labelStatements / rest - 1;
+            if (labelStatement == i * labelStatements / rest) {
+                if (labelStatement % 2 == 0) {
+                    program.append("LABEL l").append(labelsEmitted++).append('\n');
+                }
+                else {
+                    program.append("GOTO l").append(labelsEmitted - 1).append('\n');
+                }
+            }
+            else if (open < this.depth && i < rest - 1 && random.nextInt(4) == 0) {
+                boolean isWhile = random.nextBoolean();
+                program.append(isWhile ? "WHILE " : "IF ");
+                this.comparison(program, random);
+                program.append(isWhile ? " REPEAT\n" : " THEN\n");
+                closing.append(isWhile ? 'W' : 'I');
+                open++;
+                continue;
+            }
+            else {
+                this.simpleStatement(program, random, i);
+            }
+            while (open > 0 && random.nextInt(3) == 0) {
+                open = this.close(program, closing, open);
+            }
+        }
+        while (open > 0) {
+            open = this.close(program, closing, open);
+        }
+        return program.toString();
+    }
+
+    private int close(StringBuilder program, StringBuilder closing, int open) {
+        open--;
+        this.indent(program, open);
+        program.append(closing.charAt(open) == 'W' ? "ENDWHILE\n" : "ENDIF\n");
+        closing.setLength(open);
+        return open;
+    }
+
+    private void indent(StringBuilder program, int open) {
+        for (int i = 0; i < open; i++) {
+            program.append("    ");
+        }
+    }
+
+    private void simpleStatement(StringBuilder program, Random random, int index) {
+        switch (random.nextInt(4)) {
+            case 0, 1 -> {
+                program.append("LET ");
+                this.variable(program, random);
+                program.append(" = ");
+                this.expression(program, random, this.expressionLength);
+            }
+            case 2 -> {
+                program.append("PRINT ");
+                this.expression(program, random, this.expressionLength);
+            }
+            default -> program.append("PRINT \"statement ").append(index).append('\"');
+        }
+        program.append('\n');
+    }
+
+    private void comparison(StringBuilder program, Random random) {
+        int sideLength = Math.max(1, this.expressionLength / 2);
+        this.expression(program, random, sideLength);
+        program.append(COMPARISON[random.nextInt(COMPARISON.length)]);
+        this.expression(program, random, sideLength);
+    }
+
+    // operands operands joined by arithmetic operators, some pairs in parentheses
+    private void expression(StringBuilder program, Random random, int operands) {
+        for (int i = 0; i < operands; i++) {
+            if (i > 0) {
+                program.append(ARITHMETIC[random.nextInt(ARITHMETIC.length)]);
+            }
+            if (i + 1 < operands && random.nextInt(5) == 0) {
+                program.append('(');
+                this.operand(program, random);
+                program.append(ARITHMETIC[random.nextInt(2)]);
+                this.operand(program, random);
+                program.append(')');
+                i++;
+            }
+            else {
+                this.operand(program, random);
+            }
+        }
+    }
+
+    private void operand(StringBuilder program, Random random) {
+        if (random.nextInt(3) == 0) {
+            // Never 0, so nothing is divided by a constant 0
+            program.append(1 + random.nextInt(9));
+        }
+        else {
+            this.variable(program, random);
+        }
+    }
+
+    private void variable(StringBuilder program, Random random) {
+        program.append('v').append(random.nextInt(this.variables));
+    }
+}
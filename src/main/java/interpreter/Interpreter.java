@@ -0,0 +1,216 @@
+package interpreter;
+
+import ast.*;
+import diagnostic.RunException;
+import runtime.ProgramIO;
+import token.TokenType;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Runs a parsed program without generating C. The statements are
+// flattened into a list of instructions with IF, WHILE and GOTO as jumps
+// to instruction indexes, and each expression into a tree of Values that
+// read variables from float slots indexed by symbol id.
+public class Interpreter {
+    private static final int PRINT_STRING = 0;
+    private static final int PRINT = 1;
+    private static final int INPUT = 2;
+    private static final int LET = 3;
+    private static final int JUMP = 4;
+    private static final int JUMP_IF_FALSE = 5;
+
+    private final int variables;
+    private final List<Instruction> code;
+    private final Map<String, Integer> labels;
+    private final List<Instruction> gotos;
+
+    // An expression evaluated to a value of its C type, held in a double
+    @FunctionalInterface
+    interface Value {
+        double evaluate(float[] variables);
+    }
+
+    private static class Instruction {
+        private final int op;
+        private final int slot;
+        private final Value value;
+        private final String text;
+        private int target;
+
+        Instruction(int op, int slot, Value value, String text) {
+            this.op = op;
+            this.slot = slot;
+            this.value = value;
+            this.text = text;
+            this.target = -1;
+        }
+    }
+
+    public Interpreter(Program program) {
+        this.variables = program.getVariables().size();
+        this.code = new ArrayList<Instruction>();
+        this.labels = new HashMap<String, Integer>();
+        this.gotos = new ArrayList<Instruction>();
+
+        this.statements(program.getStatements());
+        for (Instruction instruction : this.gotos) {
+            instruction.target = this.labels.get(instruction.text);
+        }
+    }
+
+    public void run(ProgramIO io) throws IOException {
+        Instruction[] code = this.code.toArray(new Instruction[0]);
+        float[] variables = new float[this.variables];
+        try {
+            int pc = 0;
+            while (pc < code.length) {
+                Instruction instruction = code[pc++];
+                switch (instruction.op) {
+                    case PRINT_STRING -> io.printString(instruction.text);
+                    case PRINT -> io.printNumber((float) instruction.value.evaluate(variables));
+                    case INPUT -> variables[instruction.slot] = io.input(variables[instruction.slot]);
+                    case LET -> variables[instruction.slot] = (float) instruction.value.evaluate(variables);
+                    case JUMP -> pc = instruction.target;
+                    case JUMP_IF_FALSE -> {
+                        if (instruction.value.evaluate(variables) == 0) {
+                            pc = instruction.target;
+                        }
+                    }
+                }
+            }
+        }
+        finally {
+            io.flush();
+        }
+    }
+
+    private Instruction add(int op, int slot, Value value, String text) {
+        Instruction instruction = new Instruction(op, slot, value, text);
+        this.code.add(instruction);
+        return instruction;
+    }
+
+    private void statements(List<Statement> statements) {
+        for (Statement statement : statements) {
+            this.statement(statement);
+        }
+    }
+
+    private void statement(Statement statement) {
+        if (statement instanceof PrintStringStatement print) {
+            this.add(PRINT_STRING, -1, null, print.getText());
+        }
+        else if (statement instanceof PrintStatement print) {
+            this.add(PRINT, -1, value(print.getExpression()), null);
+        }
+        else if (statement instanceof InputStatement input) {
+            this.add(INPUT, input.getVariable().getSymbolId(), null, null);
+        }
+        else if (statement instanceof LetStatement let) {
+            this.add(LET, let.getVariable().getSymbolId(), value(let.getExpression()), null);
+        }
+        else if (statement instanceof IfStatement ifStatement) {
+            Instruction skip = this.add(JUMP_IF_FALSE, -1, value(ifStatement.getCondition()), null);
+            this.statements(ifStatement.getBody());
+            skip.target = this.code.size();
+        }
+        else if (statement instanceof WhileStatement whileStatement) {
+            int top = this.code.size();
+            Instruction exit = this.add(JUMP_IF_FALSE, -1, value(whileStatement.getCondition()), null);
+            this.statements(whileStatement.getBody());
+            this.add(JUMP, -1, null, null).target = top;
+            exit.target = this.code.size();
+        }
+        else if (statement instanceof LabelStatement label) {
+            this.labels.put(label.getName(), this.code.size());
+        }
+        else if (statement instanceof GotoStatement gotoStatement) {
+            this.gotos.add(this.add(JUMP, -1, null, gotoStatement.getLabel()));
+        }
+    }
+
+    static Value value(Expression expression) {
+        if (expression instanceof NumberLiteral number) {
+            double constant = CArithmetic.convert(number.getValue(), number.getType());
+            return variables -> constant;
+        }
+        else if (expression instanceof VariableExpression variable) {
+            int slot = variable.getSymbolId();
+            return variables -> variables[slot];
+        }
+        else if (expression instanceof GroupExpression group) {
+            return value(group.getInner());
+        }
+        else if (expression instanceof UnaryExpression unary) {
+            Value operand = value(unary.getOperand());
+            return switch (unary.getOperator()) {
+                case MINUS -> unary.getType() == CType.INT
+                        ? variables -> -(int) operand.evaluate(variables)
+                        : variables -> -operand.evaluate(variables);
+                case NOT -> variables -> operand.evaluate(variables) == 0 ? 1 : 0;
+                default -> operand;
+            };
+        }
+        BinaryExpression binary = (BinaryExpression) expression;
+        CType type = binary.getOperandType();
+        Value left = convert(value(binary.getLeft()), binary.getLeft().getType(), type);
+        Value right = convert(value(binary.getRight()), binary.getRight().getType(), type);
+        if (binary.isArithmetic()) {
+            return arithmetic(binary.getOperator(), type, left, right);
+        }
+        return switch (binary.getOperator()) {
+            case EQEQ -> variables -> left.evaluate(variables) == right.evaluate(variables) ? 1 : 0;
+            case NOTEQ -> variables -> left.evaluate(variables) != right.evaluate(variables) ? 1 : 0;
+            case LT -> variables -> left.evaluate(variables) < right.evaluate(variables) ? 1 : 0;
+            case LTEQ -> variables -> left.evaluate(variables) <= right.evaluate(variables) ? 1 : 0;
+            case GT -> variables -> left.evaluate(variables) > right.evaluate(variables) ? 1 : 0;
+            case GTEQ -> variables -> left.evaluate(variables) >= right.evaluate(variables) ? 1 : 0;
+            case AND -> variables -> left.evaluate(variables) != 0 && right.evaluate(variables) != 0 ? 1 : 0;
+            case OR -> variables -> left.evaluate(variables) != 0 || right.evaluate(variables) != 0 ? 1 : 0;
+            default -> throw new IllegalArgumentException("Not a binary operator: " + binary.getOperator());
+        };
+    }
+
+    // Ints become floats in float arithmetic; everything else converts exactly
+    private static Value convert(Value value, CType from, CType to) {
+        if (from == CType.INT && to == CType.FLOAT) {
+            return variables -> (float) value.evaluate(variables);
+        }
+        return value;
+    }
+
+    private static Value arithmetic(TokenType operator, CType type, Value left, Value right) {
+        if (type == CType.INT) {
+            return switch (operator) {
+                case PLUS -> variables -> (int) left.evaluate(variables) + (int) right.evaluate(variables);
+                case MINUS -> variables -> (int) left.evaluate(variables) - (int) right.evaluate(variables);
+                case ASTERISK -> variables -> (int) left.evaluate(variables) * (int) right.evaluate(variables);
+                default -> variables -> {
+                    int divisor = (int) right.evaluate(variables);
+                    if (divisor == 0) {
+                        throw new RunException("Runtime error. Integer division by zero");
+                    }
+                    return (int) left.evaluate(variables) / divisor;
+                };
+            };
+        }
+        if (type == CType.FLOAT) {
+            return switch (operator) {
+                case PLUS -> variables -> (float) (left.evaluate(variables) + right.evaluate(variables));
+                case MINUS -> variables -> (float) (left.evaluate(variables) - right.evaluate(variables));
+                case ASTERISK -> variables -> (float) (left.evaluate(variables) * right.evaluate(variables));
+                default -> variables -> (float) (left.evaluate(variables) / right.evaluate(variables));
+            };
+        }
+        return switch (operator) {
+            case PLUS -> variables -> left.evaluate(variables) + right.evaluate(variables);
+            case MINUS -> variables -> left.evaluate(variables) - right.evaluate(variables);
+            case ASTERISK -> variables -> left.evaluate(variables) * right.evaluate(variables);
+            default -> variables -> left.evaluate(variables) / right.evaluate(variables);
+        };
+    }
+}
@@ -0,0 +1,392 @@
+package jvm;
+
+import ast.*;
+import diagnostic.CompileException;
+import token.TokenType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Writes a program as a JVM class with one method,
+//     public static void run(runtime.ProgramIO io)
+// Variables are float locals, IF and WHILE are conditional branches and
+// GOTO is a goto. The class file is version 49, which is verified without
+// stack map frames, so jumps can go anywhere a GOTO can.
+public class ClassGenerator {
+    public static final String CLASS_NAME = "jvm/CompiledProgram";
+    private static final String IO = "runtime/ProgramIO";
+
+    private static final int ICONST_0 = 0x03;
+    private static final int FCONST_0 = 0x0b;
+    private static final int DCONST_0 = 0x0e;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC = 0x12;
+    private static final int LDC_W = 0x13;
+    private static final int LDC2_W = 0x14;
+    private static final int FLOAD = 0x17;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int FSTORE = 0x38;
+    private static final int IADD = 0x60;
+    private static final int INEG = 0x74;
+    private static final int FNEG = 0x76;
+    private static final int DNEG = 0x77;
+    private static final int I2F = 0x86;
+    private static final int I2D = 0x87;
+    private static final int F2D = 0x8d;
+    private static final int D2F = 0x90;
+    private static final int FCMPL = 0x95;
+    private static final int FCMPG = 0x96;
+    private static final int DCMPL = 0x97;
+    private static final int DCMPG = 0x98;
+    private static final int IFEQ = 0x99;
+    private static final int IFNE = 0x9a;
+    private static final int IFLT = 0x9b;
+    private static final int IFGE = 0x9c;
+    private static final int IFGT = 0x9d;
+    private static final int IFLE = 0x9e;
+    private static final int IF_ICMPEQ = 0x9f;
+    private static final int IF_ICMPNE = 0xa0;
+    private static final int IF_ICMPLT = 0xa1;
+    private static final int IF_ICMPGE = 0xa2;
+    private static final int IF_ICMPGT = 0xa3;
+    private static final int IF_ICMPLE = 0xa4;
+    private static final int GOTO = 0xa7;
+    private static final int RETURN = 0xb1;
+    private static final int INVOKEVIRTUAL = 0xb6;
+    private static final int WIDE = 0xc4;
+
+    private final ConstantPool constants;
+    private final Code code;
+    private final Map<String, Code.Label> labels;
+
+    private ClassGenerator() {
+        this.constants = new ConstantPool();
+        this.code = new Code();
+        this.labels = new HashMap<String, Code.Label>();
+    }
+
+    public static byte[] generate(Program program) {
+        return new ClassGenerator().classFile(program);
+    }
+
+    private byte[] classFile(Program program) {
+        int variables = program.getVariables().size();
+        if (variables >= 0xFFFF) {
+            throw new CompileException("JVM backend error. Too many variables: " + variables);
+        }
+        // Locals start at 0 so every path through a GOTO reads a value
+        for (int i = 0; i < variables; i++) {
+            this.code.op(FCONST_0, 1);
+            this.store(i);
+        }
+        this.statements(program.getStatements());
+        this.code.op(RETURN, 0);
+        if (this.code.length() > Code.MAX_LENGTH) {
+            throw new CompileException("JVM backend error. Program too large for one method");
+        }
+
+        int thisClass = this.constants.classRef(CLASS_NAME);
+        int superClass = this.constants.classRef("java/lang/Object");
+        int name = this.constants.utf8("run");
+        int descriptor = this.constants.utf8("(L" + IO + ";)V");
+        int codeAttribute = this.constants.utf8("Code");
+        byte[] bytecode = this.code.toByteArray();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(bytecode.length + 512);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(49);
+            this.constants.write(out);
+            // public final super
+            out.writeShort(0x0031);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0);
+            out.writeShort(0);
+
+            out.writeShort(1);
+            // public static
+            out.writeShort(0x0009);
+            out.writeShort(name);
+            out.writeShort(descriptor);
+            out.writeShort(1);
+            out.writeShort(codeAttribute);
+            out.writeInt(12 + bytecode.length);
+            out.writeShort(this.code.maxStack());
+            out.writeShort(variables + 1);
+            out.writeInt(bytecode.length);
+            out.write(bytecode);
+            out.writeShort(0);
+            out.writeShort(0);
+
+            out.writeShort(0);
+        }
+        catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    // Local 0 is the ProgramIO, variables follow
+    private void load(int symbolId) {
+        this.local(FLOAD, 1, symbolId + 1);
+    }
+
+    private void store(int symbolId) {
+        this.local(FSTORE, -1, symbolId + 1);
+    }
+
+    private void local(int opcode, int stackChange, int index) {
+        if (index < 256) {
+            this.code.op(opcode, stackChange, index);
+        } else {
+            this.code.op(WIDE, 0);
+            this.code.opWide(opcode, stackChange, index);
+        }
+    }
+
+    private void invoke(String name, String descriptor, int stackChange) {
+        this.code.opWide(INVOKEVIRTUAL, stackChange, this.constants.methodRef(IO, name, descriptor));
+    }
+
+    private Code.Label label(String name) {
+        return this.labels.computeIfAbsent(name, key -> new Code.Label());
+    }
+
+    private void statements(List<Statement> statements) {
+        for (Statement statement : statements) {
+            this.statement(statement);
+        }
+    }
+
+    private void statement(Statement statement) {
+        if (statement instanceof PrintStringStatement print) {
+            this.code.op(ALOAD_0, 1);
+            this.constant(LDC, LDC_W, this.constants.string(print.getText()));
+            this.invoke("printString", "(Ljava/lang/String;)V", -2);
+        }
+        else if (statement instanceof PrintStatement print) {
+            this.code.op(ALOAD_0, 1);
+            this.convert(this.expression(print.getExpression()), CType.FLOAT);
+            this.invoke("printNumber", "(F)V", -2);
+        }
+        else if (statement instanceof InputStatement input) {
+            int symbolId = input.getVariable().getSymbolId();
+            this.code.op(ALOAD_0, 1);
+            this.load(symbolId);
+            this.invoke("input", "(F)F", -1);
+            this.store(symbolId);
+        }
+        else if (statement instanceof LetStatement let) {
+            this.convert(this.expression(let.getExpression()), CType.FLOAT);
+            this.store(let.getVariable().getSymbolId());
+        }
+        else if (statement instanceof IfStatement ifStatement) {
+            Code.Label end = new Code.Label();
+            this.jumpIfFalse(ifStatement.getCondition(), end);
+            this.statements(ifStatement.getBody());
+            this.code.place(end);
+        }
+        else if (statement instanceof WhileStatement whileStatement) {
+            Code.Label top = new Code.Label();
+            Code.Label end = new Code.Label();
+            this.code.place(top);
+            this.jumpIfFalse(whileStatement.getCondition(), end);
+            this.statements(whileStatement.getBody());
+            this.code.jump(GOTO, 0, top);
+            this.code.place(end);
+        }
+        else if (statement instanceof LabelStatement label) {
+            this.code.place(this.label(label.getName()));
+        }
+        else if (statement instanceof GotoStatement gotoStatement) {
+            this.code.jump(GOTO, 0, this.label(gotoStatement.getLabel()));
+        }
+    }
+
+    private void jumpIfFalse(Expression condition, Code.Label target) {
+        this.jumpIfZero(this.expression(condition), target);
+    }
+
+    // Pops a value of the given type and jumps if it is zero
+    private void jumpIfZero(CType type, Code.Label target) {
+        if (type == CType.FLOAT) {
+            this.code.op(FCONST_0, 1);
+            this.code.op(FCMPL, -1);
+        }
+        else if (type == CType.DOUBLE) {
+            this.code.op(DCONST_0, 2);
+            this.code.op(DCMPL, -3);
+        }
+        this.code.jump(IFEQ, -1, target);
+    }
+
+    private void constant(int opcode, int wideOpcode, int index) {
+        if (index < 256) {
+            this.code.op(opcode, 1, index);
+        } else {
+            this.code.opWide(wideOpcode, 1, index);
+        }
+    }
+
+    private void pushInt(int value) {
+        if (value >= -1 && value <= 5) {
+            this.code.op(ICONST_0 + value, 1);
+        }
+        else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            this.code.op(BIPUSH, 1, value);
+        }
+        else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            this.code.opWide(SIPUSH, 1, value);
+        }
+        else {
+            this.constant(LDC, LDC_W, this.constants.integer(value));
+        }
+    }
+
+    private static int size(CType type) {
+        return type == CType.DOUBLE ? 2 : 1;
+    }
+
+    private void convert(CType from, CType to) {
+        if (from == to) {
+            return;
+        }
+        if (from == CType.INT) {
+            this.code.op(to == CType.FLOAT ? I2F : I2D, size(to) - 1);
+        }
+        else if (from == CType.FLOAT) {
+            this.code.op(F2D, 1);
+        }
+        else {
+            this.code.op(D2F, -1);
+        }
+    }
+
+    // Leaves the value on the stack and returns its type
+    private CType expression(Expression expression) {
+        if (expression instanceof NumberLiteral number) {
+            switch (number.getType()) {
+                case INT -> this.pushInt((int) number.getValue());
+                case FLOAT -> this.constant(LDC, LDC_W, this.constants.floatConstant((float) number.getValue()));
+                case DOUBLE -> {
+                    this.code.opWide(LDC2_W, 2, this.constants.doubleConstant(number.getValue()));
+                }
+            }
+            return number.getType();
+        }
+        else if (expression instanceof VariableExpression variable) {
+            this.load(variable.getSymbolId());
+            return CType.FLOAT;
+        }
+        else if (expression instanceof GroupExpression group) {
+            return this.expression(group.getInner());
+        }
+        else if (expression instanceof UnaryExpression unary) {
+            if (unary.getOperator() == TokenType.NOT) {
+                Code.Label isZero = new Code.Label();
+                this.jumpIfZero(this.expression(unary.getOperand()), isZero);
+                this.bool(isZero, false);
+                return CType.INT;
+            }
+            CType type = this.expression(unary.getOperand());
+            if (unary.getOperator() == TokenType.MINUS) {
+                this.code.op(type == CType.INT ? INEG : type == CType.FLOAT ? FNEG : DNEG, 0);
+            }
+            return type;
+        }
+
+        BinaryExpression binary = (BinaryExpression) expression;
+        TokenType operator = binary.getOperator();
+        if (operator == TokenType.AND || operator == TokenType.OR) {
+            // Short circuit like C: the right side only runs when the left doesn't decide
+            Code.Label isFalse = new Code.Label();
+            if (operator == TokenType.AND) {
+                this.jumpIfZero(this.expression(binary.getLeft()), isFalse);
+                this.jumpIfZero(this.expression(binary.getRight()), isFalse);
+                this.bool(isFalse, true);
+            } else {
+                Code.Label isTrue = new Code.Label();
+                Code.Label end = new Code.Label();
+                this.jumpIfZero(this.expression(binary.getLeft()), isFalse);
+                this.code.jump(GOTO, 0, isTrue);
+                this.code.place(isFalse);
+                Code.Label bothFalse = new Code.Label();
+                this.jumpIfZero(this.expression(binary.getRight()), bothFalse);
+                this.code.place(isTrue);
+                this.pushInt(1);
+                this.code.jump(GOTO, 0, end);
+                this.code.adjustStack(-1);
+                this.code.place(bothFalse);
+                this.pushInt(0);
+                this.code.place(end);
+            }
+            return CType.INT;
+        }
+
+        CType type = binary.getOperandType();
+        this.convert(this.expression(binary.getLeft()), type);
+        this.convert(this.expression(binary.getRight()), type);
+        if (binary.isArithmetic()) {
+            int index = switch (operator) {
+                case PLUS -> 0;
+                case MINUS -> 1;
+                case ASTERISK -> 2;
+                default -> 3;
+            };
+            int typeOffset = type == CType.INT ? 0 : type == CType.FLOAT ? 2 : 3;
+            // iadd, isub, imul and idiv are 4 opcodes apart with the float and double forms in between
+            this.code.op(IADD + index * 4 + typeOffset, -size(type));
+            return type;
+        }
+
+        Code.Label isFalse = new Code.Label();
+        if (type == CType.INT) {
+            int jump = switch (operator) {
+                case EQEQ -> IF_ICMPNE;
+                case NOTEQ -> IF_ICMPEQ;
+                case LT -> IF_ICMPGE;
+                case LTEQ -> IF_ICMPGT;
+                case GT -> IF_ICMPLE;
+                default -> IF_ICMPLT;
+            };
+            this.code.jump(jump, -2, isFalse);
+        } else {
+            // NaN compares false: fcmpg gives 1 for "<" tests, fcmpl gives -1 for ">" tests
+            boolean less = operator == TokenType.LT || operator == TokenType.LTEQ;
+            if (type == CType.FLOAT) {
+                this.code.op(less ? FCMPG : FCMPL, -1);
+            } else {
+                this.code.op(less ? DCMPG : DCMPL, -3);
+            }
+            int jump = switch (operator) {
+                case EQEQ -> IFNE;
+                case NOTEQ -> IFEQ;
+                case LT -> IFGE;
+                case LTEQ -> IFGT;
+                case GT -> IFLE;
+                default -> IFLT;
+            };
+            this.code.jump(jump, -1, isFalse);
+        }
+        this.bool(isFalse, true);
+        return CType.INT;
+    }
+
+    // Pushes the given value, or its opposite when jumped to from the label
+    private void bool(Code.Label jumpedTo, boolean value) {
+        Code.Label end = new Code.Label();
+        this.pushInt(value ? 1 : 0);
+        this.code.jump(GOTO, 0, end);
+        this.code.adjustStack(-1);
+        this.code.place(jumpedTo);
+        this.pushInt(value ? 0 : 1);
+        this.code.place(end);
+    }
+}
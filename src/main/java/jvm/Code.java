@@ -0,0 +1,104 @@
+package jvm;
+
+import java.util.Arrays;
+
+// Bytecode of one method, with forward jumps patched when their label is
+// placed and the operand stack depth tracked for max_stack
+class Code {
+    // Branch offsets are signed 16 bit, which also keeps the method under the 64K limit
+    static final int MAX_LENGTH = Short.MAX_VALUE;
+
+    private byte[] bytes;
+    private int length;
+    private int stack;
+    private int maxStack;
+
+    static class Label {
+        private int offset;
+        private int[] jumps;
+        private int jumpCount;
+
+        Label() {
+            this.offset = -1;
+            this.jumps = new int[2];
+            this.jumpCount = 0;
+        }
+    }
+
+    Code() {
+        this.bytes = new byte[256];
+        this.length = 0;
+        this.stack = 0;
+        this.maxStack = 0;
+    }
+
+    private void u1(int value) {
+        if (this.length == this.bytes.length) {
+            this.bytes = Arrays.copyOf(this.bytes, this.bytes.length * 2);
+        }
+        this.bytes[this.length++] = (byte) value;
+    }
+
+    void u2(int value) {
+        this.u1(value >> 8);
+        this.u1(value);
+    }
+
+    void op(int opcode, int stackChange) {
+        this.u1(opcode);
+        this.adjustStack(stackChange);
+    }
+
+    void op(int opcode, int stackChange, int operand) {
+        this.op(opcode, stackChange);
+        this.u1(operand);
+    }
+
+    void opWide(int opcode, int stackChange, int operand) {
+        this.op(opcode, stackChange);
+        this.u2(operand);
+    }
+
+    // For code after an unconditional jump, where the depth is that of the jump's target
+    void adjustStack(int stackChange) {
+        this.stack += stackChange;
+        this.maxStack = Math.max(this.maxStack, this.stack);
+    }
+
+    void jump(int opcode, int stackChange, Label label) {
+        int at = this.length;
+        this.op(opcode, stackChange);
+        if (label.offset >= 0) {
+            this.u2(label.offset - at);
+        } else {
+            if (label.jumpCount == label.jumps.length) {
+                label.jumps = Arrays.copyOf(label.jumps, label.jumpCount * 2);
+            }
+            label.jumps[label.jumpCount++] = at;
+            this.u2(0);
+        }
+    }
+
+    void place(Label label) {
+        label.offset = this.length;
+        for (int i = 0; i < label.jumpCount; i++) {
+            int at = label.jumps[i];
+            int offset = label.offset - at;
+            this.bytes[at + 1] = (byte) (offset >> 8);
+            this.bytes[at + 2] = (byte) offset;
+        }
+        label.jumpCount = 0;
+    }
+
+    int length() {
+        return this.length;
+    }
+
+    int maxStack() {
+        return this.maxStack;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(this.bytes, this.length);
+    }
+}
@@ -0,0 +1,95 @@
+package jvm;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Class file constant pool. Each entry is added once and referred to by index.
+class ConstantPool {
+    private static final int UTF8 = 1;
+    private static final int INTEGER = 3;
+    private static final int FLOAT = 4;
+    private static final int DOUBLE = 6;
+    private static final int CLASS = 7;
+    private static final int STRING = 8;
+    private static final int METHODREF = 10;
+    private static final int NAME_AND_TYPE = 12;
+
+    private final List<Object[]> entries;
+    private final Map<String, Integer> indexes;
+    private int count;
+
+    ConstantPool() {
+        this.entries = new ArrayList<Object[]>();
+        this.indexes = new HashMap<String, Integer>();
+        // Index 0 is unused
+        this.count = 1;
+    }
+
+    private int add(String key, int size, Object... entry) {
+        Integer index = this.indexes.get(key);
+        if (index == null) {
+            index = this.count;
+            this.count += size;
+            if (this.count > 0xFFFF) {
+                throw new IllegalStateException("Too many constants for one class");
+            }
+            this.entries.add(entry);
+            this.indexes.put(key, index);
+        }
+        return index;
+    }
+
+    int utf8(String text) {
+        return this.add("U" + text, 1, UTF8, text);
+    }
+
+    int classRef(String internalName) {
+        return this.add("C" + internalName, 1, CLASS, this.utf8(internalName));
+    }
+
+    int string(String text) {
+        return this.add("S" + text, 1, STRING, this.utf8(text));
+    }
+
+    int integer(int value) {
+        return this.add("I" + value, 1, INTEGER, value);
+    }
+
+    int floatConstant(float value) {
+        return this.add("F" + Float.floatToRawIntBits(value), 1, FLOAT, value);
+    }
+
+    // Doubles take two indexes
+    int doubleConstant(double value) {
+        return this.add("D" + Double.doubleToRawLongBits(value), 2, DOUBLE, value);
+    }
+
+    int methodRef(String owner, String name, String descriptor) {
+        int nameAndType = this.add("N" + name + " " + descriptor, 1, NAME_AND_TYPE,
+                this.utf8(name), this.utf8(descriptor));
+        return this.add("M" + owner + "." + name + descriptor, 1, METHODREF, this.classRef(owner), nameAndType);
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeShort(this.count);
+        for (Object[] entry : this.entries) {
+            int tag = (Integer) entry[0];
+            out.writeByte(tag);
+            switch (tag) {
+                case UTF8 -> out.writeUTF((String) entry[1]);
+                case INTEGER -> out.writeInt((Integer) entry[1]);
+                case FLOAT -> out.writeFloat((Float) entry[1]);
+                case DOUBLE -> out.writeDouble((Double) entry[1]);
+                case CLASS, STRING -> out.writeShort((Integer) entry[1]);
+                default -> {
+                    out.writeShort((Integer) entry[1]);
+                    out.writeShort((Integer) entry[2]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package jvm;
+
+import ast.Program;
+import diagnostic.RunException;
+import runtime.ProgramIO;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+// A program compiled to a JVM class. The class is defined as a hidden
+// class, so it has no name other classes can see and is unloaded once
+// the JvmProgram is no longer used.
+public class JvmProgram {
+    private final MethodHandle run;
+
+    private JvmProgram(MethodHandle run) {
+        this.run = run;
+    }
+
+    public static JvmProgram compile(Program program) {
+        byte[] classFile = ClassGenerator.generate(program);
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(classFile, true);
+            MethodHandle run = lookup.findStatic(lookup.lookupClass(), "run",
+                    MethodType.methodType(void.class, ProgramIO.class));
+            return new JvmProgram(run);
+        }
+        catch (IllegalAccessException | NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public void run(ProgramIO io) throws IOException {
+        try {
+            this.run.invokeExact(io);
+        }
+        catch (ArithmeticException e) {
+            throw new RunException("Runtime error. Integer division by zero");
+        }
+        catch (IOException | RuntimeException | Error e) {
+            throw e;
+        }
+        catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+        finally {
+            io.flush();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package lexer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Read only CharSequence view over ASCII bytes, each byte is one char.
+// Used to lex a memory-mapped file without decoding it into a String.
+public class AsciiCharSequence implements CharSequence {
+    private final ByteBuffer bytes;
+    private final int offset;
+    private final int length;
+    private final boolean trailingNewline;
+
+    private AsciiCharSequence(ByteBuffer bytes, int offset, int length, boolean trailingNewline) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+        this.trailingNewline = trailingNewline;
+    }
+
+    public AsciiCharSequence(ByteBuffer bytes) {
+        this(bytes, bytes.position(), bytes.remaining(), false);
+    }
+
+    // Maps a source file into memory. Like Main.readFromFile, a line break is
+    // added at the end if the file doesn't end in one. Files with non ASCII
+    // characters are decoded as UTF-8 instead.
+    public static CharSequence map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return "";
+            }
+            if (size >= Integer.MAX_VALUE) {
+                throw new IOException("Source file too large: " + path);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return source(mapped);
+        }
+    }
+
+    // Source text from bytes already read, with a line break added at the
+    // end like map(). Used where a file may change while it is being read,
+    // which a mapped file doesn't survive.
+    public static CharSequence source(ByteBuffer bytes) {
+        int size = bytes.remaining();
+        if (size == 0) {
+            return "";
+        }
+        boolean endsInNewline = bytes.get(bytes.position() + size - 1) == '\n';
+        if (isAscii(bytes)) {
+            return new AsciiCharSequence(bytes, bytes.position(), size, !endsInNewline);
+        }
+        CharBuffer decoded = StandardCharsets.UTF_8.decode(bytes.duplicate());
+        if (endsInNewline) {
+            return decoded;
+        }
+        CharBuffer withNewline = CharBuffer.allocate(decoded.remaining() + 1);
+        withNewline.put(decoded).put('\n').flip();
+        return withNewline;
+    }
+
+    private static boolean isAscii(ByteBuffer bytes) {
+        int limit = bytes.limit();
+        for (int i = bytes.position(); i < limit; i++) {
+            if (bytes.get(i) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int length() {
+        return this.trailingNewline ? this.length + 1 : this.length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index == this.length && this.trailingNewline) {
+            return '\n';
+        }
+        if (index < 0 || index >= this.length) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return (char) this.bytes.get(this.offset + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > this.length() || start > end) {
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + this.length());
+        }
+        if (end > this.length) {
+            return this.subSequence(start, this.length) + "\n";
+        }
+        return new AsciiCharSequence(this.bytes, this.offset + start, end - start, false);
+    }
+
+    @Override
+    public String toString() {
+        byte[] text = new byte[this.length];
+        this.bytes.get(this.offset, text);
+        String asString = new String(text, StandardCharsets.US_ASCII);
+        return this.trailingNewline ? asString + "\n" : asString;
+    }
+}
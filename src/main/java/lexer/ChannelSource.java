@@ -0,0 +1,148 @@
+package lexer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+// Decodes a channel into a sliding window of characters. Only the
+// characters from the last released position onwards are kept, so the
+// window stays at its initial size unless a single token is longer.
+// Like Main.readFromFile, a line break is added at the end of the
+// input if it doesn't already end in one.
+class ChannelSource implements SourceText {
+    private final ReadableByteChannel channel;
+    private final CharsetDecoder decoder;
+    private final ByteBuffer bytes;
+
+    private char[] window;
+    private int windowStart;
+    private int filled;
+    private int released;
+
+    private boolean endOfInput;
+    private boolean emptyInput;
+    private char lastChar;
+
+    ChannelSource(ReadableByteChannel channel, int windowSize) {
+        this.channel = channel;
+        this.decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.bytes = ByteBuffer.allocate(Math.max(windowSize, 16));
+        this.bytes.flip();
+
+        this.window = new char[Math.max(windowSize, 16)];
+        this.windowStart = 0;
+        this.filled = 0;
+        this.released = 0;
+
+        this.endOfInput = false;
+        this.emptyInput = true;
+        this.lastChar = '\0';
+    }
+
+    @Override
+    public char charAt(int pos) {
+        if (pos < this.windowStart) {
+            throw new IllegalStateException("Position " + pos + " has already been released");
+        }
+        while (pos >= this.windowStart + this.filled) {
+            if (this.endOfInput) {
+                return '\0';
+            }
+            this.fill();
+        }
+        return this.window[pos - this.windowStart];
+    }
+
+    @Override
+    public String text(int startPos, int endPos) {
+        // Make sure the whole range is inside the window
+        this.charAt(endPos - 1);
+        return new String(this.window, startPos - this.windowStart, endPos - startPos);
+    }
+
+    @Override
+    public void release(int pos) {
+        this.released = Math.max(this.released, pos);
+    }
+
+    private void makeRoom() {
+        // Keep space for at least a surrogate pair
+        if (this.window.length - this.filled >= 2) {
+            return;
+        }
+        int discard = Math.min(this.released, this.windowStart + this.filled) - this.windowStart;
+        if (discard > 0) {
+            System.arraycopy(this.window, discard, this.window, 0, this.filled - discard);
+            this.windowStart += discard;
+            this.filled -= discard;
+        }
+        if (this.window.length - this.filled < 2) {
+            char[] grown = new char[this.window.length * 2];
+            System.arraycopy(this.window, 0, grown, 0, this.filled);
+            this.window = grown;
+        }
+    }
+
+    private void fill() {
+        try {
+            this.bytes.compact();
+            boolean channelEnded = this.channel.read(this.bytes) < 0;
+            this.bytes.flip();
+
+            if (!channelEnded) {
+                this.decode(false);
+                return;
+            }
+            // The window may only have room for part of the last bytes
+            while (this.decode(true).isOverflow()) {
+            }
+            while (this.flush().isOverflow()) {
+            }
+            this.finish();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Decodes as many of the read bytes as fit in the window
+    private CoderResult decode(boolean endOfBytes) {
+        this.makeRoom();
+        CharBuffer out = CharBuffer.wrap(this.window, this.filled, this.window.length - this.filled);
+        CoderResult result = this.decoder.decode(this.bytes, out, endOfBytes);
+        this.decoded(out);
+        return result;
+    }
+
+    private CoderResult flush() {
+        this.makeRoom();
+        CharBuffer out = CharBuffer.wrap(this.window, this.filled, this.window.length - this.filled);
+        CoderResult result = this.decoder.flush(out);
+        this.decoded(out);
+        return result;
+    }
+
+    private void decoded(CharBuffer out) {
+        if (out.position() > this.filled) {
+            this.emptyInput = false;
+            this.lastChar = this.window[out.position() - 1];
+            this.filled = out.position();
+        }
+    }
+
+    private void finish() {
+        this.endOfInput = true;
+        if (!this.emptyInput && this.lastChar != '\n') {
+            this.makeRoom();
+            this.window[this.filled++] = '\n';
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package lexer;
+
+class CharSequenceSource implements SourceText {
+    private final CharSequence source;
+    private final int length;
+
+    CharSequenceSource(CharSequence source) {
+        this(source, source.length());
+    }
+
+    // Reads the source as if it ended at end
+    CharSequenceSource(CharSequence source, int end) {
+        this.source = source;
+        this.length = end;
+    }
+
+    @Override
+    public char charAt(int pos) {
+        if (pos >= this.length) {
+            return '\0';
+        }
+        return this.source.charAt(pos);
+    }
+
+    @Override
+    public String text(int startPos, int endPos) {
+        return this.source.subSequence(startPos, endPos).toString();
+    }
+
+    @Override
+    public void release(int pos) {
+    }
+}
@@ -1,36 +1,83 @@
 package lexer;
 
+import diagnostic.Diagnostic;
+import diagnostic.Diagnostics;
+import token.IdentifierTable;
+import token.Keywords;
 import token.TokenType;
 import token.Token;
 
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
 public class Lexer {
-    private final String source;
-    private Character curChar;
+    public static final int DEFAULT_WINDOW_SIZE = 64 * 1024;
+
+    private final SourceText source;
+    private final CharSequence text;
+    private final IdentifierTable identifiers;
+    private final Diagnostics diagnostics;
+    private char curChar;
     private int curPos;
+    // Line of curPos and the position its line starts at
+    private int line;
+    private int lineStart;
+    
+    private int tokenStart;
+    private int tokenEnd;
+    private int tokenIdentifier;
+    private int tokenLine;
+    private int tokenColumn;
+    // Characters of the identifier or keyword being lexed
+    private char[] word;
+    
+    // Lexes any CharSequence in place: a String, a CharBuffer or a
+    // memory-mapped file from AsciiCharSequence.map
+    public Lexer(CharSequence source) {
+        this(source, new IdentifierTable());
+    }
+    
+    public Lexer(CharSequence source, IdentifierTable identifiers) {
+        this(new CharSequenceSource(source), source, identifiers, 0);
+    }
+    
+    // Lexes the part of the source from start, which must start a line, to
+    // end as if it were all of it. Token positions are still in the whole
+    // source but lines count from 1 at start.
+    Lexer(CharSequence source, int start, int end, IdentifierTable identifiers) {
+        this(new CharSequenceSource(source, end), source, identifiers, start);
+    }
+    
+    // Streams the source from a channel, holding only a bounded window of it in memory
+    public Lexer(ReadableByteChannel channel) {
+        this(channel, DEFAULT_WINDOW_SIZE);
+    }
+    
+    public Lexer(ReadableByteChannel channel, int windowSize) {
+        this(new ChannelSource(channel, windowSize), null, new IdentifierTable(), 0);
+    }
     
-    public Lexer(String source) {
+    private Lexer(SourceText source, CharSequence text, IdentifierTable identifiers, int start) {
         this.source = source;
+        this.text = text;
+        this.identifiers = identifiers;
+        this.diagnostics = new Diagnostics();
+        this.word = new char[32];
         this.curChar = '\0';
-        this.curPos = -1;
+        this.curPos = start - 1;
+        this.line = 1;
+        this.lineStart = start;
         
         this.nextChar();
     }
     
     private char peek() {
-        if (this.curPos + 1 >= this.source.length()) {
-            return '\0';
-        }
-        return this.source.charAt(curPos+1);
+        return this.source.charAt(this.curPos + 1);
     }
     
     private void nextChar() {
         this.curPos += 1;
-        if (this.curPos >= this.source.length()) {
-            this.curChar = '\0';
-        }
-        else {
-            this.curChar = this.source.charAt(curPos);
-        }
+        this.curChar = this.source.charAt(this.curPos);
     }
     
     private void skipWhiteSpace() {
@@ -41,145 +88,216 @@ public class Lexer {
     
     private void skipComment() {
         if (this.curChar == '#') {
-            while (this.curChar != '\n') {
+            while (this.curChar != '\n' && this.curChar != '\0') {
                 this.nextChar();
             }
         }
     }
     
-    private void abort(String message) {
-        System.err.println("Lexer error. " + message);
-        System.exit(0);
+    // Reports an error at the character at pos. Lexing carries on after it,
+    // so the rest of the source is still checked.
+    private void error(String message, int pos) {
+        this.diagnostics.report(Diagnostic.Kind.LEXICAL, this.line, pos - this.lineStart + 1, message);
+    }
+    
+    private void addToWord(int index) {
+        if (index == this.word.length) {
+            this.word = Arrays.copyOf(this.word, index * 2);
+        }
+        this.word[index] = this.curChar;
+    }
+    
+    public IdentifierTable getIdentifiers() {
+        return this.identifiers;
+    }
+    
+    public Diagnostics getDiagnostics() {
+        return this.diagnostics;
     }
     
-    // TODO: change so each If statement does a return of the token
-    // instead of just setting it
     public Token getToken() {
-        Token token;
+        TokenType kind = this.scan();
+        if (kind == TokenType.IDENTIFIER) {
+            return new Token(this.identifiers.name(this.tokenIdentifier), kind, this.tokenIdentifier,
+                    this.tokenLine, this.tokenColumn);
+        }
+        String tokenText = Token.fixedText(kind);
+        if (tokenText == null) {
+            tokenText = this.source.text(this.tokenStart, this.tokenEnd);
+        }
+        return new Token(tokenText, kind, -1, this.tokenLine, this.tokenColumn);
+    }
+    
+    // Lexes the rest of the source into tokens, up to and including EOF.
+    // Only the kind and position of each token is stored, so no token
+    // objects or strings are allocated.
+    public void tokenize(TokenBuffer tokens) {
+        if (this.text == null) {
+            throw new IllegalStateException("A streamed source can't be lexed into a TokenBuffer");
+        }
+        tokens.reset(this.text, this.identifiers, this.diagnostics);
+        TokenType kind;
+        do {
+            kind = this.scan();
+            tokens.add(kind, this.tokenStart, this.tokenEnd, this.tokenIdentifier);
+        } while (kind != TokenType.EOF);
+    }
+    
+    // Reads the next token, leaving its text between tokenStart and tokenEnd
+    private TokenType scan() {
+        TokenType kind;
+        do {
+            kind = this.scanToken();
+        } while (kind == null);
+        return kind;
+    }
+    
+    // Reads the next token, or reports and skips an unknown character and returns null
+    private TokenType scanToken() {
+        TokenType kind;
         
+        this.source.release(this.curPos);
         this.skipWhiteSpace();
         this.skipComment();
+        this.tokenStart = this.curPos;
+        this.tokenIdentifier = -1;
+        this.tokenLine = this.line;
+        this.tokenColumn = this.curPos - this.lineStart + 1;
 
         // Types
         if (this.curChar == '\0') {
-            token = new Token("", TokenType.EOF);
+            kind = TokenType.EOF;
+            this.tokenEnd = this.curPos;
+            return kind;
         }
         else if (this.curChar == '\n') {
-            token = new Token("\\n", TokenType.NEWLINE);
+            kind = TokenType.NEWLINE;
+        }
+        else if (this.curChar == '\\' && this.peek() == 'n') {
+            // An escaped "\n" is a line break, the same as Main.readFromFile reads it
+            this.nextChar();
+            kind = TokenType.NEWLINE;
         }
         else if (Character.isDigit(this.curChar)) {
-            int startPos = this.curPos;
-
             while (Character.isDigit(this.peek()))
                 this.nextChar();
 
             if (this.peek() == '.') {
                 this.nextChar();
                 if (!Character.isDigit(this.peek())) {
-                    this.abort("Illegal character in number.");
+                    this.error("Illegal character in number.", this.curPos + 1);
                 }
                 while (Character.isDigit(this.peek())) {
                     this.nextChar();
                 }
             }
 
-            String tokenText = this.source.substring(startPos, this.curPos + 1);
-            token = new Token(tokenText, TokenType.NUMBER);
+            kind = TokenType.NUMBER;
         }
         else if (Character.isAlphabetic(this.curChar)) {
             // Handle Identifiers and Keywords
-            int startPos = this.curPos;
-
             // This might not check whether "alpha numeric" characters (A–Z, a–z and 0–9)
+            int length = 0;
+            this.addToWord(length++);
             while (Character.isAlphabetic(this.peek()) || Character.isDigit(this.peek())) {
                 this.nextChar();
+                this.addToWord(length++);
             }
 
-            String tokenText = this.source.substring(startPos, this.curPos + 1);
-            TokenType tokenType = Token.checkIfKeyword(tokenText);
-
-            if (tokenType == null) {
-                token = new Token(tokenText, TokenType.IDENTIFIER);
-            }
-            else {
-                String convertedTokenText = Token.convertKeyword(tokenType);
-                token = new Token(convertedTokenText, tokenType);
+            kind = Keywords.lookup(this.word, length);
+            if (kind == null) {
+                kind = TokenType.IDENTIFIER;
+                this.tokenIdentifier = this.identifiers.intern(this.word, length);
             }
         }
         else if (this.curChar == '\"') {
             this.nextChar();
-            int startPos = this.curPos;
+            this.tokenStart = this.curPos;
 
-            while (this.curChar != '\"') {
-                if (this.curChar == '\r' || this.curChar == '\n' ||
-                        this.curChar == '\t' || this.curChar == '\\' || this.curChar == '%') {
-                    this.abort("Illegal character in string");
+            // A string missing its closing quote ends at the end of the line
+            while (this.curChar != '\"' && this.curChar != '\n' && this.curChar != '\0') {
+                if (this.curChar == '\r' || this.curChar == '\t' || this.curChar == '\\' || this.curChar == '%') {
+                    this.error("Illegal character in string", this.curPos);
                 }
                 this.nextChar();
             }
 
-            String tokenText = this.source.substring(startPos, this.curPos);
-            token = new Token(tokenText, TokenType.STRING);
+            kind = TokenType.STRING;
+            this.tokenEnd = this.curPos;
+            if (this.curChar == '\"') {
+                this.nextChar();
+            }
+            else {
+                this.error("Unterminated string", this.tokenStart - 1);
+            }
+            return kind;
         }
 
         // Operators
         else if (this.curChar == '=') {
             if (this.peek() == '=') {
                 this.nextChar();
-                token = new Token("==", TokenType.EQEQ);
+                kind = TokenType.EQEQ;
             }
             else
-                token = new Token("=", TokenType.EQ);
+                kind = TokenType.EQ;
         }
         else if (this.curChar == '+') {
-            token = new Token("+", TokenType.PLUS);
+            kind = TokenType.PLUS;
         }
         else if (this.curChar == '-') {
-            token = new Token("-", TokenType.MINUS);
+            kind = TokenType.MINUS;
         }
         else if (this.curChar == '*') {
-            token = new Token("*", TokenType.ASTERISK);
+            kind = TokenType.ASTERISK;
         }
         else if (this.curChar == '/') {
-            token = new Token("/", TokenType.SLASH);
+            kind = TokenType.SLASH;
         }
         else if (this.curChar == '!') {
             if (this.peek() == '=') {
                 this.nextChar();
-                token = new Token("!=", TokenType.NOTEQ);
+                kind = TokenType.NOTEQ;
             } else {
-                token = new Token();
-                this.abort("Unknown Token: !" + this.peek());
+                this.error("Unknown Token: !" + this.peek(), this.curPos);
+                this.nextChar();
+                return null;
             }
         }
         else if (this.curChar == '<') {
             if (this.peek() == '=') {
                 this.nextChar();
-                token = new Token("<=", TokenType.LTEQ);
+                kind = TokenType.LTEQ;
             }
             else
-                token = new Token("<", TokenType.LT);
+                kind = TokenType.LT;
         }
         else if (this.curChar == '>') {
             if (this.peek() == '=') {
                 this.nextChar();
-                token = new Token(">=", TokenType.GTEQ);
+                kind = TokenType.GTEQ;
             }
             else
-                token = new Token(">", TokenType.GT);
+                kind = TokenType.GT;
         }
         else if (this.curChar == '(') {
-            token = new Token("(", TokenType.PARENTHESESLEFT);
+            kind = TokenType.PARENTHESESLEFT;
         }
         else if (this.curChar == ')') {
-            token = new Token(")", TokenType.PARENTHESESRIGHT);
+            kind = TokenType.PARENTHESESRIGHT;
         }
         else {
-            token = new Token();
-            this.abort("Unknown Token: " + this.curChar);
+            this.error("Unknown Token: " + this.curChar, this.curPos);
+            this.nextChar();
+            return null;
         }
         
+        this.tokenEnd = this.curPos + 1;
         this.nextChar();
-        return token;
+        if (kind == TokenType.NEWLINE) {
+            this.line++;
+            this.lineStart = this.curPos;
+        }
+        return kind;
     }
 }
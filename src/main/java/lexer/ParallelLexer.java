@@ -0,0 +1,125 @@
+package lexer;
+
+import diagnostic.Diagnostics;
+import token.IdentifierTable;
+import token.TokenType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// Lexes a large source on a fork/join pool. No token spans a line break,
+// as strings and comments end at one, so the source is cut into chunks
+// just after a '\n' and each chunk is lexed on its own. The chunks' tokens
+// are then added to the buffer in order, giving the same tokens, identifier
+// ids and diagnostics as Lexer.tokenize.
+public class ParallelLexer {
+    public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+    // Source characters per token, a little under what generated programs have
+    private static final int TOKEN_LENGTH_ESTIMATE = 4;
+
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    public ParallelLexer() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    public ParallelLexer(ForkJoinPool pool, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size " + chunkSize);
+        }
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    public void tokenize(CharSequence source, TokenBuffer tokens) {
+        List<Integer> starts = this.chunkStarts(source);
+        // Splitting only adds work when the chunks can't be lexed at the same time
+        if (starts.size() == 1 || this.pool.getParallelism() < 2) {
+            new Lexer(source).tokenize(tokens);
+            return;
+        }
+
+        List<Callable<TokenBuffer>> chunks = new ArrayList<Callable<TokenBuffer>>(starts.size());
+        for (int i = 0; i < starts.size(); i++) {
+            int start = starts.get(i);
+            int end = i + 1 < starts.size() ? starts.get(i + 1) : source.length();
+            chunks.add(() -> {
+                // Sized for the token density of typical programs, to avoid growing it
+                TokenBuffer chunk = new TokenBuffer((end - start) / TOKEN_LENGTH_ESTIMATE + 16);
+                new Lexer(source, start, end, new IdentifierTable()).tokenize(chunk);
+                return chunk;
+            });
+        }
+
+        List<TokenBuffer> lexed = new ArrayList<TokenBuffer>(chunks.size());
+        int size = 0;
+        for (Future<TokenBuffer> chunk : this.pool.invokeAll(chunks)) {
+            lexed.add(join(chunk));
+            size += lexed.get(lexed.size() - 1).size();
+        }
+
+        IdentifierTable identifiers = new IdentifierTable();
+        Diagnostics diagnostics = new Diagnostics();
+        tokens.reset(source, identifiers, diagnostics);
+        tokens.reserve(size);
+        int lines = 0;
+        for (int i = 0; i < lexed.size(); i++) {
+            TokenBuffer chunk = lexed.get(i);
+            // Interning each chunk's identifiers in turn numbers them in order of first appearance
+            IdentifierTable chunkIdentifiers = chunk.getIdentifiers();
+            int[] identifierIds = new int[chunkIdentifiers.size()];
+            for (int id = 0; id < identifierIds.length; id++) {
+                identifierIds[id] = identifiers.intern(chunkIdentifiers.name(id));
+            }
+            // Only the last chunk's EOF ends the source
+            boolean last = i == lexed.size() - 1;
+            tokens.addAll(chunk, last ? chunk.size() : chunk.size() - 1, identifierIds);
+            diagnostics.addAll(chunk.getDiagnostics(), lines);
+            for (int token = 0; token < chunk.size(); token++) {
+                if (chunk.kind(token) == TokenType.NEWLINE) {
+                    lines++;
+                }
+            }
+        }
+    }
+
+    // Where each chunk starts: at 0, then after the first '\n' at least chunkSize on
+    private List<Integer> chunkStarts(CharSequence source) {
+        List<Integer> starts = new ArrayList<Integer>();
+        int length = source.length();
+        int start = 0;
+        while (start < length) {
+            starts.add(start);
+            int end = start + this.chunkSize - 1;
+            while (end < length && source.charAt(end) != '\n') {
+                end++;
+            }
+            start = end + 1;
+        }
+        if (starts.isEmpty()) {
+            starts.add(0);
+        }
+        return starts;
+    }
+
+    private static TokenBuffer join(Future<TokenBuffer> chunk) {
+        try {
+            return chunk.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while lexing", e);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
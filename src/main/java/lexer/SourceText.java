@@ -0,0 +1,12 @@
+package lexer;
+
+// Random access to the characters the Lexer is reading.
+// Positions past the end of the input read as '\0'.
+interface SourceText {
+    char charAt(int pos);
+
+    String text(int startPos, int endPos);
+
+    // Characters before pos will not be read again.
+    void release(int pos);
+}
@@ -0,0 +1,149 @@
+package lexer;
+
+import diagnostic.Diagnostics;
+import token.IdentifierTable;
+import token.Token;
+import token.TokenType;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+// Tokens stored column by column: the kind ordinal and the start and end
+// offset of each token in the source. Token text is only materialised
+// when asked for. The buffer can be reset and reused between sources.
+public class TokenBuffer {
+    private static final TokenType[] KINDS = TokenType.values();
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private CharSequence source;
+    private IdentifierTable identifiers;
+    // Errors the lexer found while filling the buffer
+    private Diagnostics diagnostics;
+    private int[] kinds;
+    private int[] starts;
+    private int[] ends;
+    // IdentifierTable id of IDENTIFIER tokens, -1 for the rest
+    private int[] ids;
+    private int size;
+
+    public TokenBuffer() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public TokenBuffer(int capacity) {
+        this.kinds = new int[capacity];
+        this.starts = new int[capacity];
+        this.ends = new int[capacity];
+        this.ids = new int[capacity];
+        this.reset("", new IdentifierTable());
+    }
+
+    public void reset(CharSequence source, IdentifierTable identifiers) {
+        this.reset(source, identifiers, new Diagnostics());
+    }
+
+    public void reset(CharSequence source, IdentifierTable identifiers, Diagnostics diagnostics) {
+        this.source = source;
+        this.identifiers = identifiers;
+        this.diagnostics = diagnostics;
+        this.size = 0;
+    }
+
+    public void add(TokenType kind, int start, int end, int identifierId) {
+        if (this.size == this.kinds.length) {
+            this.grow(this.size + 1);
+        }
+        this.kinds[this.size] = kind.ordinal();
+        this.starts[this.size] = start;
+        this.ends[this.size] = end;
+        this.ids[this.size] = identifierId;
+        this.size++;
+    }
+
+    // Makes room for capacity tokens in all, so adding them doesn't copy the buffer
+    void reserve(int capacity) {
+        if (capacity > this.kinds.length) {
+            this.grow(capacity);
+        }
+    }
+
+    // Adds the first count tokens of a buffer lexed from the same source,
+    // with their identifier ids changed to identifierIds[id]
+    void addAll(TokenBuffer tokens, int count, int[] identifierIds) {
+        if (this.size + count > this.kinds.length) {
+            this.grow(this.size + count);
+        }
+        System.arraycopy(tokens.kinds, 0, this.kinds, this.size, count);
+        System.arraycopy(tokens.starts, 0, this.starts, this.size, count);
+        System.arraycopy(tokens.ends, 0, this.ends, this.size, count);
+        for (int i = 0; i < count; i++) {
+            int id = tokens.ids[i];
+            this.ids[this.size + i] = id >= 0 ? identifierIds[id] : -1;
+        }
+        this.size += count;
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = Math.max(this.kinds.length * 2, minCapacity);
+        if (this.size == 0) {
+            // Nothing to keep, and the old arrays may be large
+            this.kinds = new int[capacity];
+            this.starts = new int[capacity];
+            this.ends = new int[capacity];
+            this.ids = new int[capacity];
+            return;
+        }
+        this.kinds = Arrays.copyOf(this.kinds, capacity);
+        this.starts = Arrays.copyOf(this.starts, capacity);
+        this.ends = Arrays.copyOf(this.ends, capacity);
+        this.ids = Arrays.copyOf(this.ids, capacity);
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public CharSequence getSource() {
+        return this.source;
+    }
+
+    public IdentifierTable getIdentifiers() {
+        return this.identifiers;
+    }
+
+    public Diagnostics getDiagnostics() {
+        return this.diagnostics;
+    }
+
+    public TokenType kind(int index) {
+        return KINDS[this.kinds[index]];
+    }
+
+    public int start(int index) {
+        return this.starts[index];
+    }
+
+    public int end(int index) {
+        return this.ends[index];
+    }
+
+    public int identifierId(int index) {
+        return this.ids[index];
+    }
+
+    // Token text as Token.getTokenText() would give it, as a view of the source
+    public CharSequence text(int index) {
+        if (this.ids[index] >= 0) {
+            return this.identifiers.name(this.ids[index]);
+        }
+        String fixedText = Token.fixedText(this.kind(index));
+        if (fixedText != null) {
+            return fixedText;
+        }
+        return CharBuffer.wrap(this.source, this.starts[index], this.ends[index]);
+    }
+
+    public Token token(int index) {
+        return new Token(this.text(index).toString(), this.kind(index), this.ids[index]);
+    }
+}
@@ -0,0 +1,30 @@
+package parser;
+
+import ast.Program;
+import diagnostic.Diagnostic;
+
+import java.util.List;
+
+// The parsed program together with every error found in the source.
+// The program is null when there are errors.
+public class ParseResult {
+    private final Program program;
+    private final List<Diagnostic> diagnostics;
+
+    public ParseResult(Program program, List<Diagnostic> diagnostics) {
+        this.program = program;
+        this.diagnostics = diagnostics;
+    }
+
+    public Program getProgram() {
+        return this.program;
+    }
+
+    public List<Diagnostic> getDiagnostics() {
+        return this.diagnostics;
+    }
+
+    public boolean hasErrors() {
+        return !this.diagnostics.isEmpty();
+    }
+}
@@ -1,52 +1,182 @@
 package parser;
 
+import ast.*;
+import codegen.CGenerator;
+import diagnostic.CompileException;
+import diagnostic.Diagnostic;
+import diagnostic.Diagnostics;
 import lexer.Lexer;
+import lexer.TokenBuffer;
 import emitter.Emitter;
+import pass.Pass;
+import pass.PassManager;
+import token.IdentifierTable;
 import token.Token;
 import token.TokenType;
+
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 public class Parser {
+    // Tokens per region of a parallel parse, about as many as a lexer chunk has
+    public static final int DEFAULT_REGION_TOKENS = 256 * 1024;
+    
+    // Tokens come either one at a time from the lexer or from a TokenBuffer lexed in advance
     private final Lexer lexer;
+    private final TokenBuffer tokens;
     private final Emitter emitter;
+    private final PassManager passes;
     
-    private final ArrayList<String> symbols;
-    private final ArrayList<String> labelsDeclared;
-    private final ArrayList<String> labelsGotoed;
+    private final IdentifierTable identifiers;
+    private final Diagnostics diagnostics;
+    private SymbolTable symbols;
+    private SymbolTable labelsDeclared;
+    // Set when parsing one region of a parallel parse, whose declarations come from the outline
+    private final ProgramOutline outline;
+    // Index of the token the parser stops at, read as EOF
+    private final int tokenEnd;
+    // Parses in regions on this pool when set
+    private ForkJoinPool pool;
+    private int regionTokens;
+    // Identifier ids of GOTO targets and where they are, checked once the whole program is parsed
+    private int[] labelsGotoed;
+    private int[] labelsGotoedLines;
+    private int[] labelsGotoedColumns;
+    private int labelsGotoedCount;
+    // Statements parsed so far, counting those inside blocks
+    private int statementCount;
     
     private Token curToken;
     private Token peekToken;
-    
-    private int curIndents;
+    private int tokenIndex;
+    // Line of the current buffered token and the offset its line starts at
+    private int line;
+    private int lineStart;
     
     public Parser(Lexer lexer, Emitter emitter) {
+        this(lexer, null, emitter);
+    }
+    
+    public Parser(TokenBuffer tokens, Emitter emitter) {
+        this(null, tokens, emitter);
+    }
+    
+    // Parser that is only used to parse(), without generating code
+    public Parser(TokenBuffer tokens) {
+        this(null, tokens, null);
+    }
+    
+    private Parser(Lexer lexer, TokenBuffer tokens, Emitter emitter) {
+        this(lexer, tokens, emitter, null, 0, tokens != null ? tokens.size() - 1 : 0, 1, 0);
+    }
+    
+    // Parser for the region of the tokens from start up to end, declaring nothing itself
+    private Parser(TokenBuffer tokens, ProgramOutline outline, int start, int end, int line, int lineStart) {
+        this(null, tokens, null, outline, start, end, line, lineStart);
+    }
+    
+    private Parser(Lexer lexer, TokenBuffer tokens, Emitter emitter, ProgramOutline outline,
+                   int start, int end, int line, int lineStart) {
         this.lexer = lexer;
+        this.tokens = tokens;
         this.emitter = emitter;
+        this.passes = new PassManager();
         
-        this.symbols = new ArrayList<String>();
-        this.labelsDeclared = new ArrayList<String>();
-        this.labelsGotoed = new ArrayList<String>();
+        this.identifiers = lexer != null ? lexer.getIdentifiers() : tokens.getIdentifiers();
+        if (outline != null) {
+            this.diagnostics = new Diagnostics();
+            this.symbols = outline.getSymbols();
+            this.labelsDeclared = outline.getLabels();
+        } else {
+            this.diagnostics = lexer != null ? lexer.getDiagnostics() : tokens.getDiagnostics();
+            this.symbols = new SymbolTable();
+            this.labelsDeclared = new SymbolTable();
+        }
+        this.outline = outline;
+        this.tokenEnd = end;
+        this.pool = null;
+        this.regionTokens = DEFAULT_REGION_TOKENS;
+        this.labelsGotoed = new int[16];
+        this.labelsGotoedLines = new int[16];
+        this.labelsGotoedColumns = new int[16];
+        this.labelsGotoedCount = 0;
+        this.statementCount = 0;
         
         this.curToken = null;
         this.peekToken = null;
+        this.tokenIndex = start;
+        this.line = line;
+        this.lineStart = lineStart;
         
-        this.curIndents = 1;
-        
-        this.nextToken();
-        this.nextToken();
+        if (this.tokens == null) {
+            this.nextToken();
+            this.nextToken();
+        }
     }
     
     private boolean checkToken(TokenType kind) {
-        return kind == this.curToken.getTokenKind();
+        return kind == this.curKind();
+    }
+    
+    private TokenType curKind() {
+        if (this.tokens != null) {
+            return this.tokenIndex < this.tokenEnd ? this.tokens.kind(this.tokenIndex) : TokenType.EOF;
+        }
+        return this.curToken.getTokenKind();
+    }
+    
+    // Identifier id of the current token, -1 if it isn't an identifier
+    private int curIdentifier() {
+        if (this.tokens != null) {
+            return this.tokenIndex < this.tokenEnd ? this.tokens.identifierId(this.tokenIndex) : -1;
+        }
+        return this.curToken.getIdentifierId();
+    }
+    
+    private int curLine() {
+        if (this.tokens != null) {
+            return this.line;
+        }
+        return this.curToken.getLine();
+    }
+    
+    private int curColumn() {
+        if (this.tokens != null) {
+            return this.tokens.start(this.tokenIndex) - this.lineStart + 1;
+        }
+        return this.curToken.getColumn();
+    }
+    
+    private CharSequence curText() {
+        if (this.tokens != null) {
+            return this.tokens.text(this.tokenIndex);
+        }
+        return this.curToken.getTokenText();
     }
 
     private void match(TokenType kind) {
         if (!this.checkToken(kind))
-            this.abort("Expected " + kind.toString() + ", got " + this.curToken.getTokenText());
+            this.abort("Expected " + kind.toString() + ", got " + this.curText());
         this.nextToken();
     }
 
     private void nextToken() {
+        if (this.tokens != null) {
+            // Stay on the final EOF token once reached
+            if (this.tokenIndex < this.tokenEnd) {
+                if (this.tokens.kind(this.tokenIndex) == TokenType.NEWLINE) {
+                    this.line++;
+                    this.lineStart = this.tokens.end(this.tokenIndex);
+                }
+                this.tokenIndex++;
+            }
+            return;
+        }
         this.curToken = this.peekToken;
         this.peekToken = this.lexer.getToken();
     }
@@ -69,159 +199,212 @@ public class Parser {
         }
     }
     
-    // primary ::= number | ident
-    private void primary() {
+    // Reference to a declared variable at the current identifier token
+    private VariableExpression variable() {
+        int identifierId = this.curIdentifier();
+        return new VariableExpression(this.identifierName(identifierId), this.symbols.lookup(identifierId));
+    }
+    
+    // primary ::= number | ident | "(" expression ")"
+    private Expression primary() {
+        Expression primary = null;
         if (this.checkToken(TokenType.NUMBER)) {
-            this.emitter.emit(this.curToken.getTokenText());
+            NumberLiteral number = NumberLiteral.fromSource(this.curText().toString());
+            if (number.isTooBigForInt()) {
+                this.error("Integer too big for an int: " + this.curText() + ", write it with a decimal point");
+            }
+            primary = number;
             this.nextToken();
         }
         else if (this.checkToken(TokenType.IDENTIFIER)) {
             // Ensure the variable already exists.
-            if (!this.symbols.contains(this.curToken.getTokenText())) {
-                this.abort("Referencing variable before assignment: " + this.curToken.getTokenText());
+            if (!this.isDeclared(this.curIdentifier())) {
+                this.error("Referencing variable before assignment: " + this.curText());
             }
-            this.emitter.emit(this.curToken.getTokenText());
+            primary = this.variable();
             this.nextToken();
         }
+        else if (this.checkToken(TokenType.PARENTHESESLEFT)) {
+            this.nextToken();
+            Expression inner = this.expression(false);
+            if (!this.checkToken(TokenType.PARENTHESESRIGHT)) {
+                this.abort("expression: Expected ')' character at " + this.curText());
+            }
+            this.nextToken();
+            primary = new GroupExpression(inner);
+        }
         else {
-            this.abort("primary: Unexpected token at " + this.curToken.getTokenText());
+            this.abort("primary: Unexpected token at " + this.curText());
         }
+        return primary;
     }
     
     // unary ::= ["+" | "-"] primary
-    private void unary() {
+    // The NOT of a comparison applies to its first unary, as the "!" does in C
+    private Expression unary(boolean negate) {
+        Expression unary;
         if (this.checkToken(TokenType.PLUS) || this.checkToken(TokenType.MINUS)) {
-            this.emitter.emit(this.curToken.getTokenText());
+            TokenType operator = this.curKind();
             this.nextToken();
+            unary = new UnaryExpression(operator, this.primary());
+        }
+        else {
+            unary = this.primary();
         }
-        this.primary();
+        return negate ? new UnaryExpression(TokenType.NOT, unary) : unary;
     }
     
     // term ::= unary {( "/" | "*" ) unary}
-    private void term() {
-        this.unary();
+    private Expression term(boolean negateFirst) {
+        Expression term = this.unary(negateFirst);
         while (this.checkToken(TokenType.SLASH) || this.checkToken(TokenType.ASTERISK)) {
-            this.emitter.emit(this.curToken.getTokenText());
+            TokenType operator = this.curKind();
             this.nextToken();
-            this.unary();
+            term = new BinaryExpression(operator, term, this.unary(false));
         }
+        return term;
     }
     
     // expression ::= term {( "-" | "+" ) term}
-    //      | ("(")+ expression (")")+
-    //      | ("(")+ expression (")")+ {( "/" | "*" | "-" | "+" )  ("(")+ expression (")")+}
-    private void expression() {
-        if (this.checkToken(TokenType.PARENTHESESLEFT)) {
-            boolean nextExpression = true;
-            int parentheses = 0;
-            while (nextExpression) {
-                while (this.checkToken(TokenType.PARENTHESESLEFT)) {
-                    parentheses++;
-                    this.emitter.emit(this.curToken.getTokenText());
-                    this.nextToken();
-                }
-                while (!this.checkToken(TokenType.PARENTHESESRIGHT)) {
-                    this.term();
-                    while (this.checkToken(TokenType.MINUS) || this.checkToken(TokenType.PLUS)) {
-                        this.emitter.emit(this.curToken.getTokenText());
-                        this.nextToken();
-                        this.term();
-                    }
-                }
-                for (int i = 0; i < parentheses; i++) {
-                    if (!this.checkToken(TokenType.PARENTHESESRIGHT)) {
-                        this.abort("expression: Expected ')' character at " + this.curToken.getTokenText());
-                    }
-                    parentheses--;
-                    this.emitter.emit(this.curToken.getTokenText());
-                    this.nextToken();
-                }
-
-                nextExpression = this.checkToken(TokenType.SLASH) || this.checkToken(TokenType.ASTERISK)
-                        || this.checkToken(TokenType.MINUS) || this.checkToken(TokenType.PLUS);
-                if (nextExpression) {
-                    this.emitter.emit(this.curToken.getTokenText());
-                    this.nextToken();
-                }
-            }
-
-            if (parentheses >= 1) {
-                if (this.checkToken(TokenType.PARENTHESESRIGHT)) {
-                    this.emitter.emit(this.curToken.getTokenText());
-                    this.nextToken();
-                }
-                else {
-                    this.abort("expression: Expected ')' character at " + this.curToken.getTokenText());
-                }
-            }
-        }
-        else {
-            this.term();
-            while (this.checkToken(TokenType.MINUS) || this.checkToken(TokenType.PLUS)) {
-                this.emitter.emit(this.curToken.getTokenText());
-                this.nextToken();
-                this.term();
-            }
+    private Expression expression(boolean negateFirst) {
+        Expression expression = this.term(negateFirst);
+        while (this.checkToken(TokenType.MINUS) || this.checkToken(TokenType.PLUS)) {
+            TokenType operator = this.curKind();
+            this.nextToken();
+            expression = new BinaryExpression(operator, expression, this.term(false));
         }
+        return expression;
     }
 
     // comparison ::= ["NOT"] expression (("AND" | "OR") expression)+
     //          | ["NOT"] expression (("==" | "!=" | ">" | ">=" | "<" | "<=") expression)+
-    private void comparison() {
+    // The operators are grouped by their C precedence, as the C compiler will read them.
+    private Expression comparison() {
+        boolean negate = false;
         if (checkToken(TokenType.NOT)) {
-            this.emitter.emit(this.curToken.getTokenText());
+            negate = true;
             this.nextToken();
         }
 
-        this.expression();
+        List<Expression> operands = new ArrayList<Expression>();
+        List<TokenType> operators = new ArrayList<TokenType>();
+        operands.add(this.expression(negate));
         // Must be at least 1 (comparison operator -> expression)
-        if (this.isLogicalOperatorBetweenExpressions() || this.isComparisonOperator()) {
-            this.emitter.emit(this.curToken.getTokenText());
-            this.nextToken();
-            this.expression();
-        } else {
-            this.abort("comparison: Unexpected logical/comparison operator at " + this.curToken.getTokenText());
+        if (!this.isLogicalOperatorBetweenExpressions() && !this.isComparisonOperator()) {
+            this.abort("comparison: Unexpected logical/comparison operator at " + this.curText());
         }
         // Can have 0 or more (comparison operator -> expression)
         while (this.isLogicalOperatorBetweenExpressions() || this.isComparisonOperator()) {
-            this.emitter.emit(this.curToken.getTokenText());
+            operators.add(this.curKind());
             this.nextToken();
-            this.expression();
+            operands.add(this.expression(false));
+        }
+        return groupByPrecedence(operands, operators);
+    }
+    
+    private static Expression groupByPrecedence(List<Expression> operands, List<TokenType> operators) {
+        List<Expression> operandStack = new ArrayList<Expression>();
+        List<TokenType> operatorStack = new ArrayList<TokenType>();
+        operandStack.add(operands.get(0));
+        for (int i = 0; i < operators.size(); i++) {
+            TokenType operator = operators.get(i);
+            while (!operatorStack.isEmpty() && BinaryExpression.precedence(operatorStack.get(operatorStack.size() - 1))
+                    >= BinaryExpression.precedence(operator)) {
+                reduce(operandStack, operatorStack);
+            }
+            operatorStack.add(operator);
+            operandStack.add(operands.get(i + 1));
+        }
+        while (!operatorStack.isEmpty()) {
+            reduce(operandStack, operatorStack);
+        }
+        return operandStack.get(0);
+    }
+    
+    private static void reduce(List<Expression> operandStack, List<TokenType> operatorStack) {
+        Expression right = operandStack.remove(operandStack.size() - 1);
+        Expression left = operandStack.remove(operandStack.size() - 1);
+        TokenType operator = operatorStack.remove(operatorStack.size() - 1);
+        operandStack.add(new BinaryExpression(operator, left, right));
+    }
+    
+    // {statement} up to the end keyword or EOF. A statement with a syntax
+    // error is skipped up to its newline and parsing carries on after it.
+    private void statements(List<Statement> statements, TokenType end) {
+        while (!this.checkToken(end) && !this.checkToken(TokenType.EOF)) {
+            try {
+                statements.add(this.statement());
+            }
+            catch (SyntaxError e) {
+                this.skipLine();
+            }
+        }
+    }
+    
+    // {statement} up to the closing keyword, which is matched
+    private List<Statement> block(TokenType end) {
+        List<Statement> body = new ArrayList<Statement>();
+        this.statements(body, end);
+        this.match(end);
+        return body;
+    }
+    
+    // comparison then newline, as IF and WHILE start. On a syntax error the
+    // rest of the line is skipped but the block is still parsed, so its
+    // closing keyword isn't reported as a statement of its own.
+    private Expression condition(TokenType then) {
+        try {
+            Expression condition = this.comparison();
+            this.match(then);
+            this.newline();
+            return condition;
+        }
+        catch (SyntaxError e) {
+            this.skipLine();
+            return null;
         }
     }
     
     // statement ::=
-    private void statement() {
+    private Statement statement() {
+        Statement statement = null;
         // | "LABEL" ident
         if (this.checkToken(TokenType.LABEL)) {
             this.nextToken();
             // Make sure this label doesn't already exist.
-            if (this.labelsDeclared.contains(this.curToken.getTokenText())) {
-                this.abort("Label already exists: " + this.curToken.getTokenText());
+            if (this.isLabelDeclared(this.curIdentifier())) {
+                this.error("Label already exists: " + this.curText());
             }
-            this.labelsDeclared.add(this.curToken.getTokenText());
-
-            this.emitter.emitLine(this.curToken.getTokenText() + ":");
+            if (this.curIdentifier() >= 0 && this.outline == null) {
+                this.labelsDeclared.declare(this.curIdentifier());
+            }
+            statement = new LabelStatement(this.curText().toString());
             this.match(TokenType.IDENTIFIER);
         }
         // | "GOTO" ident
         else if (this.checkToken(TokenType.GOTO)) {
             this.nextToken();
-            this.labelsGotoed.add(this.curToken.getTokenText());
-            this.emitter.emitLine("goto " + this.curToken.getTokenText() + ";");
+            if (this.labelsGotoedCount == this.labelsGotoed.length) {
+                this.labelsGotoed = Arrays.copyOf(this.labelsGotoed, this.labelsGotoedCount * 2);
+                this.labelsGotoedLines = Arrays.copyOf(this.labelsGotoedLines, this.labelsGotoedCount * 2);
+                this.labelsGotoedColumns = Arrays.copyOf(this.labelsGotoedColumns, this.labelsGotoedCount * 2);
+            }
+            this.labelsGotoed[this.labelsGotoedCount] = this.curIdentifier();
+            this.labelsGotoedLines[this.labelsGotoedCount] = this.curLine();
+            this.labelsGotoedColumns[this.labelsGotoedCount] = this.curColumn();
+            this.labelsGotoedCount++;
+            statement = new GotoStatement(this.curText().toString());
             this.match(TokenType.IDENTIFIER);
         }
         // "PRINT" (expression | string)
         else if (this.checkToken(TokenType.PRINT)) {
             this.nextToken();
             if (this.checkToken(TokenType.STRING)) {
-                this.emitter.emitLine("printf(\"" + this.curToken.getTokenText() + "\\n\");");
+                statement = new PrintStringStatement(this.curText().toString());
                 this.nextToken();
             }
             else {
-                this.emitter.emit("printf(\"%" + ".2f\\n\", (float)(");
-                this.expression();
-                this.emitter.emitLine("));");
+                statement = new PrintStatement(this.expression(false));
             }
         }
         // | "INPUT" ident
@@ -229,27 +412,10 @@ public class Parser {
             this.nextToken();
 
             // If variable doesn't already exist, declare it.
-            if (!this.symbols.contains(this.curToken.getTokenText())) {
-                this.symbols.add(this.curToken.getTokenText());
-                this.emitter.headerIndent(1);
-                this.emitter.headerLine("float " + this.curToken.getTokenText() + ";");
+            if (this.curIdentifier() >= 0 && this.outline == null) {
+                this.symbols.declare(this.curIdentifier());
             }
-            // Emit scanf but also validate the input.
-            // If invalid, set the variable to 0 and clear the input.
-            this.curIndents++;
-            this.emitter.emitLine("if (0 == scanf(\"%" + "f\", &" + this.curToken.getTokenText() + ")) {");
-
-            this.emitter.emitIndent(this.curIndents);
-            this.emitter.emitLine(this.curToken.getTokenText() + " = 0;");
-
-            this.emitter.emitIndent(this.curIndents);
-            this.emitter.emit("scanf(\"%");
-            this.emitter.emitLine("*s\");");
-
-            this.curIndents--;
-            this.emitter.emitIndent(this.curIndents);
-            this.emitter.emitLine("}");
-
+            statement = new InputStatement(this.variable());
             this.match(TokenType.IDENTIFIER);
         }
         // | "LET" ident "=" expression
@@ -257,94 +423,120 @@ public class Parser {
             this.nextToken();
 
             // Check if ident exists in symbol table. If not, declare it.
-            if (!this.symbols.contains(this.curToken.getTokenText())) {
-                this.symbols.add(this.curToken.getTokenText());
-                this.emitter.headerIndent(1);
-                this.emitter.headerLine("float " + this.curToken.getTokenText() + ";");
+            if (this.curIdentifier() >= 0 && this.outline == null) {
+                this.symbols.declare(this.curIdentifier());
             }
-            this.emitter.emit(this.curToken.getTokenText() + " = ");
+            VariableExpression variable = this.variable();
             this.match(TokenType.IDENTIFIER);
             this.match(TokenType.EQ);
 
-            this.expression();
-            this.emitter.emitLine(";");
+            statement = new LetStatement(variable, this.expression(false));
         }
         // | "IF" comparison "THEN" newline {statement} "ENDIF"
         else if (this.checkToken(TokenType.IF)) {
             this.nextToken();
-            this.emitter.emit("if (");
-            this.comparison();
-
-            this.match(TokenType.THEN);
-            this.newline();
-            boolean zeroStatements = this.checkToken(TokenType.ENDIF);
-            if (zeroStatements) {
-                this.emitter.emit(") {");
-            } else {
-                this.emitter.emitLine(") {");
-            }
-
-            while (!this.checkToken(TokenType.ENDIF)) {
-                this.curIndents++;
-                this.emitter.emitIndent(this.curIndents);
-                this.statement();
-            }
-            this.match(TokenType.ENDIF);
-            this.curIndents = 1;
-            if (!zeroStatements) {
-                this.emitter.emitIndent(this.curIndents);
-            }
-            this.emitter.emitLine("}");
+            Expression condition = this.condition(TokenType.THEN);
+            statement = new IfStatement(condition, this.block(TokenType.ENDIF));
         }
         // | "WHILE" comparison "REPEAT" newline {statement newline} "ENDWHILE"
         else if (this.checkToken(TokenType.WHILE)) {
             this.nextToken();
-            this.emitter.emit("while (");
-            this.comparison();
-
-            this.match(TokenType.REPEAT);
-            this.newline();
-            boolean zeroStatements = this.checkToken(TokenType.ENDWHILE);
-            if (zeroStatements) {
-                this.emitter.emit(") {");
-            } else {
-                this.emitter.emitLine(") {");
-            }
-
-            while (!this.checkToken(TokenType.ENDWHILE)) {
-                this.curIndents++;
-                this.emitter.emitIndent(this.curIndents);
-                this.statement();
-            }
-
-            this.match(TokenType.ENDWHILE);
-            this.curIndents = 1;
-            if (!zeroStatements) {
-                this.emitter.emitIndent(this.curIndents);
-            }
-            this.emitter.emitLine("}");
+            Expression condition = this.condition(TokenType.REPEAT);
+            statement = new WhileStatement(condition, this.block(TokenType.ENDWHILE));
         }
         else {
-            this.abort("Invalid statement at " + this.curToken.getTokenText() + " (" + this.curToken.getTokenKind() + ")");
+            this.abort("Invalid statement at " + this.curText() + " (" + this.curKind() + ")");
         }
 
-        this.curIndents = 1;
-
         // All statements end in newline
         this.newline();
+        this.statementCount++;
+        return statement;
     }
     
+    // Whether the variable is declared by the statements before the current token
+    private boolean isDeclared(int identifierId) {
+        if (this.outline != null) {
+            return this.outline.isDeclaredBefore(identifierId, this.tokenIndex);
+        }
+        return this.symbols.contains(identifierId);
+    }
+    
+    private boolean isLabelDeclared(int identifierId) {
+        if (this.outline != null) {
+            return this.outline.isLabelDeclaredBefore(identifierId, this.tokenIndex);
+        }
+        return this.labelsDeclared.contains(identifierId);
+    }
+    
+    private String identifierName(int identifierId) {
+        return identifierId >= 0 ? this.identifiers.name(identifierId) : "";
+    }
+    
+    // Thrown to leave a statement with a syntax error, caught where parsing
+    // can resume. It is an expected part of parsing, so it has no stack trace.
+    private static class SyntaxError extends RuntimeException {
+        SyntaxError() {
+            super(null, null, false, false);
+        }
+    }
+    
+    private static final SyntaxError SYNTAX_ERROR = new SyntaxError();
+    
+    // Reports a syntax error at the current token and gives up on its statement
     private void abort(String message) {
-        System.err.println("Parser error. " + message);
-        System.exit(0); 
+        this.diagnostics.report(Diagnostic.Kind.SYNTAX, this.curLine(), this.curColumn(), message);
+        throw SYNTAX_ERROR;
     }
     
-    public void program() {
-        System.out.println("PROGRAM");
+    // Reports an error at the current token that doesn't stop the statement being parsed
+    private void error(String message) {
+        this.diagnostics.report(Diagnostic.Kind.SEMANTIC, this.curLine(), this.curColumn(), message);
+    }
+    
+    // Skips to the start of the next line
+    private void skipLine() {
+        while (!this.checkToken(TokenType.NEWLINE) && !this.checkToken(TokenType.EOF)) {
+            this.nextToken();
+        }
+        while (this.checkToken(TokenType.NEWLINE)) {
+            this.nextToken();
+        }
+    }
+    
+    // program ::= {statement}
+    // Throws a CompileException listing every error found in the source
+    public Program parse() {
+        ParseResult result = this.parseWithDiagnostics();
+        if (result.hasErrors()) {
+            throw new CompileException(this.diagnostics);
+        }
+        return result.getProgram();
+    }
+    
+    // Parses the whole source however many errors it has, instead of
+    // throwing. The result has no program if there are errors.
+    public ParseResult parseWithDiagnostics() {
+        List<Statement> statements;
+        if (this.pool != null && this.tokens != null && this.pool.getParallelism() >= 2) {
+            statements = this.parseRegions();
+        } else {
+            statements = this.parseStatements();
+            this.checkLabelsGotoed(this);
+        }
         
-        this.emitter.headerLine("#include <stdio.h>");
-        this.emitter.headerLine("");
-        this.emitter.headerLine("int main() {");
+        if (this.diagnostics.hasErrors()) {
+            return new ParseResult(null, this.diagnostics.getDiagnostics());
+        }
+        List<String> variables = new ArrayList<String>(this.symbols.size());
+        for (int i = 0; i < this.symbols.size(); i++) {
+            variables.add(this.identifierName(this.symbols.identifierId(i)));
+        }
+        return new ParseResult(new Program(statements, variables), this.diagnostics.getDiagnostics());
+    }
+    
+    private List<Statement> parseStatements() {
+        List<Statement> statements = new ArrayList<Statement>();
 
         // Since some newlines are required in our grammar, need to skip the excess.
         while (this.checkToken(TokenType.NEWLINE)) {
@@ -352,20 +544,112 @@ public class Parser {
         }
         
         // Parse all the statements in the program.
-        while (!this.checkToken(TokenType.EOF)) {
-//            this.curIndents = 1;
-            this.emitter.emitIndent(this.curIndents);
-            this.statement();
+        this.statements(statements, TokenType.EOF);
+        return statements;
+    }
+    
+    // Check that each label referenced in a GOTO the parser parsed is declared.
+    private void checkLabelsGotoed(Parser parser) {
+        for (int i = 0; i < parser.labelsGotoedCount; i++) {
+            int label = parser.labelsGotoed[i];
+            if (!this.labelsDeclared.contains(label)) {
+                this.diagnostics.report(Diagnostic.Kind.SEMANTIC, parser.labelsGotoedLines[i], parser.labelsGotoedColumns[i],
+                        "Attempting to GOTO to undeclared label: " + this.identifierName(label));
+            }
         }
+    }
+    
+    // Parses the top level regions the outline finds on the pool. Each region
+    // checks its variables and labels against where the outline saw them
+    // declared, and the regions' errors are added in source order, so the
+    // result is the same as parsing the tokens in one go.
+    private List<Statement> parseRegions() {
+        ProgramOutline outline = new ProgramOutline(this.tokens, this.regionTokens);
+        this.symbols = outline.getSymbols();
+        this.labelsDeclared = outline.getLabels();
+        int regionCount = outline.getRegionCount();
         
-        this.emitter.emitIndent(this.curIndents);
-        this.emitter.emitLine("return 0;");
-        this.emitter.emitLine("}");
+        List<Parser> regions = new ArrayList<Parser>(regionCount);
+        List<Callable<List<Statement>>> tasks = new ArrayList<Callable<List<Statement>>>(regionCount);
+        for (int i = 0; i < regionCount; i++) {
+            int end = i + 1 < regionCount ? outline.getRegionStart(i + 1) : this.tokens.size() - 1;
+            Parser region = new Parser(this.tokens, outline, outline.getRegionStart(i), end,
+                    outline.getRegionLine(i), outline.getRegionLineStart(i));
+            regions.add(region);
+            tasks.add(region::parseStatements);
+        }
         
-        // Check that each label referenced in a GOTO is declared.
-        for (String label : this.labelsGotoed) {
-            if (!this.labelsDeclared.contains(label))
-                this.abort("Attempting to GOTO to undeclared label: " + label);
+        List<Statement> statements = new ArrayList<Statement>();
+        List<Future<List<Statement>>> parsed = this.pool.invokeAll(tasks);
+        for (int i = 0; i < regionCount; i++) {
+            Parser region = regions.get(i);
+            statements.addAll(join(parsed.get(i)));
+            this.diagnostics.addAll(region.diagnostics, 0);
+            this.statementCount += region.statementCount;
+        }
+        for (Parser region : regions) {
+            this.checkLabelsGotoed(region);
+        }
+        return statements;
+    }
+    
+    private static List<Statement> join(Future<List<Statement>> region) {
+        try {
+            return region.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while parsing", e);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+    
+    // Parses a TokenBuffer's top level statements on the pool when there are
+    // several regions, and has program() generate the C on it too
+    public void setParallel(ForkJoinPool pool) {
+        this.setParallel(pool, DEFAULT_REGION_TOKENS);
+    }
+    
+    public void setParallel(ForkJoinPool pool, int regionTokens) {
+        if (regionTokens < 1) {
+            throw new IllegalArgumentException("Region size " + regionTokens);
+        }
+        this.pool = pool;
+        this.regionTokens = regionTokens;
+    }
+    
+    public int getStatementCount() {
+        return this.statementCount;
+    }
+    
+    public int getSymbolCount() {
+        return this.symbols.size();
+    }
+    
+    public int getLabelCount() {
+        return this.labelsDeclared.size();
+    }
+    
+    // Passes to run on the parsed program before program() generates the C code
+    public void addPass(Pass pass) {
+        this.passes.add(pass);
+    }
+    
+    // The parsed program after the added passes, ready for a backend
+    public Program parseAndTransform() {
+        return this.passes.run(this.parse());
+    }
+
+    public void program() {
+        CGenerator generator = new CGenerator(this.emitter);
+        if (this.pool != null) {
+            generator.setParallel(this.pool);
         }
+        generator.generate(this.parseAndTransform());
     }
-}
\ No newline at end of file
+}
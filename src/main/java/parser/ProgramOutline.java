@@ -0,0 +1,144 @@
+package parser;
+
+import lexer.TokenBuffer;
+import token.TokenType;
+
+import java.util.Arrays;
+
+// What a quick pass over the tokens can tell before parsing: where the
+// variables and labels are declared, and where top level statements
+// start, so the program can be parsed in regions at the same time.
+//
+// Every line starts a statement for the Parser, even after a syntax error,
+// so a LET or INPUT starting a line declares the identifier after it, a
+// LABEL starting a line declares its label, and IF and WHILE starting a
+// line open a block that only its own ENDIF or ENDWHILE starting a line
+// closes. The symbols get the same ids, in the same declaration order,
+// as parsing statement by statement gives them.
+class ProgramOutline {
+    private static final int NOT_DECLARED = Integer.MAX_VALUE;
+
+    private final SymbolTable symbols;
+    private final SymbolTable labels;
+    // Token index of the identifier that first declares each identifier id
+    private final int[] declaredAt;
+    private final int[] labelDeclaredAt;
+    // Token index, line and line start offset of each region's first token
+    private int[] regionStarts;
+    private int[] regionLines;
+    private int[] regionLineStarts;
+    private int regionCount;
+
+    // Splits the tokens into regions of at least regionTokens tokens
+    ProgramOutline(TokenBuffer tokens, int regionTokens) {
+        this.symbols = new SymbolTable();
+        this.labels = new SymbolTable();
+        this.declaredAt = new int[tokens.getIdentifiers().size()];
+        this.labelDeclaredAt = new int[tokens.getIdentifiers().size()];
+        Arrays.fill(this.declaredAt, NOT_DECLARED);
+        Arrays.fill(this.labelDeclaredAt, NOT_DECLARED);
+        this.regionStarts = new int[16];
+        this.regionLines = new int[16];
+        this.regionLineStarts = new int[16];
+        this.regionCount = 0;
+        this.addRegion(0, 1, 0);
+
+        // Closing keyword of each open block, innermost last
+        TokenType[] blockEnds = new TokenType[16];
+        int depth = 0;
+        boolean atLineStart = true;
+        int line = 1;
+        int lineStart = 0;
+        int last = tokens.size() - 1;
+        for (int i = 0; i < last; i++) {
+            TokenType kind = tokens.kind(i);
+            if (kind == TokenType.NEWLINE) {
+                atLineStart = true;
+                line++;
+                lineStart = tokens.end(i);
+                continue;
+            }
+            if (!atLineStart) {
+                continue;
+            }
+            atLineStart = false;
+            if (depth == 0 && i - this.regionStarts[this.regionCount - 1] >= regionTokens) {
+                this.addRegion(i, line, lineStart);
+            }
+            int identifierId = tokens.kind(i + 1) == TokenType.IDENTIFIER ? tokens.identifierId(i + 1) : -1;
+            switch (kind) {
+                case LET, INPUT -> {
+                    if (identifierId >= 0 && !this.symbols.contains(identifierId)) {
+                        this.symbols.declare(identifierId);
+                        this.declaredAt[identifierId] = i + 1;
+                    }
+                }
+                case LABEL -> {
+                    if (identifierId >= 0 && !this.labels.contains(identifierId)) {
+                        this.labels.declare(identifierId);
+                        this.labelDeclaredAt[identifierId] = i + 1;
+                    }
+                }
+                case IF, WHILE -> {
+                    if (depth == blockEnds.length) {
+                        blockEnds = Arrays.copyOf(blockEnds, depth * 2);
+                    }
+                    blockEnds[depth++] = kind == TokenType.IF ? TokenType.ENDIF : TokenType.ENDWHILE;
+                }
+                case ENDIF, ENDWHILE -> {
+                    if (depth > 0 && blockEnds[depth - 1] == kind) {
+                        depth--;
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+    }
+
+    private void addRegion(int start, int line, int lineStart) {
+        if (this.regionCount == this.regionStarts.length) {
+            this.regionStarts = Arrays.copyOf(this.regionStarts, this.regionCount * 2);
+            this.regionLines = Arrays.copyOf(this.regionLines, this.regionCount * 2);
+            this.regionLineStarts = Arrays.copyOf(this.regionLineStarts, this.regionCount * 2);
+        }
+        this.regionStarts[this.regionCount] = start;
+        this.regionLines[this.regionCount] = line;
+        this.regionLineStarts[this.regionCount] = lineStart;
+        this.regionCount++;
+    }
+
+    // All the program's variables in declaration order. Parsing only reads it.
+    SymbolTable getSymbols() {
+        return this.symbols;
+    }
+
+    SymbolTable getLabels() {
+        return this.labels;
+    }
+
+    // Whether the variable is declared by a token before tokenIndex
+    boolean isDeclaredBefore(int identifierId, int tokenIndex) {
+        return identifierId >= 0 && this.declaredAt[identifierId] < tokenIndex;
+    }
+
+    boolean isLabelDeclaredBefore(int identifierId, int tokenIndex) {
+        return identifierId >= 0 && this.labelDeclaredAt[identifierId] < tokenIndex;
+    }
+
+    int getRegionCount() {
+        return this.regionCount;
+    }
+
+    int getRegionStart(int region) {
+        return this.regionStarts[region];
+    }
+
+    int getRegionLine(int region) {
+        return this.regionLines[region];
+    }
+
+    int getRegionLineStart(int region) {
+        return this.regionLineStarts[region];
+    }
+}
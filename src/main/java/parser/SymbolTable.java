@@ -0,0 +1,61 @@
+package parser;
+
+import java.util.Arrays;
+
+// Set of declared names, keyed by their IdentifierTable id. Identifier
+// ids are small and dense, so they index straight into an array and
+// every lookup is O(1). Each name also gets a symbol id in declaration
+// order, which is the order the C declarations are written in.
+public class SymbolTable {
+    private int[] symbolIds;
+    private int[] identifierIds;
+    private int size;
+
+    public SymbolTable() {
+        this.symbolIds = new int[64];
+        this.identifierIds = new int[64];
+        this.size = 0;
+        Arrays.fill(this.symbolIds, -1);
+    }
+
+    // Symbol id of the identifier, or -1 if it isn't declared
+    public int lookup(int identifierId) {
+        if (identifierId < 0 || identifierId >= this.symbolIds.length) {
+            return -1;
+        }
+        return this.symbolIds[identifierId];
+    }
+
+    public boolean contains(int identifierId) {
+        return this.lookup(identifierId) >= 0;
+    }
+
+    // Declares the identifier if it isn't already and returns its symbol id
+    public int declare(int identifierId) {
+        int symbolId = this.lookup(identifierId);
+        if (symbolId >= 0) {
+            return symbolId;
+        }
+        if (identifierId >= this.symbolIds.length) {
+            int oldLength = this.symbolIds.length;
+            this.symbolIds = Arrays.copyOf(this.symbolIds, Math.max(oldLength * 2, identifierId + 1));
+            Arrays.fill(this.symbolIds, oldLength, this.symbolIds.length, -1);
+        }
+        if (this.size == this.identifierIds.length) {
+            this.identifierIds = Arrays.copyOf(this.identifierIds, this.size * 2);
+        }
+        symbolId = this.size++;
+        this.symbolIds[identifierId] = symbolId;
+        this.identifierIds[symbolId] = identifierId;
+        return symbolId;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    // Identifier id of the symbol declared symbolId-th
+    public int identifierId(int symbolId) {
+        return this.identifierIds[symbolId];
+    }
+}
@@ -0,0 +1,274 @@
+package pass;
+
+import ast.*;
+import token.TokenType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Computes float arithmetic that a run of straight-line statements repeats
+// only once. Within a run of LET, INPUT and PRINT statements, with no label
+// to jump into it, a subexpression computed twice from the same values of
+// its variables is stored in a new float variable by a LET before its first
+// use, and read from it after. Float results are stored exactly, so only
+// float typed operations are reused: int and double ones keep being computed.
+//
+// Values are numbered: each assignment gives a variable a new version, and
+// operations on the same versions and literals get the same number, with
+// the operands of "+" and "*" in either order. The largest repeated
+// subexpressions are picked first, and their parts are only counted where
+// the first of them computes them.
+public class CommonSubexpressionPass implements Pass {
+    // Can't clash with a source variable, which has no '_'
+    private static final String TEMPORARY_PREFIX = "cse_";
+
+    private List<String> variables;
+    private int firstTemporary;
+    private int temporaryCount;
+    // Current version of each source variable
+    private int[] versions;
+    private int versionCount;
+
+    @Override
+    public String getName() {
+        return "common-subexpressions";
+    }
+
+    @Override
+    public Program run(Program program) {
+        this.variables = new ArrayList<String>(program.getVariables());
+        this.firstTemporary = this.variables.size();
+        this.temporaryCount = 0;
+        this.versions = new int[this.firstTemporary];
+        this.versionCount = 0;
+        return new Program(this.block(program.getStatements()), this.variables);
+    }
+
+    private List<Statement> block(List<Statement> statements) {
+        List<Statement> rewritten = new ArrayList<Statement>(statements.size());
+        List<Statement> run = new ArrayList<Statement>();
+        for (Statement statement : statements) {
+            if (statement instanceof LetStatement || statement instanceof InputStatement
+                    || statement instanceof PrintStatement || statement instanceof PrintStringStatement) {
+                run.add(statement);
+                continue;
+            }
+            rewritten.addAll(this.straightLine(run));
+            run.clear();
+            if (statement instanceof IfStatement ifStatement) {
+                rewritten.add(new IfStatement(ifStatement.getCondition(), this.block(ifStatement.getBody())));
+            }
+            else if (statement instanceof WhileStatement whileStatement) {
+                rewritten.add(new WhileStatement(whileStatement.getCondition(), this.block(whileStatement.getBody())));
+            }
+            else {
+                rewritten.add(statement);
+            }
+        }
+        rewritten.addAll(this.straightLine(run));
+        return rewritten;
+    }
+
+    private List<Statement> straightLine(List<Statement> run) {
+        if (run.size() < 2) {
+            return run;
+        }
+        ValueNumbering numbering = new ValueNumbering();
+        for (int i = 0; i < run.size(); i++) {
+            Statement statement = run.get(i);
+            if (statement instanceof LetStatement let) {
+                numbering.number(let.getExpression(), i);
+                this.assign(let.getVariable());
+            }
+            else if (statement instanceof PrintStatement print) {
+                numbering.number(print.getExpression(), i);
+            }
+            else if (statement instanceof InputStatement input) {
+                this.assign(input.getVariable());
+            }
+        }
+
+        Map<Expression, VariableExpression> reused = new IdentityHashMap<Expression, VariableExpression>();
+        List<List<LetStatement>> definitions = new ArrayList<List<LetStatement>>(run.size());
+        for (int i = 0; i < run.size(); i++) {
+            definitions.add(new ArrayList<LetStatement>());
+        }
+        List<int[]> repeated = numbering.repeated();
+        if (repeated.isEmpty()) {
+            return run;
+        }
+        TreeRewriter rewriter = new TreeRewriter() {
+            @Override
+            public Expression expression(Expression expression) {
+                VariableExpression temporary = reused.get(expression);
+                return temporary != null ? temporary : super.expression(expression);
+            }
+        };
+        List<BinaryExpression> firsts = new ArrayList<BinaryExpression>(repeated.size());
+        List<VariableExpression> temporaries = new ArrayList<VariableExpression>(repeated.size());
+        for (int[] occurrences : repeated) {
+            VariableExpression temporary = this.temporary(temporaries.size());
+            for (int node : occurrences) {
+                reused.put(numbering.nodes.get(node), temporary);
+            }
+            firsts.add((BinaryExpression) numbering.nodes.get(occurrences[0]));
+            temporaries.add(temporary);
+        }
+        // The first use computes the value, reusing the values inside it
+        for (int i = 0; i < repeated.size(); i++) {
+            BinaryExpression first = firsts.get(i);
+            Expression value = new BinaryExpression(first.getOperator(),
+                    rewriter.expression(first.getLeft()), rewriter.expression(first.getRight()));
+            definitions.get(numbering.statements[repeated.get(i)[0]]).add(new LetStatement(temporaries.get(i), value));
+        }
+        List<Statement> rewritten = new ArrayList<Statement>(run.size() + repeated.size());
+        for (int i = 0; i < run.size(); i++) {
+            rewritten.addAll(definitions.get(i));
+            rewritten.add(rewriter.statement(run.get(i)));
+        }
+        return rewritten;
+    }
+
+    private void assign(VariableExpression variable) {
+        this.versions[variable.getSymbolId()] = ++this.versionCount;
+    }
+
+    // The index-th temporary of a run. Runs don't overlap, so they share them.
+    private VariableExpression temporary(int index) {
+        if (index == this.temporaryCount) {
+            this.variables.add(TEMPORARY_PREFIX + index);
+            this.temporaryCount++;
+        }
+        return new VariableExpression(TEMPORARY_PREFIX + index, this.firstTemporary + index);
+    }
+
+    // Value numbers of the expressions of one run. The float operations that
+    // could be reused are its nodes, numbered in post-order, so the nodes
+    // inside a node are the ones just before it.
+    private class ValueNumbering {
+        private final Map<String, Integer> numbers;
+        private final List<Expression> nodes;
+        private int[] nodeNumbers;
+        private int[] nodeSizes;
+        // First node inside each node, itself if there is none
+        private int[] nodeStarts;
+        private int[] statements;
+
+        ValueNumbering() {
+            this.numbers = new HashMap<String, Integer>();
+            this.nodes = new ArrayList<Expression>();
+            this.nodeNumbers = new int[16];
+            this.nodeSizes = new int[16];
+            this.nodeStarts = new int[16];
+            this.statements = new int[16];
+        }
+
+        void number(Expression expression, int statement) {
+            this.value(expression, statement, new int[1]);
+        }
+
+        // Value number of the expression; its node count is added to size
+        private int value(Expression expression, int statement, int[] size) {
+            if (expression instanceof GroupExpression group) {
+                return this.value(group.getInner(), statement, size);
+            }
+            size[0]++;
+            if (expression instanceof NumberLiteral number) {
+                return this.intern("n" + number.getType() + number.getText());
+            }
+            else if (expression instanceof VariableExpression variable) {
+                int symbolId = variable.getSymbolId();
+                int version = symbolId < versions.length ? versions[symbolId] : -1;
+                return this.intern("v" + symbolId + "." + version);
+            }
+            else if (expression instanceof UnaryExpression unary) {
+                return this.intern("u" + unary.getOperator() + " " + this.value(unary.getOperand(), statement, size));
+            }
+            else if (expression instanceof BinaryExpression binary) {
+                int start = this.nodes.size();
+                int[] operandSize = new int[1];
+                int left = this.value(binary.getLeft(), statement, operandSize);
+                int right = this.value(binary.getRight(), statement, operandSize);
+                size[0] += operandSize[0];
+                TokenType operator = binary.getOperator();
+                if ((operator == TokenType.PLUS || operator == TokenType.ASTERISK) && right < left) {
+                    int swap = left;
+                    left = right;
+                    right = swap;
+                }
+                int number = this.intern("b" + operator + " " + left + " " + right);
+                if (binary.isArithmetic() && binary.getType() == CType.FLOAT) {
+                    this.add(binary, number, operandSize[0] + 1, start, statement);
+                }
+                return number;
+            }
+            throw new IllegalArgumentException("Unknown expression " + expression);
+        }
+
+        private int intern(String key) {
+            Integer number = this.numbers.get(key);
+            if (number == null) {
+                number = this.numbers.size();
+                this.numbers.put(key, number);
+            }
+            return number;
+        }
+
+        private void add(Expression node, int number, int size, int start, int statement) {
+            int index = this.nodes.size();
+            if (index == this.nodeNumbers.length) {
+                this.nodeNumbers = Arrays.copyOf(this.nodeNumbers, index * 2);
+                this.nodeSizes = Arrays.copyOf(this.nodeSizes, index * 2);
+                this.nodeStarts = Arrays.copyOf(this.nodeStarts, index * 2);
+                this.statements = Arrays.copyOf(this.statements, index * 2);
+            }
+            this.nodes.add(node);
+            this.nodeNumbers[index] = number;
+            this.nodeSizes[index] = size;
+            this.nodeStarts[index] = start;
+            this.statements[index] = statement;
+        }
+
+        // The nodes to replace by a temporary, a list per value in order of
+        // first use, largest values picked first
+        List<int[]> repeated() {
+            Map<Integer, List<Integer>> occurrences = new HashMap<Integer, List<Integer>>();
+            for (int i = 0; i < this.nodes.size(); i++) {
+                occurrences.computeIfAbsent(this.nodeNumbers[i], number -> new ArrayList<Integer>()).add(i);
+            }
+            List<List<Integer>> candidates = new ArrayList<List<Integer>>();
+            for (List<Integer> nodes : occurrences.values()) {
+                if (nodes.size() > 1) {
+                    candidates.add(nodes);
+                }
+            }
+            candidates.sort((a, b) -> Integer.compare(this.nodeSizes[b.get(0)], this.nodeSizes[a.get(0)]));
+
+            boolean[] covered = new boolean[this.nodes.size()];
+            List<int[]> picked = new ArrayList<int[]>();
+            for (List<Integer> nodes : candidates) {
+                int[] live = new int[nodes.size()];
+                int liveCount = 0;
+                for (int node : nodes) {
+                    if (!covered[node]) {
+                        live[liveCount++] = node;
+                    }
+                }
+                if (liveCount < 2) {
+                    continue;
+                }
+                // What's inside the first is still computed, to define the temporary
+                for (int i = 1; i < liveCount; i++) {
+                    Arrays.fill(covered, this.nodeStarts[live[i]], live[i], true);
+                }
+                picked.add(Arrays.copyOf(live, liveCount));
+            }
+            picked.sort((a, b) -> Integer.compare(a[0], b[0]));
+            return picked;
+        }
+    }
+}
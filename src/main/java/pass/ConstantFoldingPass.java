@@ -0,0 +1,214 @@
+package pass;
+
+import ast.*;
+import token.TokenType;
+
+import java.util.List;
+
+// Evaluates operators whose operands are constants, with the same int,
+// float and double arithmetic the generated C would do at runtime.
+// Nothing is folded that C leaves undefined (int overflow, int division
+// by zero) or that has no literal (infinity, NaN).
+//
+// Variables assigned a constant exactly once, by a LET at the top level
+// of the program that no GOTO can jump over, are replaced by that
+// constant as a float literal everywhere after the LET.
+public class ConstantFoldingPass extends TreeRewriter implements Pass {
+    private double[] constants;
+    private boolean[] known;
+    private LetStatement[] constantDefinitions;
+
+    @Override
+    public String getName() {
+        return "constant-folding";
+    }
+
+    @Override
+    public Program run(Program program) {
+        int variables = program.getVariables().size();
+        this.constants = new double[variables];
+        this.known = new boolean[variables];
+        this.constantDefinitions = new SingleDefinitions(variables).find(program.getStatements());
+        return new Program(this.statements(program.getStatements()), program.getVariables());
+    }
+
+    @Override
+    public Statement statement(Statement statement) {
+        Statement rewritten = super.statement(statement);
+        if (statement instanceof LetStatement let) {
+            int symbolId = let.getVariable().getSymbolId();
+            if (this.constantDefinitions[symbolId] == let) {
+                Double value = constantValue(((LetStatement) rewritten).getExpression());
+                if (value != null) {
+                    // Assigning to a float variable converts the value to float
+                    double floatValue = CArithmetic.convert(value, CType.FLOAT);
+                    if (Double.isFinite(floatValue)) {
+                        this.constants[symbolId] = floatValue;
+                        this.known[symbolId] = true;
+                    }
+                }
+            }
+        }
+        return rewritten;
+    }
+
+    @Override
+    public Expression expression(Expression expression) {
+        if (expression instanceof VariableExpression variable) {
+            if (this.known[variable.getSymbolId()]) {
+                return constant(this.constants[variable.getSymbolId()], CType.FLOAT);
+            }
+            return variable;
+        }
+        else if (expression instanceof GroupExpression group) {
+            Expression inner = this.expression(group.getInner());
+            if (constantValue(inner) != null) {
+                return inner;
+            }
+            return new GroupExpression(inner);
+        }
+        else if (expression instanceof UnaryExpression unary) {
+            Expression operand = this.expression(unary.getOperand());
+            Double value = constantValue(operand);
+            if (value != null) {
+                double result = CArithmetic.unary(unary.getOperator(), operand.getType(), value);
+                Expression folded = constant(result, new UnaryExpression(unary.getOperator(), operand).getType());
+                if (folded != null) {
+                    return folded;
+                }
+            }
+            return new UnaryExpression(unary.getOperator(), operand);
+        }
+        else if (expression instanceof BinaryExpression binary) {
+            return this.binary(binary.getOperator(), this.expression(binary.getLeft()), this.expression(binary.getRight()));
+        }
+        return expression;
+    }
+
+    private Expression binary(TokenType operator, Expression left, Expression right) {
+        Double leftValue = constantValue(left);
+        Double rightValue = constantValue(right);
+        BinaryExpression unfolded = new BinaryExpression(operator, left, right);
+        if (leftValue != null && rightValue != null && isDefined(unfolded, leftValue, rightValue)) {
+            double result = CArithmetic.binary(operator, unfolded.getOperandType(), leftValue, rightValue);
+            Expression folded = constant(result, unfolded.getType());
+            if (folded != null) {
+                return folded;
+            }
+        }
+        // The right side of && and || isn't evaluated once the left decides the result
+        if (leftValue != null && operator == TokenType.AND && leftValue == 0) {
+            return constant(0, CType.INT);
+        }
+        if (leftValue != null && operator == TokenType.OR && leftValue != 0) {
+            return constant(1, CType.INT);
+        }
+        // Keep "a - -5" and "a - -5 * b" from being written with the C decrement "a--5"
+        if ((operator == TokenType.PLUS || operator == TokenType.MINUS) && startsWithSign(right)) {
+            right = new GroupExpression(right);
+        }
+        return new BinaryExpression(operator, left, right);
+    }
+
+    // Whether C defines the result: int arithmetic must not overflow or divide by zero
+    private static boolean isDefined(BinaryExpression binary, double left, double right) {
+        if (!binary.isArithmetic() || binary.getOperandType() != CType.INT) {
+            return true;
+        }
+        long a = (long) left;
+        long b = (long) right;
+        long result = switch (binary.getOperator()) {
+            case PLUS -> a + b;
+            case MINUS -> a - b;
+            case ASTERISK -> a * b;
+            default -> b == 0 ? Long.MAX_VALUE : a / b;
+        };
+        return result >= Integer.MIN_VALUE && result <= Integer.MAX_VALUE;
+    }
+
+    // Value of an expression made only of literals, null otherwise
+    public static Double constantValue(Expression expression) {
+        if (expression instanceof NumberLiteral number) {
+            return number.getValue();
+        }
+        else if (expression instanceof GroupExpression group) {
+            return constantValue(group.getInner());
+        }
+        else if (expression instanceof UnaryExpression unary && unary.getOperator() != TokenType.NOT) {
+            Double value = constantValue(unary.getOperand());
+            if (value != null) {
+                return CArithmetic.unary(unary.getOperator(), unary.getOperand().getType(), value);
+            }
+        }
+        return null;
+    }
+
+    // Literal for the value in the given type, negative values as "-" and a
+    // positive literal. Null if C has no literal for the value.
+    public static Expression constant(double value, CType type) {
+        if (!Double.isFinite(value) || (type == CType.INT && value == Integer.MIN_VALUE)) {
+            return null;
+        }
+        double magnitude = Math.abs(value);
+        String text = switch (type) {
+            case INT -> Integer.toString((int) magnitude);
+            case FLOAT -> Float.toString((float) magnitude) + "f";
+            case DOUBLE -> Double.toString(magnitude);
+        };
+        NumberLiteral literal = new NumberLiteral(text, type, magnitude);
+        if (Math.copySign(1.0, value) < 0) {
+            return new UnaryExpression(TokenType.MINUS, literal);
+        }
+        return literal;
+    }
+
+    // Finds the variables that have a single definition: one top level LET
+    // that no earlier GOTO can skip, and no INPUT
+    private static class SingleDefinitions {
+        private final int[] lets;
+        private final boolean[] inputs;
+        private final LetStatement[] definitions;
+        private boolean gotoSeen;
+
+        SingleDefinitions(int variables) {
+            this.lets = new int[variables];
+            this.inputs = new boolean[variables];
+            this.definitions = new LetStatement[variables];
+            this.gotoSeen = false;
+        }
+
+        LetStatement[] find(List<Statement> statements) {
+            this.walk(statements, true);
+            for (int i = 0; i < this.definitions.length; i++) {
+                if (this.lets[i] != 1 || this.inputs[i]) {
+                    this.definitions[i] = null;
+                }
+            }
+            return this.definitions;
+        }
+
+        private void walk(List<Statement> statements, boolean topLevel) {
+            for (Statement statement : statements) {
+                if (statement instanceof GotoStatement) {
+                    this.gotoSeen = true;
+                }
+                else if (statement instanceof LetStatement let) {
+                    int symbolId = let.getVariable().getSymbolId();
+                    this.lets[symbolId]++;
+                    if (topLevel && !this.gotoSeen) {
+                        this.definitions[symbolId] = let;
+                    }
+                }
+                else if (statement instanceof InputStatement input) {
+                    this.inputs[input.getVariable().getSymbolId()] = true;
+                }
+                else if (statement instanceof IfStatement ifStatement) {
+                    this.walk(ifStatement.getBody(), false);
+                }
+                else if (statement instanceof WhileStatement whileStatement) {
+                    this.walk(whileStatement.getBody(), false);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package pass;
+
+import ast.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Removes code that can't affect the program's output:
+//  - statements after a GOTO that no label makes reachable again
+//  - IF and WHILE blocks whose condition is the constant 0
+//  - labels that no GOTO jumps to
+//  - LETs whose value is overwritten or the program ends before it is read
+//  - variables that are never read, with all their LETs
+// Removing one statement can make another dead, so this repeats until
+// nothing changes. Remaining variables are renumbered in their original order.
+public class DeadCodeEliminationPass implements Pass {
+    @Override
+    public String getName() {
+        return "dead-code";
+    }
+
+    @Override
+    public Program run(Program program) {
+        List<Statement> statements = program.getStatements();
+        int variables = program.getVariables().size();
+        boolean changed = true;
+        while (changed) {
+            Eliminator eliminator = new Eliminator(new Usage(variables).walk(statements));
+            statements = eliminator.block(statements, true);
+            changed = eliminator.changed;
+        }
+        return renumber(program, statements, new Usage(variables).walk(statements));
+    }
+
+    private static Program renumber(Program program, List<Statement> statements, Usage usage) {
+        int[] newIds = new int[usage.reads.length];
+        List<String> variables = new ArrayList<String>();
+        for (int i = 0; i < newIds.length; i++) {
+            if (usage.isUsed(i)) {
+                newIds[i] = variables.size();
+                variables.add(program.getVariables().get(i));
+            } else {
+                newIds[i] = -1;
+            }
+        }
+        if (variables.size() == newIds.length) {
+            return new Program(statements, program.getVariables());
+        }
+
+        TreeRewriter renumberer = new TreeRewriter() {
+            @Override
+            public Statement statement(Statement statement) {
+                if (statement instanceof LetStatement let) {
+                    return new LetStatement(this.variable(let.getVariable()), this.expression(let.getExpression()));
+                }
+                else if (statement instanceof InputStatement input) {
+                    return new InputStatement(this.variable(input.getVariable()));
+                }
+                return super.statement(statement);
+            }
+
+            @Override
+            public Expression expression(Expression expression) {
+                if (expression instanceof VariableExpression variable) {
+                    return this.variable(variable);
+                }
+                return super.expression(expression);
+            }
+
+            private VariableExpression variable(VariableExpression variable) {
+                return new VariableExpression(variable.getName(), newIds[variable.getSymbolId()]);
+            }
+        };
+        return new Program(renumberer.statements(statements), variables);
+    }
+
+    // How often each variable is read, which are assigned or read by INPUT,
+    // and which labels are GOTO targets
+    private static class Usage {
+        private final int[] reads;
+        private final boolean[] assigned;
+        private final boolean[] inputs;
+        private final Set<String> targets;
+
+        Usage(int variables) {
+            this.reads = new int[variables];
+            this.assigned = new boolean[variables];
+            this.inputs = new boolean[variables];
+            this.targets = new HashSet<String>();
+        }
+
+        Usage walk(List<Statement> statements) {
+            for (Statement statement : statements) {
+                if (statement instanceof PrintStatement print) {
+                    this.expression(print.getExpression());
+                }
+                else if (statement instanceof LetStatement let) {
+                    this.assigned[let.getVariable().getSymbolId()] = true;
+                    this.expression(let.getExpression());
+                }
+                else if (statement instanceof InputStatement input) {
+                    this.inputs[input.getVariable().getSymbolId()] = true;
+                }
+                else if (statement instanceof GotoStatement gotoStatement) {
+                    this.targets.add(gotoStatement.getLabel());
+                }
+                else if (statement instanceof IfStatement ifStatement) {
+                    this.expression(ifStatement.getCondition());
+                    this.walk(ifStatement.getBody());
+                }
+                else if (statement instanceof WhileStatement whileStatement) {
+                    this.expression(whileStatement.getCondition());
+                    this.walk(whileStatement.getBody());
+                }
+            }
+            return this;
+        }
+
+        private void expression(Expression expression) {
+            if (expression instanceof VariableExpression variable) {
+                this.reads[variable.getSymbolId()]++;
+            }
+            else if (expression instanceof UnaryExpression unary) {
+                this.expression(unary.getOperand());
+            }
+            else if (expression instanceof BinaryExpression binary) {
+                this.expression(binary.getLeft());
+                this.expression(binary.getRight());
+            }
+            else if (expression instanceof GroupExpression group) {
+                this.expression(group.getInner());
+            }
+        }
+
+        // INPUT still has to consume its input, so its variable stays
+        boolean isLive(int symbolId) {
+            return this.reads[symbolId] > 0 || this.inputs[symbolId];
+        }
+
+        boolean isUsed(int symbolId) {
+            return this.isLive(symbolId) || this.assigned[symbolId];
+        }
+    }
+
+    private static class Eliminator extends TreeRewriter {
+        private final Usage usage;
+        private boolean changed;
+        // Index of each variable's unread LET in the block removeDeadStores is
+        // searching, -1 for none. Shared by all blocks and only the variables
+        // in pendingSymbols are reset, so a block costs time for its own
+        // statements rather than for every variable in the program.
+        private final int[] pending;
+        private int[] pendingSymbols;
+        private int pendingCount;
+
+        Eliminator(Usage usage) {
+            this.usage = usage;
+            this.changed = false;
+            this.pending = new int[usage.reads.length];
+            Arrays.fill(this.pending, -1);
+            this.pendingSymbols = new int[16];
+            this.pendingCount = 0;
+        }
+
+        @Override
+        public List<Statement> statements(List<Statement> statements) {
+            return this.block(statements, false);
+        }
+
+        List<Statement> block(List<Statement> statements, boolean topLevel) {
+            List<Statement> kept = new ArrayList<Statement>(statements.size());
+            boolean reachable = true;
+            for (Statement statement : statements) {
+                boolean jumpedTo = this.containsTarget(statement);
+                if (jumpedTo) {
+                    reachable = true;
+                }
+                if (!reachable || (!jumpedTo && this.isDead(statement))) {
+                    this.changed = true;
+                    continue;
+                }
+                kept.add(this.statement(statement));
+                if (statement instanceof GotoStatement) {
+                    reachable = false;
+                }
+            }
+            return this.removeDeadStores(kept, topLevel);
+        }
+
+        private boolean isDead(Statement statement) {
+            if (statement instanceof LabelStatement) {
+                return true;
+            }
+            else if (statement instanceof LetStatement let) {
+                return !this.usage.isLive(let.getVariable().getSymbolId());
+            }
+            else if (statement instanceof IfStatement ifStatement) {
+                return isFalse(ifStatement.getCondition());
+            }
+            else if (statement instanceof WhileStatement whileStatement) {
+                return isFalse(whileStatement.getCondition());
+            }
+            return false;
+        }
+
+        private static boolean isFalse(Expression condition) {
+            Double value = ConstantFoldingPass.constantValue(condition);
+            return value != null && value == 0;
+        }
+
+        // Whether a GOTO can enter the statement: a targeted label, or a block holding one
+        private boolean containsTarget(Statement statement) {
+            if (statement instanceof LabelStatement label) {
+                return this.usage.targets.contains(label.getName());
+            }
+            List<Statement> body = null;
+            if (statement instanceof IfStatement ifStatement) {
+                body = ifStatement.getBody();
+            }
+            else if (statement instanceof WhileStatement whileStatement) {
+                body = whileStatement.getBody();
+            }
+            if (body != null) {
+                for (Statement inner : body) {
+                    if (this.containsTarget(inner)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        // A LET is dead when the same block assigns the variable again before
+        // anything reads it, or when it is one of the last assignments of the
+        // program. Anything that may jump or read ends the search.
+        private List<Statement> removeDeadStores(List<Statement> statements, boolean topLevel) {
+            int[] pending = this.pending;
+            boolean[] dead = new boolean[statements.size()];
+            boolean found = false;
+            for (int i = 0; i < statements.size(); i++) {
+                Statement statement = statements.get(i);
+                if (statement instanceof LetStatement let) {
+                    clearReads(pending, let.getExpression());
+                    int symbolId = let.getVariable().getSymbolId();
+                    if (pending[symbolId] >= 0) {
+                        dead[pending[symbolId]] = true;
+                        found = true;
+                    }
+                    pending[symbolId] = i;
+                    this.addPending(symbolId);
+                }
+                else if (statement instanceof PrintStatement print) {
+                    clearReads(pending, print.getExpression());
+                }
+                else if (statement instanceof InputStatement input) {
+                    // scanf leaves the old value when input has ended
+                    pending[input.getVariable().getSymbolId()] = -1;
+                }
+                else if (!(statement instanceof PrintStringStatement)) {
+                    this.clearPending();
+                }
+            }
+            if (topLevel) {
+                for (int i = 0; i < this.pendingCount; i++) {
+                    int index = pending[this.pendingSymbols[i]];
+                    if (index >= 0) {
+                        dead[index] = true;
+                        found = true;
+                    }
+                }
+            }
+            this.clearPending();
+            if (!found) {
+                return statements;
+            }
+
+            this.changed = true;
+            List<Statement> kept = new ArrayList<Statement>(statements.size());
+            for (int i = 0; i < statements.size(); i++) {
+                if (!dead[i]) {
+                    kept.add(statements.get(i));
+                }
+            }
+            return kept;
+        }
+
+        private void addPending(int symbolId) {
+            if (this.pendingCount == this.pendingSymbols.length) {
+                this.pendingSymbols = Arrays.copyOf(this.pendingSymbols, this.pendingCount * 2);
+            }
+            this.pendingSymbols[this.pendingCount++] = symbolId;
+        }
+
+        private void clearPending() {
+            for (int i = 0; i < this.pendingCount; i++) {
+                this.pending[this.pendingSymbols[i]] = -1;
+            }
+            this.pendingCount = 0;
+        }
+
+        private static void clearReads(int[] pending, Expression expression) {
+            if (expression instanceof VariableExpression variable) {
+                pending[variable.getSymbolId()] = -1;
+            }
+            else if (expression instanceof UnaryExpression unary) {
+                clearReads(pending, unary.getOperand());
+            }
+            else if (expression instanceof BinaryExpression binary) {
+                clearReads(pending, binary.getLeft());
+                clearReads(pending, binary.getRight());
+            }
+            else if (expression instanceof GroupExpression group) {
+                clearReads(pending, group.getInner());
+            }
+        }
+    }
+}
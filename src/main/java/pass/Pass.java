@@ -0,0 +1,12 @@
+package pass;
+
+import ast.Program;
+
+// An analysis or transformation run over the parsed program before code
+// generation. Passes return the program to hand to the next pass, which
+// is the same program if nothing changed.
+public interface Pass {
+    String getName();
+
+    Program run(Program program);
+}
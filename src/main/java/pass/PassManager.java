@@ -0,0 +1,47 @@
+package pass;
+
+import ast.Program;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Runs passes in the order they were added
+public class PassManager implements Pass {
+    private final List<Pass> passes;
+
+    public PassManager() {
+        this.passes = new ArrayList<Pass>();
+    }
+
+    // The passes run by "-O"
+    public static PassManager optimizations() {
+        return new PassManager()
+                .add(new ConstantFoldingPass())
+                .add(new StrengthReductionPass())
+                .add(new DeadCodeEliminationPass())
+                .add(new CommonSubexpressionPass())
+                .add(new PeepholePass());
+    }
+
+    @Override
+    public String getName() {
+        return "pass-manager";
+    }
+
+    public PassManager add(Pass pass) {
+        this.passes.add(pass);
+        return this;
+    }
+
+    public List<Pass> getPasses() {
+        return this.passes;
+    }
+
+    @Override
+    public Program run(Program program) {
+        for (Pass pass : this.passes) {
+            program = pass.run(program);
+        }
+        return program;
+    }
+}
@@ -0,0 +1,111 @@
+package pass;
+
+import ast.*;
+import token.TokenType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Small local rewrites that leave the generated C shorter but doing the same:
+//  - no (float) cast when printing a value that is already a float
+//  - no IF with an empty body, as conditions have no side effects
+//  - no parentheses that C's precedence makes unnecessary, except around
+//    a unary operator, where they keep "-" and "+" signs apart
+//  - no GOTO to a label that immediately follows it
+// An empty WHILE is kept, since whether it ends depends on its condition.
+public class PeepholePass extends TreeRewriter implements Pass {
+    @Override
+    public String getName() {
+        return "peephole";
+    }
+
+    @Override
+    public Program run(Program program) {
+        return new Program(this.statements(program.getStatements()), program.getVariables());
+    }
+
+    @Override
+    public List<Statement> statements(List<Statement> statements) {
+        List<Statement> rewritten = super.statements(statements);
+        List<Statement> kept = new ArrayList<Statement>(rewritten.size());
+        for (int i = 0; i < rewritten.size(); i++) {
+            Statement statement = rewritten.get(i);
+            if (!(statement instanceof GotoStatement gotoStatement && fallsThroughTo(rewritten, i + 1, gotoStatement.getLabel()))) {
+                kept.add(statement);
+            }
+        }
+        return kept;
+    }
+
+    // Whether the label is among the labels starting at from
+    private static boolean fallsThroughTo(List<Statement> statements, int from, String label) {
+        for (int i = from; i < statements.size() && statements.get(i) instanceof LabelStatement next; i++) {
+            if (next.getName().equals(label)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Statement statement(Statement statement) {
+        Statement rewritten = super.statement(statement);
+        if (rewritten instanceof PrintStatement print) {
+            Expression expression = print.getExpression();
+            return new PrintStatement(expression, print.hasCast() && expression.getType() != CType.FLOAT);
+        }
+        else if (rewritten instanceof IfStatement ifStatement && ifStatement.getBody().isEmpty()) {
+            return null;
+        }
+        return rewritten;
+    }
+
+    // A whole expression, which never needs parentheses around it
+    @Override
+    public Expression expression(Expression expression) {
+        Expression simplified = this.simplify(expression);
+        while (simplified instanceof GroupExpression group) {
+            simplified = group.getInner();
+        }
+        return simplified;
+    }
+
+    private Expression simplify(Expression expression) {
+        if (expression instanceof GroupExpression group) {
+            Expression inner = this.simplify(group.getInner());
+            if (inner instanceof GroupExpression || inner instanceof NumberLiteral || inner instanceof VariableExpression) {
+                return inner;
+            }
+            return new GroupExpression(inner);
+        }
+        else if (expression instanceof UnaryExpression unary) {
+            return new UnaryExpression(unary.getOperator(), this.simplify(unary.getOperand()));
+        }
+        else if (expression instanceof BinaryExpression binary) {
+            TokenType operator = binary.getOperator();
+            Expression left = operand(this.simplify(binary.getLeft()), operator, true);
+            Expression right = operand(this.simplify(binary.getRight()), operator, false);
+            // Keep "a - (-b * c)" from being written with the C decrement "a--b*c",
+            // including when parentheses lower down the operand were removed
+            if ((operator == TokenType.PLUS || operator == TokenType.MINUS) && startsWithSign(right)) {
+                right = new GroupExpression(right);
+            }
+            return new BinaryExpression(operator, left, right);
+        }
+        return expression;
+    }
+
+    // The operand without its parentheses if C reads it the same way
+    // without them. Operators of the same precedence group to the left.
+    private static Expression operand(Expression operand, TokenType operator, boolean left) {
+        if (!(operand instanceof GroupExpression group) || !(group.getInner() instanceof BinaryExpression inner)) {
+            return operand;
+        }
+        int innerPrecedence = BinaryExpression.precedence(inner.getOperator());
+        int precedence = BinaryExpression.precedence(operator);
+        if (left ? innerPrecedence >= precedence : innerPrecedence > precedence) {
+            return inner;
+        }
+        return operand;
+    }
+}
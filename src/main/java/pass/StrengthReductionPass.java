@@ -0,0 +1,82 @@
+package pass;
+
+import ast.*;
+import token.TokenType;
+
+// Replaces operations with cheaper ones that give exactly the same result:
+//  - x / c with x * (1 / c) when c is a constant power of two, whose
+//    reciprocal is exact, so both round the same true quotient
+//  - x * 2 and 2 * x with x + x when x is a float variable, in float
+//    arithmetic, where doubling is exact either way
+// Int division is left alone, it truncates.
+public class StrengthReductionPass extends TreeRewriter implements Pass {
+    @Override
+    public String getName() {
+        return "strength-reduction";
+    }
+
+    @Override
+    public Program run(Program program) {
+        return new Program(this.statements(program.getStatements()), program.getVariables());
+    }
+
+    @Override
+    public Expression expression(Expression expression) {
+        Expression rewritten = super.expression(expression);
+        if (!(rewritten instanceof BinaryExpression binary)) {
+            return rewritten;
+        }
+        CType operandType = binary.getOperandType();
+        if (binary.getOperator() == TokenType.SLASH && operandType != CType.INT) {
+            Expression reciprocal = reciprocal(binary.getRight(), operandType);
+            if (reciprocal != null) {
+                return new BinaryExpression(TokenType.ASTERISK, binary.getLeft(), reciprocal);
+            }
+        }
+        else if (binary.getOperator() == TokenType.ASTERISK && operandType == CType.FLOAT) {
+            if (isTwo(binary.getRight()) && variable(binary.getLeft()) != null) {
+                return doubled(variable(binary.getLeft()));
+            }
+            if (isTwo(binary.getLeft()) && variable(binary.getRight()) != null) {
+                return doubled(variable(binary.getRight()));
+            }
+        }
+        return rewritten;
+    }
+
+    // In parentheses, as the product may be an operand of a tighter operator
+    private static Expression doubled(VariableExpression variable) {
+        return new GroupExpression(new BinaryExpression(TokenType.PLUS, variable, variable));
+    }
+
+    // Literal for 1 / divisor in the operation's type, null unless the
+    // divisor is a constant power of two with a reciprocal in that type
+    private static Expression reciprocal(Expression divisor, CType type) {
+        Double value = ConstantFoldingPass.constantValue(divisor);
+        if (value == null) {
+            return null;
+        }
+        double converted = CArithmetic.convert(value, type);
+        if (converted == 0 || !Double.isFinite(converted)
+                || Math.abs(converted) != Math.scalb(1.0, Math.getExponent(converted))) {
+            return null;
+        }
+        double reciprocal = 1.0 / converted;
+        if (CArithmetic.convert(reciprocal, type) != reciprocal) {
+            return null;
+        }
+        return ConstantFoldingPass.constant(reciprocal, type);
+    }
+
+    private static boolean isTwo(Expression expression) {
+        Double value = ConstantFoldingPass.constantValue(expression);
+        return value != null && value == 2;
+    }
+
+    private static VariableExpression variable(Expression expression) {
+        while (expression instanceof GroupExpression group) {
+            expression = group.getInner();
+        }
+        return expression instanceof VariableExpression variable ? variable : null;
+    }
+}
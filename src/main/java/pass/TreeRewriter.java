@@ -0,0 +1,63 @@
+package pass;
+
+import ast.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Base for passes that rebuild the tree. Each method rebuilds a node from
+// its rewritten children; subclasses override the nodes they change.
+public abstract class TreeRewriter {
+    public List<Statement> statements(List<Statement> statements) {
+        List<Statement> rewritten = new ArrayList<Statement>(statements.size());
+        for (Statement statement : statements) {
+            Statement result = this.statement(statement);
+            if (result != null) {
+                rewritten.add(result);
+            }
+        }
+        return rewritten;
+    }
+
+    // Returns null to remove the statement
+    public Statement statement(Statement statement) {
+        if (statement instanceof PrintStatement print) {
+            return new PrintStatement(this.expression(print.getExpression()), print.hasCast());
+        }
+        else if (statement instanceof LetStatement let) {
+            return new LetStatement(let.getVariable(), this.expression(let.getExpression()));
+        }
+        else if (statement instanceof IfStatement ifStatement) {
+            Expression condition = this.expression(ifStatement.getCondition());
+            return new IfStatement(condition, this.statements(ifStatement.getBody()));
+        }
+        else if (statement instanceof WhileStatement whileStatement) {
+            Expression condition = this.expression(whileStatement.getCondition());
+            return new WhileStatement(condition, this.statements(whileStatement.getBody()));
+        }
+        return statement;
+    }
+
+    public Expression expression(Expression expression) {
+        if (expression instanceof UnaryExpression unary) {
+            return new UnaryExpression(unary.getOperator(), this.expression(unary.getOperand()));
+        }
+        else if (expression instanceof BinaryExpression binary) {
+            Expression left = this.expression(binary.getLeft());
+            Expression right = this.expression(binary.getRight());
+            return new BinaryExpression(binary.getOperator(), left, right);
+        }
+        else if (expression instanceof GroupExpression group) {
+            return new GroupExpression(this.expression(group.getInner()));
+        }
+        return expression;
+    }
+
+    // Whether the C for the expression starts with a unary operator
+    protected static boolean startsWithSign(Expression expression) {
+        while (expression instanceof BinaryExpression binary) {
+            expression = binary.getLeft();
+        }
+        return expression instanceof UnaryExpression;
+    }
+}
@@ -0,0 +1,145 @@
+package runtime;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+
+// PRINT and INPUT for programs run on the JVM, behaving like the printf
+// and scanf calls in the generated C
+public class ProgramIO implements Flushable {
+    private final PushbackReader in;
+    private final Writer out;
+    private final StringBuilder number;
+
+    public ProgramIO(InputStream in, OutputStream out) {
+        this(new InputStreamReader(in, StandardCharsets.UTF_8), new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    public ProgramIO(Reader in, Writer out) {
+        this.in = new PushbackReader(new BufferedReader(in), 3);
+        this.out = new BufferedWriter(out);
+        this.number = new StringBuilder();
+    }
+
+    // printf("text\n")
+    public void printString(String text) throws IOException {
+        this.out.write(text);
+        this.out.write('\n');
+    }
+
+    // printf("%.2f\n", (float)(value))
+    public void printNumber(float value) throws IOException {
+        this.out.write(format(value));
+        this.out.write('\n');
+    }
+
+    public static String format(float value) {
+        boolean negative = (Float.floatToRawIntBits(value) & 0x80000000) != 0;
+        if (Float.isNaN(value)) {
+            return negative ? "-nan" : "nan";
+        }
+        if (Float.isInfinite(value)) {
+            return negative ? "-inf" : "inf";
+        }
+        // The float's exact binary value rounded half to even, like glibc
+        String text = new BigDecimal(value).setScale(2, RoundingMode.HALF_EVEN).toPlainString();
+        if (negative && text.charAt(0) != '-') {
+            text = "-" + text;
+        }
+        return text;
+    }
+
+    // The value INPUT stores: what scanf("%f") reads, 0 when the input isn't
+    // a number (which is then skipped), or the current value at end of input
+    public float input(float current) throws IOException {
+        // The user should see any prompt before the program waits
+        this.out.flush();
+
+        int c = this.skipWhitespace();
+        if (c < 0) {
+            return current;
+        }
+        this.number.setLength(0);
+        if (c == '+' || c == '-') {
+            this.number.append((char) c);
+            c = this.in.read();
+        }
+        int digits = 0;
+        while (isDigit(c)) {
+            this.number.append((char) c);
+            digits++;
+            c = this.in.read();
+        }
+        if (c == '.') {
+            this.number.append('.');
+            c = this.in.read();
+            while (isDigit(c)) {
+                this.number.append((char) c);
+                digits++;
+                c = this.in.read();
+            }
+        }
+        if (digits > 0 && (c == 'e' || c == 'E')) {
+            int exponent = c;
+            int next = this.in.read();
+            int sign = -1;
+            if (next == '+' || next == '-') {
+                sign = next;
+                next = this.in.read();
+            }
+            if (isDigit(next)) {
+                this.number.append('e');
+                if (sign >= 0) {
+                    this.number.append((char) sign);
+                }
+                while (isDigit(next)) {
+                    this.number.append((char) next);
+                    next = this.in.read();
+                }
+                c = next;
+            } else {
+                this.unread(next);
+                if (sign >= 0) {
+                    this.unread(sign);
+                }
+                c = exponent;
+            }
+        }
+        this.unread(c);
+
+        if (digits == 0) {
+            // scanf("%*s") skips the rest of the bad input
+            c = this.skipWhitespace();
+            while (c >= 0 && !Character.isWhitespace(c)) {
+                c = this.in.read();
+            }
+            this.unread(c);
+            return 0;
+        }
+        return Float.parseFloat(this.number.toString());
+    }
+
+    @Override
+    public void flush() throws IOException {
+        this.out.flush();
+    }
+
+    private int skipWhitespace() throws IOException {
+        int c = this.in.read();
+        while (c >= 0 && Character.isWhitespace(c)) {
+            c = this.in.read();
+        }
+        return c;
+    }
+
+    private void unread(int c) throws IOException {
+        if (c >= 0) {
+            this.in.unread(c);
+        }
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+}
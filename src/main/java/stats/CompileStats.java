@@ -0,0 +1,116 @@
+package stats;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Time and heap allocation of each phase of one compile, measured on the
+// thread doing the compile, plus counts of what it produced. Each phase
+// runs from the end of the one before it, or from start(), to end().
+public class CompileStats {
+    public static class Phase {
+        private final String name;
+        private final long timeNanos;
+        // -1 when the JVM can't count allocations per thread
+        private final long allocatedBytes;
+
+        public Phase(String name, long timeNanos, long allocatedBytes) {
+            this.name = name;
+            this.timeNanos = timeNanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        public long getTimeNanos() {
+            return this.timeNanos;
+        }
+
+        public long getAllocatedBytes() {
+            return this.allocatedBytes;
+        }
+    }
+
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+    private final List<Phase> phases;
+    private final Map<String, Long> counts;
+    private final long threadId;
+    private long phaseStartNanos;
+    private long phaseStartAllocated;
+
+    public CompileStats() {
+        this.phases = new ArrayList<Phase>();
+        this.counts = new LinkedHashMap<String, Long>();
+        this.threadId = Thread.currentThread().getId();
+        this.start();
+    }
+
+    private static com.sun.management.ThreadMXBean threads() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported()) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+            return threads;
+        }
+        return null;
+    }
+
+    private long allocated() {
+        return THREADS != null ? THREADS.getThreadAllocatedBytes(this.threadId) : -1;
+    }
+
+    // Starts the next phase here, leaving out anything done since the last one
+    public void start() {
+        this.phaseStartNanos = System.nanoTime();
+        this.phaseStartAllocated = this.allocated();
+    }
+
+    public void end(String phase) {
+        long timeNanos = System.nanoTime() - this.phaseStartNanos;
+        long allocated = this.allocated();
+        this.phases.add(new Phase(phase, timeNanos, allocated < 0 ? -1 : allocated - this.phaseStartAllocated));
+        this.start();
+    }
+
+    public void count(String name, long value) {
+        this.counts.put(name, value);
+    }
+
+    public List<Phase> getPhases() {
+        return this.phases;
+    }
+
+    public Map<String, Long> getCounts() {
+        return this.counts;
+    }
+
+    public String toJson() {
+        long totalNanos = 0;
+        long totalAllocated = 0;
+        StringBuilder json = new StringBuilder("{\n  \"phases\": [");
+        for (int i = 0; i < this.phases.size(); i++) {
+            Phase phase = this.phases.get(i);
+            json.append(i == 0 ? "\n" : ",\n")
+                    .append("    {\"name\": \"").append(phase.getName())
+                    .append("\", \"timeNanos\": ").append(phase.getTimeNanos())
+                    .append(", \"allocatedBytes\": ").append(phase.getAllocatedBytes()).append('}');
+            totalNanos += phase.getTimeNanos();
+            totalAllocated = totalAllocated < 0 || phase.getAllocatedBytes() < 0 ? -1 : totalAllocated + phase.getAllocatedBytes();
+        }
+        json.append(this.phases.isEmpty() ? "],\n" : "\n  ],\n");
+        json.append("  \"totalTimeNanos\": ").append(totalNanos).append(",\n");
+        json.append("  \"totalAllocatedBytes\": ").append(totalAllocated).append(",\n");
+        json.append("  \"counts\": {");
+        boolean first = true;
+        for (Map.Entry<String, Long> count : this.counts.entrySet()) {
+            json.append(first ? "\n" : ",\n").append("    \"").append(count.getKey()).append("\": ").append(count.getValue());
+            first = false;
+        }
+        json.append(first ? "}\n" : "\n  }\n");
+        return json.append('}').toString();
+    }
+}
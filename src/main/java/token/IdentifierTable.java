@@ -0,0 +1,116 @@
+package token;
+
+import java.util.Arrays;
+
+// Interns identifiers: each distinct name gets a stable int id, starting
+// at 0 in the order they are first seen. Looking up a name that is
+// already in the table doesn't allocate.
+public class IdentifierTable {
+    private static final int INITIAL_CAPACITY = 256;
+
+    private String[] names;
+    private int[] hashes;
+    // Open addressing table of id + 1, 0 marks an empty slot
+    private int[] slots;
+    private int size;
+
+    public IdentifierTable() {
+        this.names = new String[INITIAL_CAPACITY];
+        this.hashes = new int[INITIAL_CAPACITY];
+        this.slots = new int[INITIAL_CAPACITY * 2];
+        this.size = 0;
+    }
+
+    private static int hash(char[] chars, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        return hash;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    public int intern(char[] chars, int length) {
+        int hash = hash(chars, length);
+        int mask = this.slots.length - 1;
+        int slot = spread(hash) & mask;
+        while (this.slots[slot] != 0) {
+            int id = this.slots[slot] - 1;
+            if (this.hashes[id] == hash && this.matches(this.names[id], chars, length)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return this.add(new String(chars, 0, length), hash, slot);
+    }
+
+    public int intern(String name) {
+        return this.intern(name.toCharArray(), name.length());
+    }
+
+    // Id of the name, or -1 if it has never been interned
+    public int find(String name) {
+        int hash = name.hashCode();
+        int mask = this.slots.length - 1;
+        int slot = spread(hash) & mask;
+        while (this.slots[slot] != 0) {
+            int id = this.slots[slot] - 1;
+            if (this.hashes[id] == hash && this.names[id].equals(name)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    public String name(int id) {
+        return this.names[id];
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    private boolean matches(String name, char[] chars, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != chars[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int add(String name, int hash, int slot) {
+        int id = this.size++;
+        if (id == this.names.length) {
+            this.names = Arrays.copyOf(this.names, id * 2);
+            this.hashes = Arrays.copyOf(this.hashes, id * 2);
+        }
+        this.names[id] = name;
+        this.hashes[id] = hash;
+        this.slots[slot] = id + 1;
+        // Keep the table at most half full
+        if (this.size * 2 > this.slots.length) {
+            this.rehash();
+        }
+        return id;
+    }
+
+    private void rehash() {
+        this.slots = new int[this.slots.length * 2];
+        int mask = this.slots.length - 1;
+        for (int id = 0; id < this.size; id++) {
+            int slot = spread(this.hashes[id]) & mask;
+            while (this.slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            this.slots[slot] = id + 1;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package token;
+
+// Keyword recognizer. No two keywords share both their length and first
+// letter, so those two index a table holding the only keyword a word can
+// be, leaving one comparison to confirm it.
+public class Keywords {
+    private static final int MAX_LENGTH = 8;
+    private static final TokenType[][] TABLE = new TokenType[MAX_LENGTH + 1][26];
+
+    static {
+        for (TokenType kind : TokenType.values()) {
+            if (kind.value >= 100 && kind.value < 200) {
+                String keyword = kind.toString();
+                int first = keyword.charAt(0) - 'A';
+                if (TABLE[keyword.length()][first] != null) {
+                    throw new IllegalStateException("Keywords " + keyword + " and "
+                            + TABLE[keyword.length()][first] + " have the same length and first letter");
+                }
+                TABLE[keyword.length()][first] = kind;
+            }
+        }
+    }
+
+    private Keywords() {
+    }
+
+    public static TokenType lookup(char[] chars, int length) {
+        if (length > MAX_LENGTH || length == 0) {
+            return null;
+        }
+        int first = chars[0] - 'A';
+        if (first < 0 || first >= 26) {
+            return null;
+        }
+        TokenType kind = TABLE[length][first];
+        if (kind == null) {
+            return null;
+        }
+        String keyword = kind.toString();
+        for (int i = 1; i < length; i++) {
+            if (keyword.charAt(i) != chars[i]) {
+                return null;
+            }
+        }
+        return kind;
+    }
+
+    public static TokenType lookup(String word) {
+        return lookup(word.toCharArray(), word.length());
+    }
+}
@@ -3,15 +3,28 @@ package token;
 public class Token {
     private final String tokenText;
     private final TokenType tokenKind;
+    private final int identifierId;
+    private final int line;
+    private final int column;
     
     public Token() {
-        this.tokenText = "";
-        this.tokenKind = TokenType.EOF;
+        this("", TokenType.EOF);
     }
     
     public Token(String tokenText, TokenType tokenKind) {
+        this(tokenText, tokenKind, -1);
+    }
+    
+    public Token(String tokenText, TokenType tokenKind, int identifierId) {
+        this(tokenText, tokenKind, identifierId, 0, 0);
+    }
+    
+    public Token(String tokenText, TokenType tokenKind, int identifierId, int line, int column) {
         this.tokenText = tokenText;
         this.tokenKind = tokenKind;
+        this.identifierId = identifierId;
+        this.line = line;
+        this.column = column;
     }
     
     public String getTokenText() {
@@ -21,15 +34,56 @@ public class Token {
     public TokenType getTokenKind() {
         return this.tokenKind;
     }
+    
+    // Id of an IDENTIFIER token's name in the lexer's IdentifierTable, -1 for other tokens
+    public int getIdentifierId() {
+        return this.identifierId;
+    }
+    
+    // Where the token starts in the source, 0 when it wasn't lexed from one
+    public int getLine() {
+        return this.line;
+    }
+    
+    public int getColumn() {
+        return this.column;
+    }
 
     public static TokenType checkIfKeyword(String tokenString) {
+        return Keywords.lookup(tokenString);
+    }
+
+    // Text of the tokens that always read the same, null for numbers,
+    // identifiers and strings which take their text from the source
+    public static String fixedText(TokenType type) {
+        return FIXED_TEXT[type.ordinal()];
+    }
+
+    private static final String[] FIXED_TEXT = new String[TokenType.values().length];
+
+    static {
         for (TokenType kind : TokenType.values()) {
-            boolean checkIfKeyword = kind.value >= 100 && kind.value < 200 && kind.toString().equals(tokenString);
-            if (checkIfKeyword) {
-                return kind;
-            }
+            FIXED_TEXT[kind.ordinal()] = switch (kind) {
+                case EOF -> "";
+                case NEWLINE -> "\\n";
+                case NUMBER, IDENTIFIER, STRING -> null;
+                case AND, OR, NOT -> convertKeyword(kind);
+                case EQ -> "=";
+                case PLUS -> "+";
+                case MINUS -> "-";
+                case ASTERISK -> "*";
+                case SLASH -> "/";
+                case EQEQ -> "==";
+                case NOTEQ -> "!=";
+                case LT -> "<";
+                case LTEQ -> "<=";
+                case GT -> ">";
+                case GTEQ -> ">=";
+                case PARENTHESESLEFT -> "(";
+                case PARENTHESESRIGHT -> ")";
+                default -> kind.toString();
+            };
         }
-        return null;
     }
 
     public static String convertKeyword(TokenType type) {
@@ -0,0 +1,91 @@
+package vm;
+
+// A program compiled for the VirtualMachine. Every instruction is four ints,
+// an opcode and three operands, which are register numbers, a constant or
+// string index, or the code index a jump goes to. Registers hold values of
+// every C type in a double; the program's variables are the first registers
+// and temporaries follow.
+public class Bytecode {
+    public static final int WIDTH = 4;
+
+    public static final int HALT = 0;
+    // a = register, b = index into constants
+    public static final int LOAD_CONST = 1;
+    // a = register, b = the value
+    public static final int LOAD_INT = 2;
+    // a = destination register, b = source register
+    public static final int MOVE = 3;
+    public static final int TO_FLOAT = 4;
+    public static final int NEG_INT = 5;
+    public static final int NEG = 6;
+    public static final int NOT = 7;
+    // a = destination register, b and c = operand registers
+    public static final int ADD_INT = 8;
+    public static final int SUB_INT = 9;
+    public static final int MUL_INT = 10;
+    public static final int DIV_INT = 11;
+    public static final int ADD_FLOAT = 12;
+    public static final int SUB_FLOAT = 13;
+    public static final int MUL_FLOAT = 14;
+    public static final int DIV_FLOAT = 15;
+    public static final int ADD_DOUBLE = 16;
+    public static final int SUB_DOUBLE = 17;
+    public static final int MUL_DOUBLE = 18;
+    public static final int DIV_DOUBLE = 19;
+    public static final int EQ = 20;
+    public static final int NE = 21;
+    public static final int LT = 22;
+    public static final int LE = 23;
+    public static final int GT = 24;
+    public static final int GE = 25;
+    // a = target
+    public static final int JUMP = 26;
+    // a = register, b = target
+    public static final int JUMP_IF_ZERO = 27;
+    public static final int JUMP_IF_NOT_ZERO = 28;
+    // a and b = operand registers, c = target taken when the comparison is false
+    public static final int JUMP_UNLESS_EQ = 29;
+    public static final int JUMP_UNLESS_NE = 30;
+    public static final int JUMP_UNLESS_LT = 31;
+    public static final int JUMP_UNLESS_LE = 32;
+    public static final int JUMP_UNLESS_GT = 33;
+    public static final int JUMP_UNLESS_GE = 34;
+    // a = register
+    public static final int PRINT = 35;
+    // a = index into strings
+    public static final int PRINT_STRING = 36;
+    // a = register
+    public static final int INPUT = 37;
+
+    private final int[] code;
+    private final double[] constants;
+    private final String[] strings;
+    private final int registers;
+
+    public Bytecode(int[] code, double[] constants, String[] strings, int registers) {
+        this.code = code;
+        this.constants = constants;
+        this.strings = strings;
+        this.registers = registers;
+    }
+
+    public int[] getCode() {
+        return this.code;
+    }
+
+    public double[] getConstants() {
+        return this.constants;
+    }
+
+    public String[] getStrings() {
+        return this.strings;
+    }
+
+    public int getRegisters() {
+        return this.registers;
+    }
+
+    public int size() {
+        return this.code.length / WIDTH;
+    }
+}
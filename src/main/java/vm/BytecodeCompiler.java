@@ -0,0 +1,264 @@
+package vm;
+
+import ast.*;
+import token.TokenType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static vm.Bytecode.*;
+
+// Lowers a parsed program to Bytecode. Variables are used in place as
+// registers, each statement's temporaries start again after them, and
+// IF and WHILE conditions that are a single comparison become one
+// compare-and-jump. Labels are resolved to code indexes here, so a GOTO
+// is a plain jump when the program runs.
+public class BytecodeCompiler {
+    private int[] code;
+    private int length;
+    private double[] constants;
+    private int constantCount;
+    private final Map<Long, Integer> constantIndexes;
+    private final List<String> strings;
+    private final Map<String, Integer> labels;
+    // Code index of each GOTO's target operand, and the label it goes to
+    private final List<Integer> gotoOperands;
+    private final List<String> gotoLabels;
+
+    private final int variables;
+    private int nextTemp;
+    private int registers;
+
+    private BytecodeCompiler(int variables) {
+        this.code = new int[64 * WIDTH];
+        this.length = 0;
+        this.constants = new double[16];
+        this.constantCount = 0;
+        this.constantIndexes = new HashMap<Long, Integer>();
+        this.strings = new ArrayList<String>();
+        this.labels = new HashMap<String, Integer>();
+        this.gotoOperands = new ArrayList<Integer>();
+        this.gotoLabels = new ArrayList<String>();
+        this.variables = variables;
+        this.nextTemp = variables;
+        this.registers = variables;
+    }
+
+    public static Bytecode compile(Program program) {
+        BytecodeCompiler compiler = new BytecodeCompiler(program.getVariables().size());
+        return compiler.program(program.getStatements());
+    }
+
+    private Bytecode program(List<Statement> statements) {
+        this.statements(statements);
+        this.emit(HALT, 0, 0, 0);
+        for (int i = 0; i < this.gotoOperands.size(); i++) {
+            this.code[this.gotoOperands.get(i)] = this.labels.get(this.gotoLabels.get(i));
+        }
+        return new Bytecode(Arrays.copyOf(this.code, this.length), Arrays.copyOf(this.constants, this.constantCount),
+                this.strings.toArray(new String[0]), Math.max(this.registers, 1));
+    }
+
+    // Returns the code index of the instruction
+    private int emit(int op, int a, int b, int c) {
+        if (this.length == this.code.length) {
+            this.code = Arrays.copyOf(this.code, this.code.length * 2);
+        }
+        int at = this.length;
+        this.code[this.length++] = op;
+        this.code[this.length++] = a;
+        this.code[this.length++] = b;
+        this.code[this.length++] = c;
+        return at;
+    }
+
+    private int constant(double value) {
+        return this.constantIndexes.computeIfAbsent(Double.doubleToRawLongBits(value), bits -> {
+            if (this.constantCount == this.constants.length) {
+                this.constants = Arrays.copyOf(this.constants, this.constantCount * 2);
+            }
+            this.constants[this.constantCount] = value;
+            return this.constantCount++;
+        });
+    }
+
+    private int temp() {
+        int register = this.nextTemp++;
+        this.registers = Math.max(this.registers, this.nextTemp);
+        return register;
+    }
+
+    private int target(int destination) {
+        return destination >= 0 ? destination : this.temp();
+    }
+
+    private void statements(List<Statement> statements) {
+        for (Statement statement : statements) {
+            this.statement(statement);
+            this.nextTemp = this.variables;
+        }
+    }
+
+    private void statement(Statement statement) {
+        if (statement instanceof PrintStringStatement print) {
+            this.strings.add(print.getText());
+            this.emit(PRINT_STRING, this.strings.size() - 1, 0, 0);
+        }
+        else if (statement instanceof PrintStatement print) {
+            this.emit(PRINT, this.expression(print.getExpression(), -1), 0, 0);
+        }
+        else if (statement instanceof InputStatement input) {
+            this.emit(INPUT, input.getVariable().getSymbolId(), 0, 0);
+        }
+        else if (statement instanceof LetStatement let) {
+            int variable = let.getVariable().getSymbolId();
+            Expression expression = let.getExpression();
+            if (expression.getType() == CType.FLOAT) {
+                // Already a float, so the last instruction can write the variable
+                this.expression(expression, variable);
+            } else {
+                this.emit(TO_FLOAT, variable, this.expression(expression, -1), 0);
+            }
+        }
+        else if (statement instanceof IfStatement ifStatement) {
+            int exit = this.jumpUnless(ifStatement.getCondition());
+            this.statements(ifStatement.getBody());
+            this.code[exit] = this.length;
+        }
+        else if (statement instanceof WhileStatement whileStatement) {
+            int top = this.length;
+            int exit = this.jumpUnless(whileStatement.getCondition());
+            this.statements(whileStatement.getBody());
+            this.emit(JUMP, top, 0, 0);
+            this.code[exit] = this.length;
+        }
+        else if (statement instanceof LabelStatement label) {
+            this.labels.put(label.getName(), this.length);
+        }
+        else if (statement instanceof GotoStatement gotoStatement) {
+            this.gotoOperands.add(this.emit(JUMP, -1, 0, 0) + 1);
+            this.gotoLabels.add(gotoStatement.getLabel());
+        }
+    }
+
+    // Jumps when the condition is false. Returns the code index of the
+    // jump's target operand, to be filled in once the target is known.
+    private int jumpUnless(Expression condition) {
+        while (condition instanceof GroupExpression group) {
+            condition = group.getInner();
+        }
+        if (condition instanceof BinaryExpression binary && !binary.isArithmetic()
+                && binary.getOperator() != TokenType.AND && binary.getOperator() != TokenType.OR) {
+            int left = this.operand(binary.getLeft(), binary.getOperandType());
+            int right = this.operand(binary.getRight(), binary.getOperandType());
+            int op = switch (binary.getOperator()) {
+                case EQEQ -> JUMP_UNLESS_EQ;
+                case NOTEQ -> JUMP_UNLESS_NE;
+                case LT -> JUMP_UNLESS_LT;
+                case LTEQ -> JUMP_UNLESS_LE;
+                case GT -> JUMP_UNLESS_GT;
+                default -> JUMP_UNLESS_GE;
+            };
+            return this.emit(op, left, right, -1) + 3;
+        }
+        return this.emit(JUMP_IF_ZERO, this.expression(condition, -1), -1, 0) + 2;
+    }
+
+    // Register holding the expression converted to the operation's type.
+    // Only int to float changes the value; ints and floats are exact doubles.
+    private int operand(Expression expression, CType type) {
+        if (expression instanceof NumberLiteral number && number.getType() == CType.INT && type == CType.FLOAT) {
+            int register = this.temp();
+            this.emit(LOAD_CONST, register, this.constant((float) number.getValue()), 0);
+            return register;
+        }
+        int register = this.expression(expression, -1);
+        if (expression.getType() == CType.INT && type == CType.FLOAT) {
+            int converted = this.temp();
+            this.emit(TO_FLOAT, converted, register, 0);
+            return converted;
+        }
+        return register;
+    }
+
+    // Computes the expression into the destination register, or into any
+    // register when it is -1, and returns the register
+    private int expression(Expression expression, int destination) {
+        if (expression instanceof NumberLiteral number) {
+            int register = this.target(destination);
+            if (number.getType() == CType.INT) {
+                this.emit(LOAD_INT, register, (int) number.getValue(), 0);
+            } else {
+                this.emit(LOAD_CONST, register, this.constant(CArithmetic.convert(number.getValue(), number.getType())), 0);
+            }
+            return register;
+        }
+        else if (expression instanceof VariableExpression variable) {
+            if (destination < 0 || destination == variable.getSymbolId()) {
+                return variable.getSymbolId();
+            }
+            this.emit(MOVE, destination, variable.getSymbolId(), 0);
+            return destination;
+        }
+        else if (expression instanceof GroupExpression group) {
+            return this.expression(group.getInner(), destination);
+        }
+        else if (expression instanceof UnaryExpression unary) {
+            if (unary.getOperator() == TokenType.PLUS) {
+                return this.expression(unary.getOperand(), destination);
+            }
+            int operand = this.expression(unary.getOperand(), -1);
+            int register = this.target(destination);
+            int op = unary.getOperator() == TokenType.NOT ? NOT : unary.getType() == CType.INT ? NEG_INT : NEG;
+            this.emit(op, register, operand, 0);
+            return register;
+        }
+
+        BinaryExpression binary = (BinaryExpression) expression;
+        TokenType operator = binary.getOperator();
+        if (operator == TokenType.AND || operator == TokenType.OR) {
+            // Short circuit like C: the right side only runs when the left doesn't decide
+            int register = this.target(destination);
+            int jump = operator == TokenType.AND ? JUMP_IF_ZERO : JUMP_IF_NOT_ZERO;
+            int leftExit = this.emit(jump, this.expression(binary.getLeft(), -1), -1, 0) + 2;
+            int rightExit = this.emit(jump, this.expression(binary.getRight(), -1), -1, 0) + 2;
+            int decided = operator == TokenType.AND ? 0 : 1;
+            this.emit(LOAD_INT, register, 1 - decided, 0);
+            int end = this.emit(JUMP, -1, 0, 0) + 1;
+            this.code[leftExit] = this.length;
+            this.code[rightExit] = this.length;
+            this.emit(LOAD_INT, register, decided, 0);
+            this.code[end] = this.length;
+            return register;
+        }
+
+        CType type = binary.getOperandType();
+        int left = this.operand(binary.getLeft(), type);
+        int right = this.operand(binary.getRight(), type);
+        int register = this.target(destination);
+        int op;
+        if (binary.isArithmetic()) {
+            int base = type == CType.INT ? ADD_INT : type == CType.FLOAT ? ADD_FLOAT : ADD_DOUBLE;
+            op = base + switch (operator) {
+                case PLUS -> 0;
+                case MINUS -> 1;
+                case ASTERISK -> 2;
+                default -> 3;
+            };
+        } else {
+            op = switch (operator) {
+                case EQEQ -> EQ;
+                case NOTEQ -> NE;
+                case LT -> LT;
+                case LTEQ -> LE;
+                case GT -> GT;
+                default -> GE;
+            };
+        }
+        this.emit(op, register, left, right);
+        return register;
+    }
+}
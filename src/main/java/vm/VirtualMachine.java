@@ -0,0 +1,115 @@
+package vm;
+
+import diagnostic.RunException;
+import runtime.ProgramIO;
+
+import java.io.IOException;
+
+import static vm.Bytecode.*;
+
+// Runs Bytecode with one switch per instruction over the int array
+public class VirtualMachine {
+    private VirtualMachine() {
+    }
+
+    public static void run(Bytecode bytecode, ProgramIO io) throws IOException {
+        int[] code = bytecode.getCode();
+        double[] constants = bytecode.getConstants();
+        String[] strings = bytecode.getStrings();
+        double[] r = new double[bytecode.getRegisters()];
+        int pc = 0;
+        try {
+            while (true) {
+                int op = code[pc];
+                int a = code[pc + 1];
+                int b = code[pc + 2];
+                int c = code[pc + 3];
+                pc += WIDTH;
+                switch (op) {
+                    case HALT -> {
+                        return;
+                    }
+                    case LOAD_CONST -> r[a] = constants[b];
+                    case LOAD_INT -> r[a] = b;
+                    case MOVE -> r[a] = r[b];
+                    case TO_FLOAT -> r[a] = (float) r[b];
+                    case NEG_INT -> r[a] = -(int) r[b];
+                    case NEG -> r[a] = -r[b];
+                    case NOT -> r[a] = r[b] == 0 ? 1 : 0;
+                    case ADD_INT -> r[a] = (int) r[b] + (int) r[c];
+                    case SUB_INT -> r[a] = (int) r[b] - (int) r[c];
+                    case MUL_INT -> r[a] = (int) r[b] * (int) r[c];
+                    case DIV_INT -> {
+                        int divisor = (int) r[c];
+                        if (divisor == 0) {
+                            throw new RunException("Runtime error. Integer division by zero");
+                        }
+                        r[a] = (int) r[b] / divisor;
+                    }
+                    case ADD_FLOAT -> r[a] = (float) (r[b] + r[c]);
+                    case SUB_FLOAT -> r[a] = (float) (r[b] - r[c]);
+                    case MUL_FLOAT -> r[a] = (float) (r[b] * r[c]);
+                    case DIV_FLOAT -> r[a] = (float) (r[b] / r[c]);
+                    case ADD_DOUBLE -> r[a] = r[b] + r[c];
+                    case SUB_DOUBLE -> r[a] = r[b] - r[c];
+                    case MUL_DOUBLE -> r[a] = r[b] * r[c];
+                    case DIV_DOUBLE -> r[a] = r[b] / r[c];
+                    case EQ -> r[a] = r[b] == r[c] ? 1 : 0;
+                    case NE -> r[a] = r[b] != r[c] ? 1 : 0;
+                    case LT -> r[a] = r[b] < r[c] ? 1 : 0;
+                    case LE -> r[a] = r[b] <= r[c] ? 1 : 0;
+                    case GT -> r[a] = r[b] > r[c] ? 1 : 0;
+                    case GE -> r[a] = r[b] >= r[c] ? 1 : 0;
+                    case JUMP -> pc = a;
+                    case JUMP_IF_ZERO -> {
+                        if (r[a] == 0) {
+                            pc = b;
+                        }
+                    }
+                    case JUMP_IF_NOT_ZERO -> {
+                        if (r[a] != 0) {
+                            pc = b;
+                        }
+                    }
+                    case JUMP_UNLESS_EQ -> {
+                        if (!(r[a] == r[b])) {
+                            pc = c;
+                        }
+                    }
+                    case JUMP_UNLESS_NE -> {
+                        if (!(r[a] != r[b])) {
+                            pc = c;
+                        }
+                    }
+                    case JUMP_UNLESS_LT -> {
+                        if (!(r[a] < r[b])) {
+                            pc = c;
+                        }
+                    }
+                    case JUMP_UNLESS_LE -> {
+                        if (!(r[a] <= r[b])) {
+                            pc = c;
+                        }
+                    }
+                    case JUMP_UNLESS_GT -> {
+                        if (!(r[a] > r[b])) {
+                            pc = c;
+                        }
+                    }
+                    case JUMP_UNLESS_GE -> {
+                        if (!(r[a] >= r[b])) {
+                            pc = c;
+                        }
+                    }
+                    case PRINT -> io.printNumber((float) r[a]);
+                    case PRINT_STRING -> io.printString(strings[a]);
+                    case INPUT -> r[a] = io.input((float) r[a]);
+                    default -> throw new IllegalStateException("Bad opcode " + op + " at " + (pc - WIDTH));
+                }
+            }
+        }
+        finally {
+            io.flush();
+        }
+    }
+}
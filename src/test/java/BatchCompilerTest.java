@@ -0,0 +1,58 @@
+import compiler.BatchCompiler;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+class BatchCompilerTest {
+    final static String sourceProgramsDir = "src/main/resources/srcPrograms/";
+    final static String expectedOutputDir = "src/main/resources/expectedOutput/";
+
+    @TempDir
+    Path tempDir;
+
+    void assertCompiledLikeExpected(Path outputDir, String program) throws IOException {
+        String expected = Files.readString(Path.of(expectedOutputDir, program + ".c"));
+        String actual = Files.readString(outputDir.resolve(program + ".c"));
+        Assertions.assertEquals(expected.stripTrailing(), actual.stripTrailing());
+    }
+
+    @Test
+    void SourceDirectory_CompileBatch_AllProgramsCompiled() throws IOException {
+        Path outputDir = tempDir.resolve("out");
+        BatchCompiler.Result result = new BatchCompiler(outputDir).compile(List.of(sourceProgramsDir));
+        Assertions.assertEquals(3, result.getCompiled());
+        Assertions.assertTrue(result.getFailures().isEmpty());
+        assertCompiledLikeExpected(outputDir, "helloWorld");
+        assertCompiledLikeExpected(outputDir, "average");
+        assertCompiledLikeExpected(outputDir, "fibonacci");
+    }
+
+    @Test
+    void GlobPattern_CompileBatch_OnlyMatchingProgramsCompiled() throws IOException {
+        Path outputDir = tempDir.resolve("out");
+        BatchCompiler.Result result = new BatchCompiler(outputDir).compile(List.of(sourceProgramsDir + "*e*.teenytiny"));
+        Assertions.assertEquals(2, result.getCompiled());
+        assertCompiledLikeExpected(outputDir, "helloWorld");
+        assertCompiledLikeExpected(outputDir, "average");
+        Assertions.assertFalse(Files.exists(outputDir.resolve("fibonacci.c")));
+    }
+
+    @Test
+    void BadSourceFile_CompileBatch_OtherProgramsStillCompiled() throws IOException {
+        Path badFile = tempDir.resolve("bad.teenytiny");
+        Files.writeString(badFile, "PRINT x\n");
+        Path outputDir = tempDir.resolve("out");
+        BatchCompiler.Result result = new BatchCompiler(outputDir, 2)
+                .compile(List.of(badFile.toString(), sourceProgramsDir + "fibonacci.teenytiny"));
+        Assertions.assertEquals(1, result.getCompiled());
+        Assertions.assertEquals(1, result.getFailures().size());
+        Assertions.assertEquals(badFile, result.getFailures().get(0).getSourceFile());
+        Assertions.assertEquals("1:7: Parser error. Referencing variable before assignment: x",
+                result.getFailures().get(0).getMessage());
+        assertCompiledLikeExpected(outputDir, "fibonacci");
+    }
+}
@@ -0,0 +1,116 @@
+import org.junit.jupiter.api.*;
+import pass.CommonSubexpressionPass;
+
+import java.io.IOException;
+
+class CommonSubexpressionPassTest {
+     String emitWithPass(String source) throws IOException {
+          return PassTestSupport.emit(source, new CommonSubexpressionPass());
+     }
+
+     String declarations(String... variables) {
+          StringBuilder declarations = new StringBuilder();
+          for (String variable : variables) {
+               declarations.append("    float ").append(variable).append(";\n");
+          }
+          return declarations.toString();
+     }
+
+     @Nested
+     class RepeatedSubexpression_PassComputesItOnce_CompareEmitResult {
+          @Test
+          void SameProductInSeveralLets() throws IOException {
+               String sourceCode = "LET a = 3" + "\n" +
+                       "LET b = 4" + "\n" +
+                       "LET c = a * b + 1" + "\n" +
+                       "LET d = b * a - 1" + "\n" +
+                       "PRINT c * d" + "\n";
+               String expectedOutput = "    a = 3;" + "\n" +
+                       "    b = 4;" + "\n" +
+                       "    cse_0 = a*b;" + "\n" +
+                       "    c = cse_0+1;" + "\n" +
+                       "    d = cse_0-1;" + "\n" +
+                       "    printf(\"%.2f\\n\", (float)(c*d));" + "\n";
+               Assertions.assertEquals(PassTestSupport.expectedProgram(declarations("a", "b", "c", "d", "cse_0"), expectedOutput),
+                       emitWithPass(sourceCode));
+          }
+
+          @Test
+          void LargestRepeatedPartReused() throws IOException {
+               String sourceCode = "INPUT a" + "\n" +
+                       "LET c = (a + 1) * (a + 1) + 2" + "\n" +
+                       "PRINT (a + 1) * (a + 1)" + "\n";
+               String expectedOutput = "    if (0 == scanf(\"%f\", &a)) {" + "\n" +
+                       "        a = 0;" + "\n" +
+                       "        scanf(\"%*s\");" + "\n" +
+                       "    }" + "\n" +
+                       "    cse_0 = a+1;" + "\n" +
+                       "    cse_1 = (cse_0)*(cse_0);" + "\n" +
+                       "    c = cse_1+2;" + "\n" +
+                       "    printf(\"%.2f\\n\", (float)(cse_1));" + "\n";
+               Assertions.assertEquals(PassTestSupport.expectedProgram(declarations("a", "c", "cse_0", "cse_1"), expectedOutput),
+                       emitWithPass(sourceCode));
+          }
+
+          @Test
+          void AssignmentEndsReuse() throws IOException {
+               String sourceCode = "INPUT a" + "\n" +
+                       "LET b = a * a" + "\n" +
+                       "LET a = a * a" + "\n" +
+                       "LET c = a * a" + "\n";
+               String actual = emitWithPass(sourceCode);
+               Assertions.assertTrue(actual.contains("    cse_0 = a*a;\n    b = cse_0;\n    a = cse_0;\n    c = a*a;\n"), actual);
+          }
+
+          @Test
+          void IntAndDoubleOperationsNotReused() throws IOException {
+               String sourceCode = "INPUT a" + "\n" +
+                       "LET b = 7 / 2 + a * 2.5" + "\n" +
+                       "LET c = 7 / 2 + a * 2.5" + "\n";
+               String actual = emitWithPass(sourceCode);
+               Assertions.assertFalse(actual.contains("cse_"), actual);
+          }
+     }
+
+     @Nested
+     class StraightLineRuns_PassStaysWithinThem_CompareEmitResult {
+          @Test
+          void LabelStartsNewRun() throws IOException {
+               String sourceCode = "INPUT a" + "\n" +
+                       "LET b = a * a" + "\n" +
+                       "LABEL again" + "\n" +
+                       "LET b = a * a" + "\n" +
+                       "GOTO again" + "\n";
+               Assertions.assertFalse(emitWithPass(sourceCode).contains("cse_"));
+          }
+
+          @Test
+          void BlocksHaveTheirOwnRunsAndShareTemporaries() throws IOException {
+               String sourceCode = "INPUT a" + "\n" +
+                       "LET b = a * a" + "\n" +
+                       "WHILE b > 1 REPEAT" + "\n" +
+                       "    LET d = b / 3 - 1" + "\n" +
+                       "    PRINT b / 3 - 1" + "\n" +
+                       "    LET b = d" + "\n" +
+                       "ENDWHILE" + "\n" +
+                       "LET c = a * a + 1" + "\n" +
+                       "PRINT a * a + 1" + "\n";
+               String expectedOutput = "    if (0 == scanf(\"%f\", &a)) {" + "\n" +
+                       "        a = 0;" + "\n" +
+                       "        scanf(\"%*s\");" + "\n" +
+                       "    }" + "\n" +
+                       "    b = a*a;" + "\n" +
+                       "    while (b>1) {" + "\n" +
+                       "        cse_0 = b/3-1;" + "\n" +
+                       "        d = cse_0;" + "\n" +
+                       "        printf(\"%.2f\\n\", (float)(cse_0));" + "\n" +
+                       "        b = d;" + "\n" +
+                       "    }" + "\n" +
+                       "    cse_0 = a*a+1;" + "\n" +
+                       "    c = cse_0;" + "\n" +
+                       "    printf(\"%.2f\\n\", (float)(cse_0));" + "\n";
+               Assertions.assertEquals(PassTestSupport.expectedProgram(declarations("a", "b", "d", "c", "cse_0"), expectedOutput),
+                       emitWithPass(sourceCode));
+          }
+     }
+}
@@ -0,0 +1,168 @@
+import compiler.BatchCompiler;
+import compiler.CompileCache;
+import compiler.CompileOptions;
+import compiler.SourceCompiler;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+class CompileCacheTest {
+     final static String sourceProgramsDir = "src/main/resources/srcPrograms/";
+     final static String expectedOutputDir = "src/main/resources/expectedOutput/";
+
+     @TempDir
+     Path tempDir;
+
+     byte[] bytes(String text) {
+          return text.getBytes(StandardCharsets.UTF_8);
+     }
+
+     @Nested
+     class CacheKey_HashSourceAndOptions_CompareKeys {
+          @Test
+          void SameSourceAndOptionsSameKey() {
+               Assertions.assertEquals(CompileCache.key(bytes("PRINT 1\n"), CompileOptions.DEFAULT),
+                       CompileCache.key(bytes("PRINT 1\n"), new CompileOptions(false)));
+          }
+
+          @Test
+          void DifferentSourceDifferentKey() {
+               Assertions.assertNotEquals(CompileCache.key(bytes("PRINT 1\n"), CompileOptions.DEFAULT),
+                       CompileCache.key(bytes("PRINT 2\n"), CompileOptions.DEFAULT));
+          }
+
+          @Test
+          void DifferentOptionsDifferentKey() {
+               Assertions.assertNotEquals(CompileCache.key(bytes("PRINT 1\n"), CompileOptions.DEFAULT),
+                       CompileCache.key(bytes("PRINT 1\n"), new CompileOptions(true)));
+          }
+
+          @Test
+          void VersionFromBuild() {
+               Assertions.assertFalse(SourceCompiler.VERSION.startsWith("unknown"), SourceCompiler.VERSION);
+               Assertions.assertFalse(SourceCompiler.VERSION.contains("${"), SourceCompiler.VERSION);
+          }
+     }
+
+     @Nested
+     class CachedOutput_CompilerGenerate_ReusesStoredCode {
+          @Test
+          void MissCompilesAndStores() throws IOException {
+               CompileCache cache = new CompileCache(tempDir);
+               CompileOptions options = new CompileOptions(false, cache);
+               byte[] source = bytes("PRINT \"cached\"");
+               byte[] output = SourceCompiler.generate(source, options);
+               Assertions.assertTrue(new String(output, StandardCharsets.UTF_8).contains("printf(\"cached\\n\");"));
+               Assertions.assertArrayEquals(output, cache.get(CompileCache.key(source, options)));
+          }
+
+          @Test
+          void HitSkipsCompiling() throws IOException {
+               CompileCache cache = new CompileCache(tempDir);
+               CompileOptions options = new CompileOptions(false, cache);
+               byte[] source = bytes("this would not parse");
+               cache.put(CompileCache.key(source, options), bytes("stored"));
+               Assertions.assertEquals("stored", new String(SourceCompiler.generate(source, options), StandardCharsets.UTF_8));
+          }
+
+          @Test
+          void BatchWithCacheSameOutput() throws IOException {
+               CompileOptions options = new CompileOptions(false, new CompileCache(tempDir.resolve("cache")));
+               for (int run = 0; run < 2; run++) {
+                    Path outputDir = tempDir.resolve("out" + run);
+                    BatchCompiler.Result result = new BatchCompiler(outputDir, 2, options).compile(List.of(sourceProgramsDir));
+                    Assertions.assertEquals(3, result.getCompiled());
+                    String expected = Files.readString(Path.of(expectedOutputDir, "fibonacci.c"));
+                    String actual = Files.readString(outputDir.resolve("fibonacci.c"));
+                    Assertions.assertEquals(expected.stripTrailing(), actual.stripTrailing());
+               }
+          }
+     }
+
+     @Nested
+     class SizeLimit_CachePut_EvictsLeastRecentlyUsed {
+          @Test
+          void OldestEntryDeleted() throws IOException {
+               CompileCache cache = new CompileCache(tempDir, 250);
+               cache.put("a", new byte[100]);
+               cache.put("b", new byte[100]);
+               Files.setLastModifiedTime(tempDir.resolve("a.c"), FileTime.fromMillis(2000));
+               Files.setLastModifiedTime(tempDir.resolve("b.c"), FileTime.fromMillis(1000));
+               cache.put("c", new byte[100]);
+
+               Assertions.assertNotNull(cache.get("a"));
+               Assertions.assertNull(cache.get("b"));
+               Assertions.assertNotNull(cache.get("c"));
+               Assertions.assertTrue(cache.getSize() <= 250);
+          }
+
+          @Test
+          void ReadEntryKept() throws IOException {
+               CompileCache cache = new CompileCache(tempDir, 250);
+               cache.put("a", new byte[100]);
+               cache.put("b", new byte[100]);
+               Files.setLastModifiedTime(tempDir.resolve("a.c"), FileTime.fromMillis(1000));
+               Files.setLastModifiedTime(tempDir.resolve("b.c"), FileTime.fromMillis(2000));
+               cache.get("a");
+               cache.put("c", new byte[100]);
+
+               Assertions.assertNotNull(cache.get("a"));
+               Assertions.assertNull(cache.get("b"));
+          }
+
+          @Test
+          void ReplacedEntryCountedOnce() throws IOException {
+               CompileCache cache = new CompileCache(tempDir, 250);
+               cache.put("a", new byte[100]);
+               cache.put("a", new byte[120]);
+               cache.put("a", new byte[100]);
+               cache.put("b", new byte[100]);
+
+               Assertions.assertEquals(200, cache.getSize());
+               Assertions.assertNotNull(cache.get("a"));
+               Assertions.assertNotNull(cache.get("b"));
+          }
+     }
+
+     @Test
+     void SharedDirectory_ConcurrentPuts_EntriesComplete() throws Exception {
+          ExecutorService executor = Executors.newFixedThreadPool(8);
+          try {
+               List<Future<?>> results = new ArrayList<Future<?>>();
+               for (int thread = 0; thread < 8; thread++) {
+                    // Separate caches over one directory, like separate builds
+                    CompileCache cache = new CompileCache(tempDir);
+                    results.add(executor.submit(() -> {
+                         for (int i = 0; i < 50; i++) {
+                              byte[] output = new byte[1000 + i % 5];
+                              Arrays.fill(output, (byte) ('a' + i % 5));
+                              cache.put("key" + i % 5, output);
+                              byte[] read = cache.get("key" + i % 5);
+                              Assertions.assertEquals(1000 + i % 5, read.length);
+                         }
+                         return null;
+                    }));
+               }
+               for (Future<?> result : results) {
+                    result.get();
+               }
+          } finally {
+               executor.shutdownNow();
+          }
+          try (Stream<Path> files = Files.list(tempDir)) {
+               Assertions.assertEquals(5, files.count());
+          }
+     }
+}
@@ -0,0 +1,140 @@
+import daemon.CompileDaemon;
+import daemon.DaemonClient;
+import daemon.DaemonProtocol;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+class CompileDaemonTest {
+     final static String sourceProgramsDir = "src/main/resources/srcPrograms/";
+     final static String expectedOutputDir = "src/main/resources/expectedOutput/";
+     final static String[] programs = {"helloWorld", "average", "fibonacci"};
+
+     @TempDir
+     Path tempDir;
+
+     Path socketFile;
+     CompileDaemon daemon;
+     Thread serveThread;
+
+     @BeforeEach
+     void start() throws IOException {
+          socketFile = tempDir.resolve("daemon.sock");
+          daemon = new CompileDaemon(socketFile, null);
+          serveThread = new Thread(() -> {
+               try {
+                    daemon.serve();
+               }
+               catch (IOException e) {
+                    throw new RuntimeException(e);
+               }
+          });
+          serveThread.start();
+     }
+
+     @AfterEach
+     void stop() throws IOException, InterruptedException {
+          daemon.close();
+          serveThread.join(10000);
+     }
+
+     List<String> request(String program, Path outputFile) {
+          return List.of(Path.of(sourceProgramsDir, program + ".teenytiny").toAbsolutePath().toString(), outputFile.toString());
+     }
+
+     void assertCompiledLikeExpected(String program, Path outputFile) throws IOException {
+          String expected = Files.readString(Path.of(expectedOutputDir, program + ".c"));
+          Assertions.assertEquals(expected.stripTrailing(), Files.readString(outputFile).stripTrailing());
+     }
+
+     @Test
+     void PipelinedRequests_DaemonCompiles_AllResponsesMatchRequests() throws IOException {
+          try (DaemonClient client = new DaemonClient(socketFile)) {
+               List<CompletableFuture<DaemonProtocol.Response>> responses = new ArrayList<CompletableFuture<DaemonProtocol.Response>>();
+               for (int i = 0; i < 30; i++) {
+                    String program = programs[i % programs.length];
+                    responses.add(client.compile(request(program, tempDir.resolve(program + i + ".c"))));
+               }
+               for (int i = 0; i < 30; i++) {
+                    String program = programs[i % programs.length];
+                    DaemonProtocol.Response response = responses.get(i).join();
+                    Assertions.assertTrue(response.isOk(), response.getMessage());
+                    Assertions.assertEquals(tempDir.resolve(program + i + ".c").toString(), response.getMessage());
+                    assertCompiledLikeExpected(program, tempDir.resolve(program + i + ".c"));
+               }
+          }
+     }
+
+     @Test
+     void SeveralClients_DaemonCompilesConcurrently_AllSucceed() throws IOException {
+          List<DaemonClient> clients = new ArrayList<DaemonClient>();
+          List<CompletableFuture<DaemonProtocol.Response>> responses = new ArrayList<CompletableFuture<DaemonProtocol.Response>>();
+          try {
+               for (int i = 0; i < 4; i++) {
+                    DaemonClient client = new DaemonClient(socketFile);
+                    clients.add(client);
+                    responses.add(client.compile(request("fibonacci", tempDir.resolve("client" + i + ".c"))));
+               }
+               for (int i = 0; i < 4; i++) {
+                    Assertions.assertTrue(responses.get(i).join().isOk());
+                    assertCompiledLikeExpected("fibonacci", tempDir.resolve("client" + i + ".c"));
+               }
+          } finally {
+               for (DaemonClient client : clients) {
+                    client.close();
+               }
+          }
+     }
+
+     @Test
+     void BadSourceOrArguments_DaemonResponds_ErrorMessage() throws IOException {
+          Path badSource = Files.writeString(tempDir.resolve("bad.teenytiny"), "GOTO nowhere\n");
+          try (DaemonClient client = new DaemonClient(socketFile)) {
+               DaemonProtocol.Response compileError = client.compile(
+                       List.of(badSource.toString(), tempDir.resolve("bad.c").toString())).join();
+               Assertions.assertFalse(compileError.isOk());
+               Assertions.assertTrue(compileError.getMessage().contains("undeclared label"), compileError.getMessage());
+
+               DaemonProtocol.Response argumentError = client.compile(List.of("only-one-argument")).join();
+               Assertions.assertFalse(argumentError.isOk());
+
+               // The connection is still usable
+               Assertions.assertTrue(client.compile(request("helloWorld", tempDir.resolve("ok.c"))).join().isOk());
+          }
+     }
+
+     @Test
+     void StackOverflowInCompile_DaemonResponds_ErrorMessage() throws IOException {
+          Path deepSource = Files.writeString(tempDir.resolve("deep.teenytiny"),
+                  "PRINT " + "(".repeat(1000000) + "1" + ")".repeat(1000000) + "\n");
+          try (DaemonClient client = new DaemonClient(socketFile)) {
+               DaemonProtocol.Response response = client.compile(
+                       List.of(deepSource.toString(), tempDir.resolve("deep.c").toString())).join();
+               Assertions.assertFalse(response.isOk());
+               Assertions.assertTrue(client.compile(request("helloWorld", tempDir.resolve("ok.c"))).join().isOk());
+          }
+     }
+
+     @Test
+     void MessageOver64KB_DaemonResponds_WholeMessage() throws IOException {
+          String longArgument = "x".repeat(100000);
+          try (DaemonClient client = new DaemonClient(socketFile)) {
+               DaemonProtocol.Response response = client.compile(List.of(longArgument)).join();
+               Assertions.assertFalse(response.isOk());
+               Assertions.assertTrue(response.getMessage().contains(longArgument));
+          }
+     }
+
+     @Test
+     void ClosedTwice_DaemonClose_SecondCallDoesNothing() throws IOException {
+          daemon.close();
+          daemon.close();
+          Assertions.assertFalse(Files.exists(socketFile));
+     }
+}
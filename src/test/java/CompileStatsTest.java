@@ -0,0 +1,53 @@
+import org.junit.jupiter.api.*;
+import stats.CompileStats;
+
+import java.util.List;
+
+class CompileStatsTest {
+     @Nested
+     class Phases_CompileStatsMeasure_CompareJson {
+          @Test
+          void PhasesInOrderWithAllocations() {
+               CompileStats stats = new CompileStats();
+               StringBuilder text = new StringBuilder();
+               for (int i = 0; i < 10000; i++) {
+                    text.append(i);
+               }
+               stats.end("build");
+               stats.end("nothing");
+               List<CompileStats.Phase> phases = stats.getPhases();
+               Assertions.assertEquals("build", phases.get(0).getName());
+               Assertions.assertEquals("nothing", phases.get(1).getName());
+               Assertions.assertTrue(phases.get(0).getTimeNanos() > 0);
+               Assertions.assertTrue(phases.get(0).getAllocatedBytes() >= text.length());
+          }
+
+          @Test
+          void JsonHasPhasesTotalsAndCounts() {
+               CompileStats stats = new CompileStats();
+               stats.end("lex");
+               stats.count("tokens", 56);
+               stats.count("statements", 11);
+               long timeNanos = stats.getPhases().get(0).getTimeNanos();
+               long allocatedBytes = stats.getPhases().get(0).getAllocatedBytes();
+               String expected = "{\n" +
+                       "  \"phases\": [\n" +
+                       "    {\"name\": \"lex\", \"timeNanos\": " + timeNanos + ", \"allocatedBytes\": " + allocatedBytes + "}\n" +
+                       "  ],\n" +
+                       "  \"totalTimeNanos\": " + timeNanos + ",\n" +
+                       "  \"totalAllocatedBytes\": " + allocatedBytes + ",\n" +
+                       "  \"counts\": {\n" +
+                       "    \"tokens\": 56,\n" +
+                       "    \"statements\": 11\n" +
+                       "  }\n" +
+                       "}";
+               Assertions.assertEquals(expected, stats.toJson());
+          }
+
+          @Test
+          void EmptyStats() {
+               Assertions.assertEquals("{\n  \"phases\": [],\n  \"totalTimeNanos\": 0,\n  \"totalAllocatedBytes\": 0,\n  \"counts\": {}\n}",
+                       new CompileStats().toJson());
+          }
+     }
+}
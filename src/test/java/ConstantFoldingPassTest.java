@@ -0,0 +1,146 @@
+import org.junit.jupiter.api.*;
+import pass.ConstantFoldingPass;
+
+import java.io.IOException;
+
+class ConstantFoldingPassTest {
+     String emitFolded(String source) throws IOException {
+          return PassTestSupport.emit(source, new ConstantFoldingPass());
+     }
+
+     String printed(String expression) {
+          return "    printf(\"%.2f\\n\", (float)(" + expression + "));\n";
+     }
+
+     @Nested
+     class ConstantExpression_PassFoldsWithCArithmetic_CompareEmitResult {
+          @Test
+          void IntMultiplication() throws IOException {
+               String actual = emitFolded("LET x = 60 * 60 * 24\n");
+               Assertions.assertTrue(actual.contains("    x = 86400;\n"), actual);
+          }
+
+          @Test
+          void IntDivisionTruncates() throws IOException {
+               Assertions.assertTrue(emitFolded("PRINT 7 / 2\n").contains(printed("3")));
+          }
+
+          @Test
+          void DoubleDivision() throws IOException {
+               Assertions.assertTrue(emitFolded("PRINT 7 / 2.0\n").contains(printed("3.5")));
+          }
+
+          @Test
+          void ConstantPartOfExpression() throws IOException {
+               String actual = emitFolded("INPUT y\nPRINT 2 * 3 + y\n");
+               Assertions.assertTrue(actual.contains(printed("6+y")), actual);
+          }
+
+          @Test
+          void ParenthesesAroundConstantDropped() throws IOException {
+               Assertions.assertTrue(emitFolded("PRINT (1 + 2) * 3\n").contains(printed("9")));
+          }
+
+          @Test
+          void NegativeResultKeptApartFromMinus() throws IOException {
+               String actual = emitFolded("INPUT a\nPRINT a - (2 - 7)\n");
+               Assertions.assertTrue(actual.contains(printed("a-(-5)")), actual);
+          }
+
+          @Test
+          void NegativeFactorKeptApartFromMinus() throws IOException {
+               String actual = emitFolded("INPUT a\nINPUT b\nLET x = a - (-5) * b\n");
+               Assertions.assertTrue(actual.contains("    x = a-(-5*b);\n"), actual);
+          }
+
+          @Test
+          void NegativeFoldedFactorKeptApartFromMinus() throws IOException {
+               String actual = emitFolded("INPUT a\nINPUT b\nLET x = a - (0 - 5) * b\n");
+               Assertions.assertTrue(actual.contains("    x = a-(-5*b);\n"), actual);
+          }
+
+          @Test
+          void ComparisonFoldsToInt() throws IOException {
+               String actual = emitFolded("IF 1 < 2 AND 3 == 3 THEN\nPRINT \"yes\"\nENDIF\n");
+               Assertions.assertTrue(actual.contains("    if (1) {\n"), actual);
+          }
+
+          @Test
+          void ShortCircuitAnd() throws IOException {
+               String actual = emitFolded("INPUT y\nIF 0 AND y > 1 THEN\nPRINT \"no\"\nENDIF\n");
+               Assertions.assertTrue(actual.contains("    if (0) {\n"), actual);
+          }
+
+          @Test
+          void OctalLiteral() throws IOException {
+               String actual = emitFolded("PRINT 010 + 1\n");
+               Assertions.assertTrue(actual.contains(printed("9")), actual);
+          }
+     }
+
+     @Nested
+     class UndefinedInC_PassLeavesExpression_CompareEmitResult {
+          @Test
+          void IntDivisionByZero() throws IOException {
+               Assertions.assertTrue(emitFolded("PRINT 1 / 0\n").contains(printed("1/0")));
+          }
+
+          @Test
+          void IntOverflow() throws IOException {
+               String actual = emitFolded("PRINT 2147483647 + 1\n");
+               Assertions.assertTrue(actual.contains(printed("2147483647+1")), actual);
+          }
+
+          @Test
+          void DoubleDivisionByZero() throws IOException {
+               Assertions.assertTrue(emitFolded("PRINT 1.0 / 0\n").contains(printed("1.0/0")));
+          }
+     }
+
+     @Nested
+     class SingleConstantDefinition_PassPropagatesConstant_CompareEmitResult {
+          @Test
+          void UsedAfterDefinition() throws IOException {
+               String actual = emitFolded("LET k = 2\nPRINT k * 3\n");
+               Assertions.assertTrue(actual.contains("    k = 2;\n"), actual);
+               Assertions.assertTrue(actual.contains(printed("6.0f")), actual);
+          }
+
+          @Test
+          void NegativeConstantKeptApartFromMinus() throws IOException {
+               String actual = emitFolded("LET k = -2\nINPUT a\nINPUT b\nLET x = a - k * b\n");
+               Assertions.assertTrue(actual.contains("    x = a-(-2.0f*b);\n"), actual);
+          }
+
+          @Test
+          void ConvertedToFloat() throws IOException {
+               String actual = emitFolded("LET k = 1 / 3.0\nPRINT k\n");
+               Assertions.assertTrue(actual.contains(printed("0.33333334f")), actual);
+          }
+
+          @Test
+          void ReassignedNotPropagated() throws IOException {
+               String actual = emitFolded("LET k = 2\nLET k = k + 1\nPRINT k\n");
+               Assertions.assertTrue(actual.contains("    k = k+1;\n"), actual);
+               Assertions.assertTrue(actual.contains(printed("k")), actual);
+          }
+
+          @Test
+          void DefinedInLoopNotPropagated() throws IOException {
+               String actual = emitFolded("WHILE 1 == 1 REPEAT\nLET k = 2\nPRINT k\nENDWHILE\n");
+               Assertions.assertTrue(actual.contains(printed("k")), actual);
+          }
+
+          @Test
+          void InputNotPropagated() throws IOException {
+               String actual = emitFolded("LET k = 2\nINPUT k\nPRINT k\n");
+               Assertions.assertTrue(actual.contains(printed("k")), actual);
+          }
+
+          @Test
+          void DefinitionAfterGotoNotPropagated() throws IOException {
+               String actual = emitFolded("GOTO skip\nLET k = 2\nLABEL skip\nPRINT k\n");
+               Assertions.assertTrue(actual.contains(printed("k")), actual);
+          }
+     }
+}
@@ -0,0 +1,107 @@
+import org.junit.jupiter.api.*;
+import pass.DeadCodeEliminationPass;
+import pass.PassManager;
+
+import java.io.IOException;
+
+class DeadCodeEliminationPassTest {
+     @Nested
+     class UnreachableCode_PassRemovesStatements_CompareEmitResult {
+          @Test
+          void StatementsAfterGotoUntilTargetedLabel() throws IOException {
+               String sourceCode = "GOTO end" + "\n" +
+                       "PRINT \"skipped\"" + "\n" +
+                       "LABEL unused" + "\n" +
+                       "PRINT \"also skipped\"" + "\n" +
+                       "LABEL end" + "\n" +
+                       "PRINT \"done\"" + "\n";
+               String expectedOutput = "    goto end;" + "\n" +
+                       "    end:" + "\n" +
+                       "    printf(\"done\\n\");" + "\n";
+               Assertions.assertEquals(PassTestSupport.expectedProgram(expectedOutput), PassTestSupport.emit(sourceCode, new DeadCodeEliminationPass()));
+          }
+
+          @Test
+          void BlockHoldingTargetKept() throws IOException {
+               String sourceCode = "INPUT a" + "\n" +
+                       "GOTO inside" + "\n" +
+                       "IF a > 0 THEN" + "\n" +
+                       "LABEL inside" + "\n" +
+                       "PRINT a" + "\n" +
+                       "ENDIF" + "\n";
+               String actual = PassTestSupport.emit(sourceCode, new DeadCodeEliminationPass());
+               Assertions.assertTrue(actual.contains("    if (a>0) {\n        inside:\n"), actual);
+          }
+
+          @Test
+          void FalseConditionBlockRemoved() throws IOException {
+               String sourceCode = "IF 1 > 2 THEN" + "\n" +
+                       "PRINT \"never\"" + "\n" +
+                       "ENDIF" + "\n" +
+                       "PRINT \"always\"" + "\n";
+               String expectedOutput = "    printf(\"always\\n\");" + "\n";
+               Assertions.assertEquals(PassTestSupport.expectedProgram(expectedOutput), PassTestSupport.emit(sourceCode, PassManager.optimizations()));
+          }
+     }
+
+     @Nested
+     class UnusedVariables_PassRemovesStoresAndDeclarations_CompareEmitResult {
+          @Test
+          void NeverReadVariableRemoved() throws IOException {
+               String sourceCode = "LET unused = 1" + "\n" +
+                       "LET a = 2" + "\n" +
+                       "LET unused = unused + a" + "\n" +
+                       "PRINT a" + "\n";
+               String expectedOutput = "    float a;" + "\n" +
+                       "    a = 2;" + "\n" +
+                       "    printf(\"%.2f\\n\", (float)(a));" + "\n";
+               Assertions.assertEquals(PassTestSupport.expectedProgram(expectedOutput), PassTestSupport.emit(sourceCode, new DeadCodeEliminationPass()));
+          }
+
+          @Test
+          void OverwrittenStoreRemoved() throws IOException {
+               String sourceCode = "LET a = 1" + "\n" +
+                       "LET a = 2" + "\n" +
+                       "PRINT a" + "\n" +
+                       "LET a = 3" + "\n";
+               String expectedOutput = "    float a;" + "\n" +
+                       "    a = 2;" + "\n" +
+                       "    printf(\"%.2f\\n\", (float)(a));" + "\n";
+               Assertions.assertEquals(PassTestSupport.expectedProgram(expectedOutput), PassTestSupport.emit(sourceCode, new DeadCodeEliminationPass()));
+          }
+
+          @Test
+          void InputKeptWhenNotRead() throws IOException {
+               String actual = PassTestSupport.emit("INPUT a\n", new DeadCodeEliminationPass());
+               Assertions.assertTrue(actual.contains("    float a;\n"), actual);
+               Assertions.assertTrue(actual.contains("scanf(\"%f\", &a)"), actual);
+          }
+
+          @Test
+          void StoreReadInLoopKept() throws IOException {
+               String sourceCode = "LET a = 0" + "\n" +
+                       "WHILE a < 3 REPEAT" + "\n" +
+                       "PRINT a" + "\n" +
+                       "LET a = a + 1" + "\n" +
+                       "ENDWHILE" + "\n";
+               String expectedOutput = "    float a;" + "\n" +
+                       "    a = 0;" + "\n" +
+                       "    while (a<3) {" + "\n" +
+                       "        printf(\"%.2f\\n\", (float)(a));" + "\n" +
+                       "        a = a+1;" + "\n" +
+                       "    }" + "\n";
+               Assertions.assertEquals(PassTestSupport.expectedProgram(expectedOutput), PassTestSupport.emit(sourceCode, new DeadCodeEliminationPass()));
+          }
+     }
+
+     @Nested
+     class FoldedProgram_OptimizationsRemovePropagatedConstants_CompareEmitResult {
+          @Test
+          void PropagatedConstantDeclarationRemoved() throws IOException {
+               String sourceCode = "LET k = 2" + "\n" +
+                       "PRINT k * 3" + "\n";
+               String expectedOutput = "    printf(\"%.2f\\n\", 6.0f);" + "\n";
+               Assertions.assertEquals(PassTestSupport.expectedProgram(expectedOutput), PassTestSupport.emit(sourceCode, PassManager.optimizations()));
+          }
+     }
+}
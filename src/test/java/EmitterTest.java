@@ -2,6 +2,7 @@ import emitter.Emitter;
 import org.junit.jupiter.api.*;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 
 class EmitterTest {
@@ -183,4 +184,104 @@ class EmitterTest {
             Assertions.assertEquals(expected, actual);
         }
     }
+
+    @Nested
+    class LargeEmitterInput_VerifyEmitterOutputFile {
+        @Test
+        void EmitLinesAcrossManyChunks() throws IOException {
+            StringBuilder expected = new StringBuilder();
+            for (int i = 0; i < 20000; i++) {
+                emitter.emitIndent(i % 3);
+                emitter.emitLine("a" + i + " = " + i + ";");
+                expected.append("    ".repeat(i % 3)).append("a").append(i).append(" = ").append(i).append(";\n");
+            }
+            emitter.writeFile();
+            String actual = Files.readString(outputFile.toPath());
+            Assertions.assertEquals(expected.toString(), actual);
+        }
+
+        @Test
+        void EmitCodeOfFragmentsAcrossChunks() throws IOException {
+            StringBuilder expected = new StringBuilder();
+            emitter.headerLine("int main() {");
+            expected.append("int main() {\n");
+            for (int i = 0; i < 5; i++) {
+                Emitter fragment = new Emitter(null);
+                for (int j = 0; j < 1000 * i; j++) {
+                    fragment.emitIndent(1);
+                    fragment.emitLine("f" + i + " = " + j + ";");
+                    expected.append("    f").append(i).append(" = ").append(j).append(";\n");
+                }
+                emitter.emitCode(fragment);
+                emitter.emit("}");
+                expected.append("}");
+            }
+            emitter.writeFile();
+            String actual = Files.readString(outputFile.toPath());
+            Assertions.assertEquals(expected.toString(), actual);
+        }
+
+        @Test
+        void EmitLongHeaderLineThenCode() throws IOException {
+            String longLine = "x".repeat(30000);
+            emitter.headerLine(longLine);
+            emitter.emitIndent(20);
+            emitter.emit("return 0;");
+            emitter.writeFile();
+            String expected = longLine + "\n" + "    ".repeat(20) + "return 0;";
+            String actual = Files.readString(outputFile.toPath());
+            Assertions.assertEquals(expected, actual);
+        }
+    }
+
+    @Nested
+    class ChannelOutput_VerifyEmitterOutputFile {
+        String largeProgram(Emitter emitter) {
+            StringBuilder expected = new StringBuilder("int main() {\n");
+            emitter.headerLine("int main() {");
+            for (int i = 0; i < 100000; i++) {
+                emitter.emitIndent(1);
+                emitter.emitLine("a" + i + " = " + i + ";");
+                expected.append("    a").append(i).append(" = ").append(i).append(";\n");
+            }
+            return expected.toString();
+        }
+
+        @Test
+        void MemoryMappedSameAsWritten() throws IOException {
+            String expected = largeProgram(emitter);
+            emitter.setMemoryMapped(true);
+            emitter.writeFile();
+            Assertions.assertEquals(expected, Files.readString(outputFile.toPath()));
+
+            emitter.setMemoryMapped(false);
+            emitter.writeFile();
+            Assertions.assertEquals(expected, Files.readString(outputFile.toPath()));
+        }
+
+        @Test
+        void ShorterOutputReplacesLongerFile() throws IOException {
+            largeProgram(emitter);
+            emitter.writeFile();
+            for (boolean memoryMapped : new boolean[] {false, true}) {
+                Emitter shorter = new Emitter(outputFileLocation);
+                shorter.setMemoryMapped(memoryMapped);
+                shorter.emitLine("return 0;");
+                shorter.writeFile();
+                Assertions.assertEquals("return 0;\n", Files.readString(outputFile.toPath()));
+            }
+        }
+
+        @Test
+        void NonAsciiCodeWrittenAsUtf8() throws IOException {
+            for (boolean memoryMapped : new boolean[] {false, true}) {
+                Emitter nonAscii = new Emitter(outputFileLocation);
+                nonAscii.setMemoryMapped(memoryMapped);
+                nonAscii.emitLine("printf(\"h\u00e9llo \u2603\\n\");");
+                nonAscii.writeFile();
+                Assertions.assertEquals("printf(\"h\u00e9llo \u2603\\n\");\n",
+                        Files.readString(outputFile.toPath(), StandardCharsets.UTF_8));
+            }
+        }
+    }
 }
@@ -0,0 +1,188 @@
+import diagnostic.RunException;
+import interpreter.Interpreter;
+import lexer.AsciiCharSequence;
+import lexer.Lexer;
+import lexer.TokenBuffer;
+import org.junit.jupiter.api.*;
+import parser.Parser;
+import pass.PassManager;
+import runtime.ProgramIO;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Path;
+
+class InterpreterTest {
+     final static String sourceProgramsDir = "src/main/resources/srcPrograms/";
+
+     String run(CharSequence source, String input, boolean optimize) throws IOException {
+          TokenBuffer tokens = new TokenBuffer();
+          new Lexer(source).tokenize(tokens);
+          Parser parser = new Parser(tokens);
+          if (optimize) {
+               parser.addPass(PassManager.optimizations());
+          }
+          StringWriter output = new StringWriter();
+          new Interpreter(parser.parseAndTransform()).run(new ProgramIO(new StringReader(input), output));
+          return output.toString();
+     }
+
+     String run(CharSequence source, String input) throws IOException {
+          String output = run(source, input, false);
+          Assertions.assertEquals(output, run(source, input, true), "optimized program printed something else");
+          return output;
+     }
+
+     String runProgram(String program, String input) throws IOException {
+          return run(AsciiCharSequence.map(Path.of(sourceProgramsDir, program)), input);
+     }
+
+     @Nested
+     class TestPrograms_InterpreterRunProgram_CompareOutput {
+          @Test
+          void HelloWorld() throws IOException {
+               Assertions.assertEquals("Hello World!\n", runProgram("helloWorld.teenytiny", ""));
+          }
+
+          @Test
+          void Fibonacci() throws IOException {
+               String expected = "How many fibonacci numbers do you want?\n\n" +
+                       "0.00\n1.00\n1.00\n2.00\n3.00\n5.00\n";
+               Assertions.assertEquals(expected, runProgram("fibonacci.teenytiny", "6\n"));
+          }
+
+          @Test
+          void Average() throws IOException {
+               String expected = "Enter number of scores: \n" +
+                       "Enter number of scores: \n" +
+                       "Enter one value at a time: \n" +
+                       "Average: \n" +
+                       "2.33\n";
+               Assertions.assertEquals(expected, runProgram("average.teenytiny", "0\n3\n1 2\n4\n"));
+          }
+     }
+
+     @Nested
+     class Statements_InterpreterRunStatement_CompareOutput {
+          @Test
+          void GotoLoop() throws IOException {
+               String sourceCode = "LET i = 0" + "\n" +
+                       "LABEL top" + "\n" +
+                       "LET i = i + 1" + "\n" +
+                       "IF i < 3 THEN" + "\n" +
+                       "GOTO top" + "\n" +
+                       "ENDIF" + "\n" +
+                       "PRINT i" + "\n";
+               Assertions.assertEquals("3.00\n", run(sourceCode, ""));
+          }
+
+          @Test
+          void GotoIntoBlock() throws IOException {
+               String sourceCode = "GOTO inside" + "\n" +
+                       "IF 1 > 2 THEN" + "\n" +
+                       "LABEL inside" + "\n" +
+                       "PRINT \"inside\"" + "\n" +
+                       "ENDIF" + "\n";
+               Assertions.assertEquals("inside\n", run(sourceCode, ""));
+          }
+
+          @Test
+          void NestedWhile() throws IOException {
+               String sourceCode = "LET i = 0" + "\n" +
+                       "LET n = 0" + "\n" +
+                       "WHILE i < 3 REPEAT" + "\n" +
+                       "LET j = 0" + "\n" +
+                       "WHILE j < i REPEAT" + "\n" +
+                       "LET n = n + 1" + "\n" +
+                       "LET j = j + 1" + "\n" +
+                       "ENDWHILE" + "\n" +
+                       "LET i = i + 1" + "\n" +
+                       "ENDWHILE" + "\n" +
+                       "PRINT n" + "\n";
+               Assertions.assertEquals("3.00\n", run(sourceCode, ""));
+          }
+
+          @Test
+          void InvalidInputReadAsZeroAndSkipped() throws IOException {
+               String sourceCode = "INPUT a\nINPUT b\nPRINT a\nPRINT b\n";
+               Assertions.assertEquals("0.00\n5.00\n", run(sourceCode, "abc 5\n"));
+          }
+
+          @Test
+          void InputAtEndKeepsValue() throws IOException {
+               String sourceCode = "LET a = 7\nINPUT a\nPRINT a\n";
+               Assertions.assertEquals("7.00\n", run(sourceCode, ""));
+          }
+
+          @Test
+          void InputWithExponentAndSign() throws IOException {
+               String sourceCode = "INPUT a\nINPUT b\nPRINT a\nPRINT b\n";
+               Assertions.assertEquals("-150.00\n2.00\n", run(sourceCode, "-1.5e2 2e\n"));
+          }
+     }
+
+     @Nested
+     class Arithmetic_InterpreterEvaluateLikeC_CompareOutput {
+          @Test
+          void IntDivisionTruncates() throws IOException {
+               Assertions.assertEquals("3.00\n-3.00\n", run("PRINT 7 / 2\nPRINT -7 / 2\n", ""));
+          }
+
+          @Test
+          void DoubleDivision() throws IOException {
+               Assertions.assertEquals("0.33\n", run("PRINT 1 / 3.0\n", ""));
+          }
+
+          @Test
+          void VariablesAreFloats() throws IOException {
+               Assertions.assertEquals("16777216.00\n", run("LET a = 16777217\nPRINT a\n", ""));
+          }
+
+          @Test
+          void ComparisonsAndLogic() throws IOException {
+               // NOT applies to the first operand, as "!" does in the generated C
+               String sourceCode = "IF NOT 0 < 4 AND 1 < 2 OR 0 == 1 THEN" + "\n" +
+                       "PRINT \"yes\"" + "\n" +
+                       "ENDIF" + "\n" +
+                       "IF NOT 3 > 4 AND 1 < 2 OR 0 == 1 THEN" + "\n" +
+                       "PRINT \"no\"" + "\n" +
+                       "ENDIF" + "\n";
+               Assertions.assertEquals("yes\n", run(sourceCode, ""));
+          }
+
+          @Test
+          void IntDivisionByZeroFails() {
+               Assertions.assertThrows(RunException.class, () -> run("INPUT a\nPRINT 1 / 0\n", "", false));
+          }
+     }
+
+     @Nested
+     class FloatValue_FormatLikePrintf_CompareText {
+          @Test
+          void HalfRoundsToEven() {
+               Assertions.assertEquals("0.12", ProgramIO.format(0.125f));
+               Assertions.assertEquals("0.38", ProgramIO.format(0.375f));
+          }
+
+          @Test
+          void BinaryValueRounded() {
+               // 2.675f is slightly below 2.675
+               Assertions.assertEquals("2.67", ProgramIO.format(2.675f));
+          }
+
+          @Test
+          void NegativeZero() {
+               Assertions.assertEquals("-0.00", ProgramIO.format(-0.001f));
+               Assertions.assertEquals("-0.00", ProgramIO.format(-0.0f));
+          }
+
+          @Test
+          void LargeAndSpecialValues() {
+               Assertions.assertEquals("10000000000.00", ProgramIO.format(1e10f));
+               Assertions.assertEquals("inf", ProgramIO.format(Float.POSITIVE_INFINITY));
+               Assertions.assertEquals("-inf", ProgramIO.format(Float.NEGATIVE_INFINITY));
+               Assertions.assertEquals("nan", ProgramIO.format(Float.NaN));
+          }
+     }
+}
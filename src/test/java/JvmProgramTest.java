@@ -0,0 +1,147 @@
+import diagnostic.RunException;
+import interpreter.Interpreter;
+import jvm.JvmProgram;
+import lexer.AsciiCharSequence;
+import lexer.Lexer;
+import lexer.TokenBuffer;
+import org.junit.jupiter.api.*;
+import parser.Parser;
+import pass.PassManager;
+import runtime.ProgramIO;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Path;
+
+class JvmProgramTest {
+     final static String sourceProgramsDir = "src/main/resources/srcPrograms/";
+
+     ast.Program parse(CharSequence source, boolean optimize) {
+          TokenBuffer tokens = new TokenBuffer();
+          new Lexer(source).tokenize(tokens);
+          Parser parser = new Parser(tokens);
+          if (optimize) {
+               parser.addPass(PassManager.optimizations());
+          }
+          return parser.parseAndTransform();
+     }
+
+     String run(CharSequence source, String input, boolean optimize) throws IOException {
+          StringWriter output = new StringWriter();
+          JvmProgram.compile(parse(source, optimize)).run(new ProgramIO(new StringReader(input), output));
+          return output.toString();
+     }
+
+     String interpret(CharSequence source, String input) throws IOException {
+          StringWriter output = new StringWriter();
+          new Interpreter(parse(source, false)).run(new ProgramIO(new StringReader(input), output));
+          return output.toString();
+     }
+
+     // Runs the program compiled with and without optimizations and checks it
+     // prints the same as the interpreter
+     String run(CharSequence source, String input) throws IOException {
+          String output = run(source, input, false);
+          Assertions.assertEquals(interpret(source, input), output);
+          Assertions.assertEquals(output, run(source, input, true), "optimized program printed something else");
+          return output;
+     }
+
+     @Nested
+     class TestPrograms_JvmProgramRun_SameOutputAsInterpreter {
+          @Test
+          void HelloWorld() throws IOException {
+               CharSequence source = AsciiCharSequence.map(Path.of(sourceProgramsDir, "helloWorld.teenytiny"));
+               Assertions.assertEquals("Hello World!\n", run(source, ""));
+          }
+
+          @Test
+          void Fibonacci() throws IOException {
+               CharSequence source = AsciiCharSequence.map(Path.of(sourceProgramsDir, "fibonacci.teenytiny"));
+               String output = run(source, "30\n");
+               Assertions.assertTrue(output.endsWith("514229.00\n"), output);
+          }
+
+          @Test
+          void Average() throws IOException {
+               CharSequence source = AsciiCharSequence.map(Path.of(sourceProgramsDir, "average.teenytiny"));
+               Assertions.assertTrue(run(source, "-1\n3\n1 2\n4\n").endsWith("Average: \n2.33\n"));
+          }
+     }
+
+     @Nested
+     class Statements_JvmProgramRun_SameOutputAsInterpreter {
+          @Test
+          void GotoBackwardsAndIntoBlock() throws IOException {
+               String sourceCode = "LET i = 0" + "\n" +
+                       "LABEL top" + "\n" +
+                       "LET i = i + 1" + "\n" +
+                       "IF i < 3 THEN" + "\n" +
+                       "GOTO top" + "\n" +
+                       "ENDIF" + "\n" +
+                       "GOTO inside" + "\n" +
+                       "WHILE i > 0 REPEAT" + "\n" +
+                       "LABEL inside" + "\n" +
+                       "PRINT i" + "\n" +
+                       "LET i = i - 1" + "\n" +
+                       "ENDWHILE" + "\n";
+               Assertions.assertEquals("3.00\n2.00\n1.00\n", run(sourceCode, ""));
+          }
+
+          @Test
+          void InputEndsAndBadInput() throws IOException {
+               String sourceCode = "LET a = 7\nINPUT b\nINPUT c\nINPUT a\nPRINT a\nPRINT b\nPRINT c\n";
+               Assertions.assertEquals("7.00\n0.00\n2.50\n", run(sourceCode, "x 2.5"));
+          }
+
+          @Test
+          void ManyVariablesUseWideLocals() throws IOException {
+               StringBuilder sourceCode = new StringBuilder();
+               for (int i = 0; i < 300; i++) {
+                    sourceCode.append("LET v").append(i).append(" = ").append(i).append("\n");
+               }
+               sourceCode.append("PRINT v299 + v0 + v150\n");
+               Assertions.assertEquals("449.00\n", run(sourceCode, ""));
+          }
+     }
+
+     @Nested
+     class Arithmetic_JvmProgramEvaluateLikeC_SameOutputAsInterpreter {
+          @Test
+          void MixedTypes() throws IOException {
+               String sourceCode = "LET a = 16777217" + "\n" +
+                       "PRINT a" + "\n" +
+                       "PRINT 7 / 2 * 1.5" + "\n" +
+                       "PRINT -7 / 2 + a / 3" + "\n" +
+                       "PRINT 100000 * 100000.0" + "\n" +
+                       "PRINT 1 / 3.0 * 3" + "\n";
+               run(sourceCode, "");
+          }
+
+          @Test
+          void NaNComparesFalse() throws IOException {
+               String sourceCode = "LET n = 0.0 / 0" + "\n" +
+                       "IF n < 1 THEN\nPRINT \"lt\"\nENDIF" + "\n" +
+                       "IF n >= 1 THEN\nPRINT \"ge\"\nENDIF" + "\n" +
+                       "IF n == n THEN\nPRINT \"eq\"\nENDIF" + "\n" +
+                       "IF n != n THEN\nPRINT \"ne\"\nENDIF" + "\n" +
+                       "IF n AND 1 THEN\nPRINT \"true\"\nENDIF" + "\n";
+               // but is not zero, so it is true as a condition
+               Assertions.assertEquals("ne\ntrue\n", run(sourceCode, ""));
+          }
+
+          @Test
+          void LogicShortCircuits() throws IOException {
+               String sourceCode = "IF 0 == 1 AND 1 / 0 == 1 THEN\nPRINT \"and\"\nENDIF" + "\n" +
+                       "IF 1 == 1 OR 1 / 0 == 1 THEN\nPRINT \"or\"\nENDIF" + "\n" +
+                       "IF NOT 0 < 4 AND 1 < 2 THEN\nPRINT \"not\"\nENDIF" + "\n";
+               Assertions.assertEquals("or\nnot\n", run(sourceCode, ""));
+          }
+
+          @Test
+          void IntDivisionByZeroFails() {
+               Assertions.assertThrows(RunException.class, () -> run("INPUT a\nPRINT 1 / 0\n", "", false));
+          }
+     }
+}
@@ -1,8 +1,25 @@
+import diagnostic.Diagnostic;
+import generator.ProgramGenerator;
+import lexer.AsciiCharSequence;
 import lexer.Lexer;
+import lexer.ParallelLexer;
+import lexer.TokenBuffer;
 import org.junit.jupiter.api.*;
 import token.Token;
 import token.TokenType;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.ArrayList;
+import java.util.List;
+
 class LexerTest {
     Lexer lexer;
     String sourceCode;
@@ -212,4 +229,239 @@ class LexerTest {
             checkTokensEqual(sourceCode, tokenPARENTHESESRIGHT);
         }
     }
+
+    @Nested
+    class SourceInputs_LexerIdentifyTokens_SameTokensAsString {
+        final String program = "# Comment\n" +
+                "LET a = 1.5\n" +
+                "WHILE a < 10 REPEAT\n" +
+                "    PRINT \"" + "long string ".repeat(10) + "\"\n" +
+                "    LET a = a * 2\n" +
+                "ENDWHILE";
+
+        void checkSameTokens(Lexer expectedLexer, Lexer actualLexer) {
+            Token expectedToken, actualToken;
+            do {
+                expectedToken = expectedLexer.getToken();
+                actualToken = actualLexer.getToken();
+                Assertions.assertEquals(expectedToken.getTokenText(), actualToken.getTokenText());
+                Assertions.assertEquals(expectedToken.getTokenKind(), actualToken.getTokenKind());
+            } while (expectedToken.getTokenKind() != TokenType.EOF);
+        }
+
+        @Test
+        void MemoryMappedFile() throws IOException {
+            Path sourceFile = Files.createTempFile("lexerTest", ".teenytiny");
+            try {
+                Files.writeString(sourceFile, program);
+                checkSameTokens(new Lexer(program + "\n"), new Lexer(AsciiCharSequence.map(sourceFile)));
+            } finally {
+                Files.delete(sourceFile);
+            }
+        }
+
+        @Test
+        void StreamedChannelWithSmallWindow() {
+            byte[] bytes = program.getBytes(StandardCharsets.UTF_8);
+            Lexer streamingLexer = new Lexer(Channels.newChannel(new ByteArrayInputStream(bytes)), 16);
+            checkSameTokens(new Lexer(program + "\n"), streamingLexer);
+        }
+
+        // A channel giving at most readSize bytes per read
+        ReadableByteChannel shortReads(String source, int readSize) {
+            ByteBuffer bytes = ByteBuffer.wrap(source.getBytes(StandardCharsets.UTF_8));
+            return new ReadableByteChannel() {
+                @Override
+                public int read(ByteBuffer destination) {
+                    if (!bytes.hasRemaining()) {
+                        return -1;
+                    }
+                    int count = Math.min(Math.min(readSize, bytes.remaining()), destination.remaining());
+                    ByteBuffer slice = bytes.slice();
+                    slice.limit(count);
+                    destination.put(slice);
+                    bytes.position(bytes.position() + count);
+                    return count;
+                }
+
+                @Override
+                public boolean isOpen() {
+                    return true;
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+
+        @Test
+        void ShortReadsIntoSmallWindow() {
+            String sourceCode = "PRINT rfzuyemonhieubola \n\n";
+            checkSameTokens(new Lexer(sourceCode), new Lexer(shortReads(sourceCode, 14), 17));
+            checkSameTokens(new Lexer(program + "\n"), new Lexer(shortReads(program, 14), 17));
+        }
+
+        @Test
+        void EscapedNewlineIsNewline() {
+            checkSameTokens(new Lexer("LET a = 1\nPRINT a\n"), new Lexer("LET a = 1\\nPRINT a\n"));
+        }
+    }
+
+    @Nested
+    class SourceCode_LexerTokenizeIntoBuffer_SameTokensAsGetToken {
+        void checkSameTokens(String sourceCode) {
+            TokenBuffer tokens = new TokenBuffer();
+            new Lexer(sourceCode).tokenize(tokens);
+            Lexer expectedLexer = new Lexer(sourceCode);
+            for (int i = 0; i < tokens.size(); i++) {
+                Token expectedToken = expectedLexer.getToken();
+                Assertions.assertEquals(expectedToken.getTokenText(), tokens.text(i).toString());
+                Assertions.assertEquals(expectedToken.getTokenKind(), tokens.kind(i));
+            }
+            Assertions.assertEquals(TokenType.EOF, tokens.kind(tokens.size() - 1));
+        }
+
+        @Test
+        void AllTokenKinds() {
+            checkSameTokens("# Comment\n" +
+                    "LABEL top\n" +
+                    "LET a = (1 + 2.5) * 3 / 4 - 5\n" +
+                    "IF NOT a == 1 AND a != 2 OR a < 3 THEN\n" +
+                    "    PRINT \"Hello World!\"\n" +
+                    "ENDIF\n" +
+                    "WHILE a <= 10 REPEAT\n" +
+                    "    INPUT b\n" +
+                    "ENDWHILE\n" +
+                    "IF a > 1 THEN\nENDIF\nIF a >= 1 THEN\nENDIF\n" +
+                    "GOTO top\n");
+        }
+
+        @Test
+        void ReuseBufferForAnotherSource() {
+            TokenBuffer tokens = new TokenBuffer();
+            new Lexer("LET longName = 1\n").tokenize(tokens);
+            new Lexer("PRINT x").tokenize(tokens);
+            Assertions.assertEquals(3, tokens.size());
+            Assertions.assertEquals(TokenType.PRINT, tokens.kind(0));
+            Assertions.assertEquals("x", tokens.text(1).toString());
+        }
+    }
+
+    @Nested
+    class BadCharacters_LexerReportAndContinue_CompareDiagnostics {
+        List<String> lexAll(String sourceCode) {
+            lexer = new Lexer(sourceCode);
+            while (lexer.getToken().getTokenKind() != TokenType.EOF) {
+            }
+            List<String> diagnostics = new ArrayList<String>();
+            for (Diagnostic diagnostic : lexer.getDiagnostics().getDiagnostics()) {
+                diagnostics.add(diagnostic.toString());
+            }
+            return diagnostics;
+        }
+
+        @Test
+        void UnknownCharactersSkipped() {
+            Assertions.assertEquals(List.of("1:7: Lexer error. Unknown Token: $", "2:3: Lexer error. Unknown Token: !x"),
+                    lexAll("LET a $= 1\na !x\n"));
+        }
+
+        @Test
+        void UnterminatedStringAtEndOfFile() {
+            Assertions.assertEquals(List.of("1:7: Lexer error. Unterminated string"), lexAll("PRINT \"Hello"));
+        }
+
+        @Test
+        void UnterminatedStringEndsAtNewline() {
+            lexer = new Lexer("PRINT \"Hello\nPRINT 1\n");
+            lexer.getToken();
+            Token string = lexer.getToken();
+            Assertions.assertEquals("Hello", string.getTokenText());
+            Assertions.assertEquals(TokenType.NEWLINE, lexer.getToken().getTokenKind());
+            Token print = lexer.getToken();
+            Assertions.assertEquals(TokenType.PRINT, print.getTokenKind());
+            Assertions.assertEquals(2, print.getLine());
+            Assertions.assertEquals(1, print.getColumn());
+        }
+
+        @Test
+        void IllegalCharactersInStringAndNumber() {
+            Assertions.assertEquals(List.of("1:10: Lexer error. Illegal character in string",
+                            "2:11: Lexer error. Illegal character in number."),
+                    lexAll("PRINT \"10%\"\nLET a = 1.x\n"));
+        }
+
+        @Test
+        void TokenBufferKeepsDiagnostics() {
+            TokenBuffer tokens = new TokenBuffer();
+            new Lexer("PRINT 1\n  ?\n").tokenize(tokens);
+            Assertions.assertEquals(1, tokens.getDiagnostics().getErrorCount());
+            Assertions.assertEquals(2, tokens.getDiagnostics().getDiagnostics().get(0).getLine());
+            Assertions.assertEquals(3, tokens.getDiagnostics().getDiagnostics().get(0).getColumn());
+        }
+    }
+
+    @Nested
+    class LargeSource_ParallelLexerTokenizeChunks_SameTokensAsLexer {
+        final ForkJoinPool pool = new ForkJoinPool(4);
+
+        @AfterEach
+        void shutdown() {
+            pool.shutdown();
+        }
+
+        void checkSameTokens(CharSequence sourceCode, int chunkSize) {
+            TokenBuffer expected = new TokenBuffer();
+            new Lexer(sourceCode).tokenize(expected);
+            TokenBuffer actual = new TokenBuffer();
+            new ParallelLexer(pool, chunkSize).tokenize(sourceCode, actual);
+            Assertions.assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                Assertions.assertEquals(expected.kind(i), actual.kind(i));
+                Assertions.assertEquals(expected.start(i), actual.start(i));
+                Assertions.assertEquals(expected.end(i), actual.end(i));
+                Assertions.assertEquals(expected.identifierId(i), actual.identifierId(i));
+                Assertions.assertEquals(expected.text(i).toString(), actual.text(i).toString());
+            }
+            Assertions.assertEquals(expected.getIdentifiers().size(), actual.getIdentifiers().size());
+            Assertions.assertEquals(expected.getDiagnostics().getErrorCount(), actual.getDiagnostics().getErrorCount());
+            Assertions.assertEquals(expected.getDiagnostics().getDiagnostics().toString(),
+                    actual.getDiagnostics().getDiagnostics().toString());
+        }
+
+        @Test
+        void GeneratedProgramInSmallChunks() {
+            String sourceCode = new ProgramGenerator(100, 20, 4, 5, 3).generate(3000);
+            checkSameTokens(sourceCode, 1);
+            checkSameTokens(sourceCode, 100);
+            checkSameTokens(sourceCode, 4096);
+        }
+
+        @Test
+        void ErrorsOnLaterLines() {
+            String sourceCode = "LET a = 1\n# comment \"with quote\nPRINT \"unterminated\nLET b = a $ 2\n" +
+                    "PRINT \"x\" \\n PRINT a\n".repeat(20) + "LET c = 1.x\nPRINT \"%\"";
+            checkSameTokens(sourceCode, 1);
+            checkSameTokens(sourceCode, 7);
+        }
+
+        @Test
+        void SourceWithoutFinalNewline() {
+            checkSameTokens("LET a = 1\nPRINT a", 3);
+            checkSameTokens("", 3);
+            checkSameTokens("\n\n\n", 1);
+        }
+
+        @Test
+        void MemoryMappedFile() throws IOException {
+            Path sourceFile = Files.createTempFile("generated", ".teenytiny");
+            try {
+                Files.writeString(sourceFile, new ProgramGenerator(10, 2, 2, 3, 5).generate(500).stripTrailing());
+                checkSameTokens(AsciiCharSequence.map(sourceFile), 256);
+            } finally {
+                Files.delete(sourceFile);
+            }
+        }
+    }
 }
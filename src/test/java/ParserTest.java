@@ -1,11 +1,24 @@
+import ast.*;
+import codegen.CGenerator;
+import diagnostic.CompileException;
+import diagnostic.Diagnostic;
 import emitter.Emitter;
+import generator.ProgramGenerator;
 import lexer.Lexer;
+import lexer.TokenBuffer;
 import org.junit.jupiter.api.*;
+import parser.ParseResult;
 import parser.Parser;
+import pass.Pass;
+import token.TokenType;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 class ParserTest {
      Parser parser;
@@ -240,4 +253,385 @@ class ParserTest {
                Assertions.assertEquals(expected, actual);
           }
      }
+
+     @Nested
+     class TokenBufferInput_ParserConvertSourceCode_SameResultAsLexerInput {
+          @Test
+          void ProgramFromTokenBuffer() throws IOException {
+               String sourceCode = "LET a = (1 + 1) + (2 * 6)" + "\n" +
+                       "WHILE a > 0 REPEAT" + "\n" +
+                       "    PRINT a" + "\n" +
+                       "    LET a = a - 1" + "\n" +
+                       "ENDWHILE" + "\n";
+               emitProgram(sourceCode);
+               String expected = Files.readString(outputFile.toPath());
+
+               emitter = new Emitter(outputFileLocation);
+               TokenBuffer tokens = new TokenBuffer();
+               new Lexer(sourceCode).tokenize(tokens);
+               parser = new Parser(tokens, emitter);
+               parser.program();
+               emitter.writeFile();
+               String actual = Files.readString(outputFile.toPath());
+               Assertions.assertEquals(expected, actual);
+          }
+     }
+
+     @Nested
+     class ManySymbols_ParserConvertSourceCode_CompareEmitResult {
+          @Test
+          void ManyVariablesAndLabels() throws IOException {
+               StringBuilder sourceCode = new StringBuilder();
+               StringBuilder expectedHeader = new StringBuilder();
+               StringBuilder expectedOutput = new StringBuilder();
+               for (int i = 0; i < 5000; i++) {
+                    sourceCode.append("GOTO l").append(i).append("\n");
+                    expectedOutput.append("    goto l").append(i).append(";\n");
+               }
+               for (int i = 0; i < 5000; i++) {
+                    sourceCode.append("LABEL l").append(i).append("\n");
+                    sourceCode.append("LET v").append(i).append(" = ").append(i).append("\n");
+                    sourceCode.append("PRINT v").append(i).append("\n");
+                    expectedHeader.append("    float v").append(i).append(";\n");
+                    expectedOutput.append("    l").append(i).append(":\n");
+                    expectedOutput.append("    v").append(i).append(" = ").append(i).append(";\n");
+                    expectedOutput.append("    printf(\"%.2f\\n\", (float)(v").append(i).append("));\n");
+               }
+               String expected = expectedProgram(expectedHeader.toString() + expectedOutput);
+               emitProgram(sourceCode.toString());
+               String actual = Files.readString(outputFile.toPath());
+               Assertions.assertEquals(expected, actual);
+          }
+     }
+
+     @Nested
+     class SourceCode_ParserBuildSyntaxTree_CompareTree {
+          Program parse(String sourceCode) {
+               TokenBuffer tokens = new TokenBuffer();
+               new Lexer(sourceCode).tokenize(tokens);
+               return new Parser(tokens).parse();
+          }
+
+          @Test
+          void StatementsAndVariables() {
+               Program program = parse("INPUT n\nLET a = n * 2\nWHILE a > 0 REPEAT\nLET a = a - 1\nENDWHILE\n");
+               Assertions.assertEquals(List.of("n", "a"), program.getVariables());
+               Assertions.assertEquals(3, program.getStatements().size());
+               LetStatement let = (LetStatement) program.getStatements().get(1);
+               Assertions.assertEquals(1, let.getVariable().getSymbolId());
+               Assertions.assertEquals(CType.FLOAT, let.getExpression().getType());
+               WhileStatement loop = (WhileStatement) program.getStatements().get(2);
+               Assertions.assertEquals(1, loop.getBody().size());
+          }
+
+          @Test
+          void ComparisonGroupedByCPrecedence() {
+               Program program = parse("IF NOT 1 < 2 == 1 AND 3 > 4 OR 0 == 1 THEN\nENDIF\n");
+               IfStatement ifStatement = (IfStatement) program.getStatements().get(0);
+               BinaryExpression or = (BinaryExpression) ifStatement.getCondition();
+               Assertions.assertEquals(TokenType.OR, or.getOperator());
+               BinaryExpression and = (BinaryExpression) or.getLeft();
+               Assertions.assertEquals(TokenType.AND, and.getOperator());
+               BinaryExpression equals = (BinaryExpression) and.getLeft();
+               Assertions.assertEquals(TokenType.EQEQ, equals.getOperator());
+               BinaryExpression less = (BinaryExpression) equals.getLeft();
+               Assertions.assertEquals(TokenType.LT, less.getOperator());
+               Assertions.assertEquals(TokenType.NOT, ((UnaryExpression) less.getLeft()).getOperator());
+               Assertions.assertEquals(TokenType.GT, ((BinaryExpression) and.getRight()).getOperator());
+          }
+
+          @Test
+          void NumberTypes() {
+               Program program = parse("PRINT 1 / 2\nPRINT 1 / 2.0\n");
+               Assertions.assertEquals(CType.INT, ((PrintStatement) program.getStatements().get(0)).getExpression().getType());
+               Assertions.assertEquals(CType.DOUBLE, ((PrintStatement) program.getStatements().get(1)).getExpression().getType());
+          }
+     }
+
+     @Nested
+     class NestedBlocks_ParserConvertSourceCode_CompareEmitResult {
+          @Test
+          void NestedBlocksIndentedByDepth() throws IOException {
+               String sourceCode = "LET a = 0" + "\n" +
+                       "WHILE a < 3 REPEAT" + "\n" +
+                       "    IF a == 1 THEN" + "\n" +
+                       "        PRINT a" + "\n" +
+                       "        INPUT a" + "\n" +
+                       "    ENDIF" + "\n" +
+                       "    LET a = a + 1" + "\n" +
+                       "ENDWHILE" + "\n";
+               String expectedOutput = "    float a;" + "\n" +
+                       "    a = 0;" + "\n" +
+                       "    while (a<3) {" + "\n" +
+                       "        if (a==1) {" + "\n" +
+                       "            printf(\"%.2f\\n\", (float)(a));" + "\n" +
+                       "            if (0 == scanf(\"%f\", &a)) {" + "\n" +
+                       "                a = 0;" + "\n" +
+                       "                scanf(\"%*s\");" + "\n" +
+                       "            }" + "\n" +
+                       "        }" + "\n" +
+                       "        a = a+1;" + "\n" +
+                       "    }" + "\n";
+               String expected = expectedProgram(expectedOutput);
+               emitProgram(sourceCode);
+               String actual = Files.readString(outputFile.toPath());
+               Assertions.assertEquals(expected, actual);
+          }
+
+          @Test
+          void ParenthesesInsideExpression() throws IOException {
+               String sourceCode = "LET a = 2 * (1 + (3 - 1)) / (4)" + "\n";
+               String expectedOutput = "    float a;" + "\n" +
+                       "    a = 2*(1+(3-1))/(4);" + "\n";
+               String expected = expectedProgram(expectedOutput);
+               emitProgram(sourceCode);
+               String actual = Files.readString(outputFile.toPath());
+               Assertions.assertEquals(expected, actual);
+          }
+     }
+
+     @Nested
+     class PassAdded_ParserRunPassBeforeCodeGeneration_CompareEmitResult {
+          @Test
+          void PassRewritesProgram() throws IOException {
+               lexer = new Lexer("PRINT \"kept\"\nPRINT \"dropped\"\n");
+               parser = new Parser(lexer, emitter);
+               parser.addPass(new Pass() {
+                    public String getName() {
+                         return "dropLast";
+                    }
+
+                    public Program run(Program program) {
+                         List<Statement> statements = program.getStatements();
+                         return new Program(statements.subList(0, statements.size() - 1), program.getVariables());
+                    }
+               });
+               parser.program();
+               emitter.writeFile();
+               String expected = expectedProgram("    printf(\"kept\\n\");" + "\n");
+               String actual = Files.readString(outputFile.toPath());
+               Assertions.assertEquals(expected, actual);
+          }
+     }
+
+     @Nested
+     class SourceErrors_ParserRecoverAtStatements_AllDiagnosticsReported {
+          List<String> diagnostics(ParseResult result) {
+               List<String> diagnostics = new ArrayList<String>();
+               for (Diagnostic diagnostic : result.getDiagnostics()) {
+                    diagnostics.add(diagnostic.toString());
+               }
+               return diagnostics;
+          }
+
+          ParseResult parseBuffered(String sourceCode) {
+               TokenBuffer tokens = new TokenBuffer();
+               new Lexer(sourceCode).tokenize(tokens);
+               return new Parser(tokens).parseWithDiagnostics();
+          }
+
+          @Test
+          void OneErrorPerBadStatement() {
+               String sourceCode = "LET a = \n" +
+                       "PRINT b\n" +
+                       "LET c = 1\n" +
+                       "IF c > THEN\n" +
+                       "    PRINT c +\n" +
+                       "    LABEL c\n" +
+                       "ENDIF\n" +
+                       "LABEL c\n" +
+                       "GOTO nowhere\n" +
+                       "PRINT c $ 1\n";
+               List<String> expected = List.of(
+                       "1:9: Parser error. primary: Unexpected token at \\n",
+                       "2:7: Parser error. Referencing variable before assignment: b",
+                       "4:8: Parser error. primary: Unexpected token at THEN",
+                       "5:14: Parser error. primary: Unexpected token at \\n",
+                       "8:7: Parser error. Label already exists: c",
+                       "9:6: Parser error. Attempting to GOTO to undeclared label: nowhere",
+                       "10:9: Lexer error. Unknown Token: $",
+                       "10:11: Parser error. Expected NEWLINE, got 1");
+               ParseResult result = new Parser(new Lexer(sourceCode), emitter).parseWithDiagnostics();
+               Assertions.assertNull(result.getProgram());
+               Assertions.assertEquals(expected, diagnostics(result));
+               Assertions.assertEquals(expected, diagnostics(parseBuffered(sourceCode)));
+          }
+
+          @Test
+          void MissingEndOfBlock() {
+               ParseResult result = parseBuffered("WHILE 1 < 2 REPEAT\nPRINT 1\n");
+               Assertions.assertEquals(List.of("3:1: Parser error. Expected ENDWHILE, got "), diagnostics(result));
+          }
+
+          @Test
+          void ValidSourceHasProgramAndNoDiagnostics() {
+               ParseResult result = parseBuffered("LET a = 1\nPRINT a\n");
+               Assertions.assertFalse(result.hasErrors());
+               Assertions.assertEquals(2, result.getProgram().getStatements().size());
+          }
+
+          @Test
+          void IntegerTooBigForInt() {
+               ParseResult result = parseBuffered("PRINT 2147483647\nPRINT 2147483648\nPRINT 040000000000\nPRINT 2147483648.0\n");
+               Assertions.assertEquals(List.of(
+                       "2:7: Parser error. Integer too big for an int: 2147483648, write it with a decimal point",
+                       "3:7: Parser error. Integer too big for an int: 040000000000, write it with a decimal point"),
+                       diagnostics(result));
+          }
+
+          @Test
+          void ParseThrowsWithEveryDiagnostic() {
+               CompileException exception = Assertions.assertThrows(CompileException.class,
+                       () -> new Parser(new Lexer("PRINT a\nPRINT b\n"), emitter).parse());
+               Assertions.assertEquals(2, exception.getDiagnostics().size());
+               Assertions.assertEquals("1:7: Parser error. Referencing variable before assignment: a\n" +
+                       "2:7: Parser error. Referencing variable before assignment: b", exception.getMessage());
+          }
+     }
+
+     @Nested
+     class ManyRegions_ParserParseRegionsInParallel_SameResultAsSequential {
+          ForkJoinPool pool;
+
+          @BeforeEach
+          void startPool() {
+               pool = new ForkJoinPool(4);
+          }
+
+          @AfterEach
+          void stopPool() {
+               pool.shutdown();
+          }
+
+          Parser parser(String sourceCode, boolean parallel) {
+               TokenBuffer tokens = new TokenBuffer();
+               new Lexer(sourceCode).tokenize(tokens);
+               Parser parser = new Parser(tokens, new Emitter(null));
+               if (parallel) {
+                    // A few statements per region, so even small sources are split
+                    parser.setParallel(pool, 8);
+               }
+               return parser;
+          }
+
+          String generate(String sourceCode, boolean parallel) throws IOException {
+               Emitter emitter = new Emitter(null);
+               TokenBuffer tokens = new TokenBuffer();
+               new Lexer(sourceCode).tokenize(tokens);
+               Parser parser = new Parser(tokens, emitter);
+               if (parallel) {
+                    parser.setParallel(pool, 8);
+               }
+               parser.program();
+               StringWriter output = new StringWriter();
+               emitter.writeTo(output);
+               return output.toString();
+          }
+
+          void assertSameResult(String sourceCode) {
+               Parser sequential = parser(sourceCode, false);
+               ParseResult expected = sequential.parseWithDiagnostics();
+               Parser parallel = parser(sourceCode, true);
+               ParseResult actual = parallel.parseWithDiagnostics();
+               Assertions.assertEquals(expected.getDiagnostics().toString(), actual.getDiagnostics().toString());
+               Assertions.assertEquals(expected.hasErrors(), actual.hasErrors());
+               if (!expected.hasErrors()) {
+                    Assertions.assertEquals(expected.getProgram().getVariables(), actual.getProgram().getVariables());
+                    Assertions.assertEquals(expected.getProgram().getStatements().size(), actual.getProgram().getStatements().size());
+               }
+               Assertions.assertEquals(sequential.getStatementCount(), parallel.getStatementCount());
+               Assertions.assertEquals(sequential.getSymbolCount(), parallel.getSymbolCount());
+               Assertions.assertEquals(sequential.getLabelCount(), parallel.getLabelCount());
+          }
+
+          @Test
+          void GeneratedProgramsGenerateSameCode() throws IOException {
+               for (long seed = 1; seed <= 5; seed++) {
+                    String sourceCode = new ProgramGenerator(40, 20, 4, 6, seed).generate(2000);
+                    assertSameResult(sourceCode);
+                    Assertions.assertEquals(generate(sourceCode, false), generate(sourceCode, true));
+               }
+          }
+
+          @Test
+          void BlocksAreNotSplit() throws IOException {
+               StringBuilder sourceCode = new StringBuilder("LET a = 0\nWHILE a < 10 REPEAT\n");
+               for (int i = 0; i < 50; i++) {
+                    sourceCode.append("    IF a == ").append(i).append(" THEN\n");
+                    sourceCode.append("        LET b").append(i).append(" = a\n");
+                    sourceCode.append("        PRINT b").append(i).append("\n");
+                    sourceCode.append("    ENDIF\n");
+               }
+               sourceCode.append("    LET a = a + 1\nENDWHILE\nPRINT a\n");
+               assertSameResult(sourceCode.toString());
+               Assertions.assertEquals(generate(sourceCode.toString(), false), generate(sourceCode.toString(), true));
+          }
+
+          @Test
+          void VariablesAndLabelsCheckedAgainstEarlierRegions() {
+               StringBuilder sourceCode = new StringBuilder();
+               for (int i = 0; i < 30; i++) {
+                    sourceCode.append("PRINT v").append(i).append("\n");
+                    sourceCode.append("LET v").append(i).append(" = v").append(i).append(" + 1\n");
+                    sourceCode.append("GOTO l").append((i + 7) % 40).append("\n");
+                    sourceCode.append("LABEL l").append(i % 20).append("\n");
+               }
+               assertSameResult(sourceCode.toString());
+          }
+
+          @Test
+          void SyntaxErrorsAndUnbalancedBlocks() {
+               String sourceCode = "LET a = \n" +
+                       "PRINT b\n" +
+                       "ENDIF\n" +
+                       "LET c = 1\n" +
+                       "IF c > THEN\n" +
+                       "    PRINT c +\n" +
+                       "    ENDWHILE\n" +
+                       "    LABEL c\n" +
+                       "ENDIF x\n" +
+                       "LABEL c\n" +
+                       "GOTO nowhere\n" +
+                       "PRINT c $ 1\n" +
+                       "LET d = c\n".repeat(10) +
+                       "INPUT e\n" +
+                       "WHILE e > d REPEAT\n" +
+                       "    LET e = e - 1\n";
+               assertSameResult(sourceCode);
+          }
+     }
+
+     @Nested
+     class ManyStatements_CGeneratorWriteFragmentsInParallel_SameCodeAsSequential {
+          String generate(Program program, ForkJoinPool pool, int fragmentStatements) throws IOException {
+               Emitter emitter = new Emitter(null);
+               CGenerator generator = new CGenerator(emitter);
+               if (pool != null) {
+                    generator.setParallel(pool, fragmentStatements);
+               }
+               generator.generate(program);
+               StringWriter output = new StringWriter();
+               emitter.writeTo(output);
+               return output.toString();
+          }
+
+          @Test
+          void FragmentsJoinedInOrder() throws IOException {
+               ForkJoinPool pool = new ForkJoinPool(4);
+               try {
+                    for (long seed = 1; seed <= 3; seed++) {
+                         String sourceCode = new ProgramGenerator(40, 20, 4, 6, seed).generate(3000);
+                         TokenBuffer tokens = new TokenBuffer();
+                         new Lexer(sourceCode).tokenize(tokens);
+                         Program program = new Parser(tokens).parse();
+                         String expected = generate(program, null, 0);
+                         for (int fragmentStatements : new int[] {1, 7, 500, 5000}) {
+                              Assertions.assertEquals(expected, generate(program, pool, fragmentStatements));
+                         }
+                    }
+               } finally {
+                    pool.shutdown();
+               }
+          }
+     }
 }
@@ -0,0 +1,37 @@
+import emitter.Emitter;
+import lexer.Lexer;
+import parser.Parser;
+import pass.Pass;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+// Generated C for a source run through passes, shared by the pass tests.
+// Nothing is written to a file, so the tests don't clean up after themselves.
+class PassTestSupport {
+     private PassTestSupport() {
+     }
+
+     static String emit(String source, Pass... passes) throws IOException {
+          Emitter emitter = new Emitter(null);
+          Parser parser = new Parser(new Lexer(source), emitter);
+          for (Pass pass : passes) {
+               parser.addPass(pass);
+          }
+          parser.program();
+          StringWriter output = new StringWriter();
+          emitter.writeTo(output);
+          return output.toString();
+     }
+
+     static String expectedProgram(String expectedOutput) {
+          return expectedProgram("", expectedOutput);
+     }
+
+     static String expectedProgram(String declarations, String expectedOutput) {
+          return "#include <stdio.h>" + "\n" + "\n" + "int main() {" + "\n" +
+                  declarations +
+                  expectedOutput +
+                  "    " + "return 0;" + "\n" + "}" + "\n";
+     }
+}
@@ -0,0 +1,131 @@
+import org.junit.jupiter.api.*;
+import pass.PassManager;
+import pass.PeepholePass;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+class PeepholePassTest {
+     final static String sourceProgramsDir = "src/main/resources/srcPrograms/";
+     final static String expectedOutputDir = "src/main/resources/expectedOutput/peephole/";
+
+     String emitPeephole(String source) throws IOException {
+          return PassTestSupport.emit(source, new PeepholePass());
+     }
+
+     @Nested
+     class SourcePrograms_PassRewritesGeneratedC_CompareGoldenOutput {
+          void assertGolden(String program) throws IOException {
+               String source = Files.readString(Path.of(sourceProgramsDir, program + ".teenytiny")) + "\n";
+               String expected = Files.readString(Path.of(expectedOutputDir, program + ".c"));
+               Assertions.assertEquals(expected.stripTrailing(), emitPeephole(source).stripTrailing());
+          }
+
+          @Test
+          void HelloWorld() throws IOException {
+               assertGolden("helloWorld");
+          }
+
+          @Test
+          void Average() throws IOException {
+               assertGolden("average");
+          }
+
+          @Test
+          void Fibonacci() throws IOException {
+               assertGolden("fibonacci");
+          }
+     }
+
+     @Nested
+     class RedundantCode_PassRemovesIt_CompareEmitResult {
+          @Test
+          void CastOnlyKeptForNonFloatValues() throws IOException {
+               String sourceCode = "LET a = 1" + "\n" +
+                       "PRINT a * 2.5" + "\n" +
+                       "PRINT a + a" + "\n" +
+                       "PRINT 7 / 2" + "\n";
+               String expectedOutput = "    float a;" + "\n" +
+                       "    a = 1;" + "\n" +
+                       "    printf(\"%.2f\\n\", (float)(a*2.5));" + "\n" +
+                       "    printf(\"%.2f\\n\", a+a);" + "\n" +
+                       "    printf(\"%.2f\\n\", (float)(7/2));" + "\n";
+               Assertions.assertEquals(PassTestSupport.expectedProgram(expectedOutput), emitPeephole(sourceCode));
+          }
+
+          @Test
+          void EmptyIfRemovedEmptyWhileKept() throws IOException {
+               String sourceCode = "LET a = 1" + "\n" +
+                       "IF a > 0 THEN" + "\n" +
+                       "    IF a > 1 THEN" + "\n" +
+                       "    ENDIF" + "\n" +
+                       "ENDIF" + "\n" +
+                       "WHILE a > 1 REPEAT" + "\n" +
+                       "ENDWHILE" + "\n";
+               String expectedOutput = "    float a;" + "\n" +
+                       "    a = 1;" + "\n" +
+                       "    while (a>1) {}" + "\n";
+               Assertions.assertEquals(PassTestSupport.expectedProgram(expectedOutput), emitPeephole(sourceCode));
+          }
+
+          @Test
+          void GotoFollowedByItsLabelRemoved() throws IOException {
+               String sourceCode = "GOTO b" + "\n" +
+                       "LABEL a" + "\n" +
+                       "LABEL b" + "\n" +
+                       "GOTO a" + "\n" +
+                       "PRINT \"x\"" + "\n" +
+                       "LABEL c" + "\n";
+               String expectedOutput = "    a:" + "\n" +
+                       "    b:" + "\n" +
+                       "    goto a;" + "\n" +
+                       "    printf(\"x\\n\");" + "\n" +
+                       "    c:" + "\n";
+               Assertions.assertEquals(PassTestSupport.expectedProgram(expectedOutput), emitPeephole(sourceCode));
+          }
+
+          @Test
+          void ParenthesesRemovedWhereCReadsTheSame() throws IOException {
+               String sourceCode = "LET a = ((1))" + "\n" +
+                       "LET b = (a * 2) + (a / 3)" + "\n" +
+                       "LET b = (a - b) - (a - b)" + "\n" +
+                       "LET b = a * (b + 1)" + "\n" +
+                       "LET b = a + (b + 1)" + "\n" +
+                       "LET b = a - (-b) * (-(a))" + "\n" +
+                       "LET b = a - (-b * a) + ((-b * a) * 2)" + "\n" +
+                       "IF (a + 1) > (b) THEN" + "\n" +
+                       "ENDIF" + "\n" +
+                       "WHILE -(a * b) < (1) AND (a) == b REPEAT" + "\n" +
+                       "ENDWHILE" + "\n";
+               String expectedOutput = "    float a;" + "\n" +
+                       "    float b;" + "\n" +
+                       "    a = 1;" + "\n" +
+                       "    b = a*2+a/3;" + "\n" +
+                       "    b = a-b-(a-b);" + "\n" +
+                       "    b = a*(b+1);" + "\n" +
+                       "    b = a+(b+1);" + "\n" +
+                       "    b = a-(-b)*(-a);" + "\n" +
+                       "    b = a-(-b*a)+(-b*a*2);" + "\n" +
+                       "    while (-(a*b)<1&&a==b) {}" + "\n";
+               Assertions.assertEquals(PassTestSupport.expectedProgram(expectedOutput), emitPeephole(sourceCode));
+          }
+
+          @Test
+          void SignUncoveredLowerDownKeptApartFromMinus() throws IOException {
+               String sourceCode = "INPUT a" + "\n" +
+                       "LET b = a - (-a * 3) / a" + "\n" +
+                       "LET b = a + (-a * 3) * a" + "\n";
+               String actual = emitPeephole(sourceCode);
+               Assertions.assertTrue(actual.contains("    b = a-(-a*3/a);\n"), actual);
+               Assertions.assertTrue(actual.contains("    b = a+(-a*3*a);\n"), actual);
+          }
+
+          @Test
+          void SignUncoveredLowerDownKeptApartFromMinusWithAllOptimizations() throws IOException {
+               String actual = PassTestSupport.emit("INPUT a\nPRINT a - (-a * 3) / a\n", PassManager.optimizations());
+               Assertions.assertFalse(actual.contains("--"), actual);
+               Assertions.assertTrue(actual.contains("a-(-a*3/a)"), actual);
+          }
+     }
+}
@@ -0,0 +1,76 @@
+import generator.ProgramGenerator;
+import lexer.Lexer;
+import lexer.TokenBuffer;
+import org.junit.jupiter.api.*;
+import parser.ParseResult;
+import parser.Parser;
+
+import java.util.List;
+
+class ProgramGeneratorTest {
+     Parser parser;
+
+     ParseResult parse(String source) {
+          TokenBuffer tokens = new TokenBuffer();
+          new Lexer(source).tokenize(tokens);
+          parser = new Parser(tokens);
+          return parser.parseWithDiagnostics();
+     }
+
+     int maxDepth(String source) {
+          int depth = 0;
+          int maxDepth = 0;
+          for (String line : source.split("\n")) {
+               line = line.strip();
+               if (line.startsWith("IF ") || line.startsWith("WHILE ")) {
+                    maxDepth = Math.max(maxDepth, ++depth);
+               }
+               else if (line.equals("ENDIF") || line.equals("ENDWHILE")) {
+                    depth--;
+               }
+          }
+          return maxDepth;
+     }
+
+     @Nested
+     class Settings_GeneratorBuildProgram_ValidProgramOfThatShape {
+          @Test
+          void ExactStatementAndSymbolCounts() {
+               String source = new ProgramGenerator(50, 20, 4, 6, 1).generate(5000);
+               ParseResult result = parse(source);
+               Assertions.assertEquals(List.of(), result.getDiagnostics());
+               Assertions.assertEquals(5000, parser.getStatementCount());
+               Assertions.assertEquals(50, parser.getSymbolCount());
+               Assertions.assertEquals(20, parser.getLabelCount());
+               Assertions.assertEquals(4, maxDepth(source));
+          }
+
+          @Test
+          void SmallestProgramForSettings() {
+               String source = new ProgramGenerator(3, 2, 2, 1, 1).generate(7);
+               Assertions.assertFalse(parse(source).hasErrors());
+               Assertions.assertEquals(7, parser.getStatementCount());
+               Assertions.assertEquals(2, parser.getLabelCount());
+          }
+
+          @Test
+          void FlatProgramWithoutBlocks() {
+               String source = new ProgramGenerator(1, 0, 0, 1, 7).generate(1000);
+               Assertions.assertFalse(parse(source).hasErrors());
+               Assertions.assertEquals(0, maxDepth(source));
+          }
+
+          @Test
+          void SameSeedSameProgram() {
+               Assertions.assertEquals(new ProgramGenerator(10, 5, 3, 4, 42).generate(500),
+                       new ProgramGenerator(10, 5, 3, 4, 42).generate(500));
+               Assertions.assertNotEquals(new ProgramGenerator(10, 5, 3, 4, 42).generate(500),
+                       new ProgramGenerator(10, 5, 3, 4, 43).generate(500));
+          }
+
+          @Test
+          void TooFewStatements() {
+               Assertions.assertThrows(IllegalArgumentException.class, () -> new ProgramGenerator(10, 5, 3, 4, 42).generate(19));
+          }
+     }
+}
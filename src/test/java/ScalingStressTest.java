@@ -0,0 +1,79 @@
+import compiler.CompileOptions;
+import compiler.SourceCompiler;
+import generator.ProgramGenerator;
+import org.junit.jupiter.api.*;
+import stats.CompileStats;
+
+import java.io.IOException;
+
+// Compiles generated programs of 10^3 to 10^6 statements and fails if the
+// time or heap allocated grows faster than the program between two sizes.
+// Slow, so only run with the stress profile: mvn -P stress test
+@Tag("stress")
+class ScalingStressTest {
+     final static int[] sizes = {1_000, 10_000, 100_000, 1_000_000};
+     // Growth allowed for 10 times the statements. Linear growth is 10 and
+     // quadratic 100. The margin is for GC and JIT noise in the timings, and
+     // for arrays grown by doubling, which can allocate up to twice the final size.
+     final static double maxTimeGrowth = 25;
+     final static double maxAllocationGrowth = 25;
+     // Compiles faster than this are too short to compare times with
+     final static long minComparedNanos = 10_000_000L;
+     // Each size is compiled until this much time has been spent on it, and the fastest compile kept
+     final static long minMeasureNanos = 500_000_000L;
+
+     // The same mix of statements at every size, with variables and labels in proportion
+     String generate(int statements) {
+          return new ProgramGenerator(statements / 50, statements / 100, 8, 6, 1).generate(statements);
+     }
+
+     CompileStats.Phase measure(String source, CompileOptions options) throws IOException {
+          CompileStats.Phase fastest = null;
+          long spentNanos = 0;
+          for (int run = 0; run < 2 || spentNanos < minMeasureNanos; run++) {
+               CompileStats stats = new CompileStats();
+               SourceCompiler.generate(source, options);
+               stats.end("compile");
+               CompileStats.Phase phase = stats.getPhases().get(0);
+               spentNanos += phase.getTimeNanos();
+               if (fastest == null || phase.getTimeNanos() < fastest.getTimeNanos()) {
+                    fastest = phase;
+               }
+          }
+          return fastest;
+     }
+
+     void compileEachSize(boolean optimize) throws IOException {
+          CompileOptions options = new CompileOptions(optimize);
+          // Warm up the JIT before the smallest size is timed
+          measure(generate(sizes[1]), options);
+
+          CompileStats.Phase previous = null;
+          for (int size : sizes) {
+               CompileStats.Phase phase = measure(generate(size), options);
+               System.out.printf("%s%d statements: %.1f ms, %d bytes allocated%n", optimize ? "-O " : "",
+                       size, phase.getTimeNanos() / 1e6, phase.getAllocatedBytes());
+               if (previous != null && previous.getTimeNanos() >= minComparedNanos) {
+                    double timeGrowth = (double) phase.getTimeNanos() / previous.getTimeNanos();
+                    Assertions.assertTrue(timeGrowth <= maxTimeGrowth,
+                            "Time grew " + timeGrowth + " times up to " + size + " statements");
+               }
+               if (previous != null && phase.getAllocatedBytes() >= 0) {
+                    double allocationGrowth = (double) phase.getAllocatedBytes() / previous.getAllocatedBytes();
+                    Assertions.assertTrue(allocationGrowth <= maxAllocationGrowth,
+                            "Allocation grew " + allocationGrowth + " times up to " + size + " statements");
+               }
+               previous = phase;
+          }
+     }
+
+     @Test
+     void GeneratedPrograms_CompileEachSize_LinearTimeAndAllocation() throws IOException {
+          compileEachSize(false);
+     }
+
+     @Test
+     void GeneratedPrograms_OptimizeEachSize_LinearTimeAndAllocation() throws IOException {
+          compileEachSize(true);
+     }
+}
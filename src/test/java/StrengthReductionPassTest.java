@@ -0,0 +1,80 @@
+import org.junit.jupiter.api.*;
+import pass.PeepholePass;
+import pass.StrengthReductionPass;
+
+import java.io.IOException;
+
+class StrengthReductionPassTest {
+     String emitReduced(String source) throws IOException {
+          return PassTestSupport.emit(source, new StrengthReductionPass());
+     }
+
+     String let(String expression) {
+          return "    b = " + expression + ";\n";
+     }
+
+     @Nested
+     class DivisionByConstant_PassMultipliesByExactReciprocal_CompareEmitResult {
+          @Test
+          void FloatDividedByPowerOfTwo() throws IOException {
+               Assertions.assertTrue(emitReduced("INPUT a\nLET b = a / 8\n").contains(let("a*0.125f")));
+          }
+
+          @Test
+          void DoubleDividedByPowerOfTwo() throws IOException {
+               Assertions.assertTrue(emitReduced("INPUT a\nLET b = a / 0.5\n").contains(let("a*2.0")));
+          }
+
+          @Test
+          void NegativeDivisor() throws IOException {
+               Assertions.assertTrue(emitReduced("INPUT a\nLET b = a / -4\n").contains(let("a*-0.25f")));
+          }
+
+          @Test
+          void InexactReciprocalKept() throws IOException {
+               Assertions.assertTrue(emitReduced("INPUT a\nLET b = a / 3\n").contains(let("a/3")));
+          }
+
+          @Test
+          void DivisionByZeroKept() throws IOException {
+               Assertions.assertTrue(emitReduced("INPUT a\nLET b = a / 0\n").contains(let("a/0")));
+          }
+
+          @Test
+          void IntDivisionKept() throws IOException {
+               Assertions.assertTrue(emitReduced("LET b = 7 / 2\n").contains(let("7/2")));
+          }
+     }
+
+     @Nested
+     class MultiplicationByTwo_PassAddsVariableToItself_CompareEmitResult {
+          @Test
+          void EitherSide() throws IOException {
+               String actual = emitReduced("INPUT a\nLET b = a * 2\nLET b = 2 * (a)\n");
+               Assertions.assertTrue(actual.contains(let("(a+a)") + let("(a+a)")), actual);
+          }
+
+          @Test
+          void NestedInLargerExpression() throws IOException {
+               String actual = emitReduced("INPUT a\nINPUT x\nLET b = a - x * 2\nLET b = 2 * x * a\nLET b = (2) * x * (4)\n");
+               Assertions.assertTrue(actual.contains(let("a-(x+x)") + let("(x+x)*a") + let("(x+x)*(4)")), actual);
+          }
+
+          @Test
+          void PeepholeRemovesParenthesesWherePrecedenceAllows() throws IOException {
+               String actual = PassTestSupport.emit("INPUT a\nINPUT x\nLET b = x * 2 + a\nLET b = a - x * 2\nLET b = 2 * x * a\n",
+                       new StrengthReductionPass(), new PeepholePass());
+               Assertions.assertTrue(actual.contains(let("x+x+a") + let("a-(x+x)") + let("(x+x)*a")), actual);
+          }
+
+          @Test
+          void ExpressionTimesTwoKept() throws IOException {
+               Assertions.assertTrue(emitReduced("INPUT a\nLET b = (a + 1) * 2\n").contains(let("(a+1)*2")));
+          }
+
+          @Test
+          void DoubleMultiplicationKept() throws IOException {
+               Assertions.assertTrue(emitReduced("INPUT a\nLET b = a * 2.0\n").contains(let("a*2.0")));
+          }
+     }
+}
@@ -0,0 +1,43 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import parser.SymbolTable;
+
+class SymbolTableTest {
+
+    @Nested
+    class DeclaredIdentifiers_LookupSymbol_SymbolIdsInDeclarationOrder {
+        @Test
+        void DeclareThenLookup() {
+            SymbolTable symbols = new SymbolTable();
+            Assertions.assertEquals(0, symbols.declare(7));
+            Assertions.assertEquals(1, symbols.declare(2));
+            Assertions.assertEquals(0, symbols.declare(7));
+            Assertions.assertEquals(2, symbols.size());
+            Assertions.assertEquals(1, symbols.lookup(2));
+            Assertions.assertEquals(7, symbols.identifierId(0));
+            Assertions.assertTrue(symbols.contains(7));
+        }
+
+        @Test
+        void UndeclaredIdentifier() {
+            SymbolTable symbols = new SymbolTable();
+            symbols.declare(1);
+            Assertions.assertEquals(-1, symbols.lookup(0));
+            Assertions.assertEquals(-1, symbols.lookup(1000));
+            Assertions.assertEquals(-1, symbols.lookup(-1));
+            Assertions.assertFalse(symbols.contains(5));
+        }
+
+        @Test
+        void ManyIdentifiers() {
+            SymbolTable symbols = new SymbolTable();
+            for (int i = 0; i < 100000; i++) {
+                Assertions.assertEquals(i, symbols.declare(99999 - i));
+            }
+            for (int i = 0; i < 100000; i++) {
+                Assertions.assertEquals(99999 - i, symbols.lookup(i));
+            }
+        }
+    }
+}
@@ -1,6 +1,7 @@
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import token.IdentifierTable;
 import token.Token;
 import token.TokenType;
 
@@ -83,4 +84,55 @@ class TokenTest {
             checkKeywordTokensEqual("NOT", TokenType.NOT);
         }
     }
+
+    @Nested
+    class NotAKeyword_IdentifyKeywordToken_ReturnNull {
+        @Test
+        void LowercaseKeyword() {
+            Assertions.assertNull(Token.checkIfKeyword("print"));
+        }
+
+        @Test
+        void SameLengthAndFirstLetterAsKeyword() {
+            Assertions.assertNull(Token.checkIfKeyword("PRINK"));
+        }
+
+        @Test
+        void LongerThanAnyKeyword() {
+            Assertions.assertNull(Token.checkIfKeyword("ENDWHILES"));
+        }
+
+        @Test
+        void TypeNamesAreNotKeywords() {
+            Assertions.assertNull(Token.checkIfKeyword("EOF"));
+            Assertions.assertNull(Token.checkIfKeyword("STRING"));
+        }
+    }
+
+    @Nested
+    class Identifiers_InternIdentifier_SameIdForSameName {
+        @Test
+        void IdsInFirstSeenOrder() {
+            IdentifierTable identifiers = new IdentifierTable();
+            Assertions.assertEquals(0, identifiers.intern("nums"));
+            Assertions.assertEquals(1, identifiers.intern("a"));
+            Assertions.assertEquals(0, identifiers.intern("nums"));
+            Assertions.assertEquals(2, identifiers.size());
+            Assertions.assertEquals("a", identifiers.name(1));
+            Assertions.assertEquals(1, identifiers.find("a"));
+            Assertions.assertEquals(-1, identifiers.find("b"));
+        }
+
+        @Test
+        void ManyIdentifiers() {
+            IdentifierTable identifiers = new IdentifierTable();
+            for (int i = 0; i < 10000; i++) {
+                Assertions.assertEquals(i, identifiers.intern("v" + i));
+            }
+            for (int i = 0; i < 10000; i++) {
+                Assertions.assertEquals(i, identifiers.intern("v" + i));
+                Assertions.assertEquals("v" + i, identifiers.name(i));
+            }
+        }
+    }
 }
@@ -0,0 +1,152 @@
+import diagnostic.RunException;
+import interpreter.Interpreter;
+import lexer.AsciiCharSequence;
+import lexer.Lexer;
+import lexer.TokenBuffer;
+import org.junit.jupiter.api.*;
+import parser.Parser;
+import pass.PassManager;
+import runtime.ProgramIO;
+import vm.Bytecode;
+import vm.BytecodeCompiler;
+import vm.VirtualMachine;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Path;
+
+class VirtualMachineTest {
+     final static String sourceProgramsDir = "src/main/resources/srcPrograms/";
+
+     ast.Program parse(CharSequence source, boolean optimize) {
+          TokenBuffer tokens = new TokenBuffer();
+          new Lexer(source).tokenize(tokens);
+          Parser parser = new Parser(tokens);
+          if (optimize) {
+               parser.addPass(PassManager.optimizations());
+          }
+          return parser.parseAndTransform();
+     }
+
+     String run(CharSequence source, String input, boolean optimize) throws IOException {
+          StringWriter output = new StringWriter();
+          VirtualMachine.run(BytecodeCompiler.compile(parse(source, optimize)), new ProgramIO(new StringReader(input), output));
+          return output.toString();
+     }
+
+     String interpret(CharSequence source, String input) throws IOException {
+          StringWriter output = new StringWriter();
+          new Interpreter(parse(source, false)).run(new ProgramIO(new StringReader(input), output));
+          return output.toString();
+     }
+
+     // Runs the bytecode compiled with and without optimizations and checks it
+     // prints the same as the interpreter
+     String run(CharSequence source, String input) throws IOException {
+          String output = run(source, input, false);
+          Assertions.assertEquals(interpret(source, input), output);
+          Assertions.assertEquals(output, run(source, input, true), "optimized program printed something else");
+          return output;
+     }
+
+     // Instruction i as {op, a, b, c}
+     int[] instruction(Bytecode bytecode, int i) {
+          int[] code = bytecode.getCode();
+          return new int[] {code[i * Bytecode.WIDTH], code[i * Bytecode.WIDTH + 1],
+                  code[i * Bytecode.WIDTH + 2], code[i * Bytecode.WIDTH + 3]};
+     }
+
+     @Nested
+     class TestPrograms_VirtualMachineRun_SameOutputAsInterpreter {
+          @Test
+          void HelloWorld() throws IOException {
+               CharSequence source = AsciiCharSequence.map(Path.of(sourceProgramsDir, "helloWorld.teenytiny"));
+               Assertions.assertEquals("Hello World!\n", run(source, ""));
+          }
+
+          @Test
+          void Fibonacci() throws IOException {
+               CharSequence source = AsciiCharSequence.map(Path.of(sourceProgramsDir, "fibonacci.teenytiny"));
+               String output = run(source, "30\n");
+               Assertions.assertTrue(output.endsWith("514229.00\n"), output);
+          }
+
+          @Test
+          void Average() throws IOException {
+               CharSequence source = AsciiCharSequence.map(Path.of(sourceProgramsDir, "average.teenytiny"));
+               Assertions.assertTrue(run(source, "-1\n3\n1 2\n4\n").endsWith("Average: \n2.33\n"));
+          }
+     }
+
+     @Nested
+     class Statements_VirtualMachineRun_SameOutputAsInterpreter {
+          @Test
+          void GotoBackwardsAndIntoBlock() throws IOException {
+               String sourceCode = "LET i = 0" + "\n" +
+                       "LABEL top" + "\n" +
+                       "LET i = i + 1" + "\n" +
+                       "IF i < 3 THEN" + "\n" +
+                       "GOTO top" + "\n" +
+                       "ENDIF" + "\n" +
+                       "GOTO inside" + "\n" +
+                       "WHILE i > 0 REPEAT" + "\n" +
+                       "LABEL inside" + "\n" +
+                       "PRINT i" + "\n" +
+                       "LET i = i - 1" + "\n" +
+                       "ENDWHILE" + "\n";
+               Assertions.assertEquals("3.00\n2.00\n1.00\n", run(sourceCode, ""));
+          }
+
+          @Test
+          void InputEndsAndBadInput() throws IOException {
+               String sourceCode = "LET a = 7\nINPUT b\nINPUT c\nINPUT a\nPRINT a\nPRINT b\nPRINT c\n";
+               Assertions.assertEquals("7.00\n0.00\n2.50\n", run(sourceCode, "x 2.5"));
+          }
+
+          @Test
+          void MixedTypesAndLogic() throws IOException {
+               String sourceCode = "LET a = 16777217" + "\n" +
+                       "PRINT a" + "\n" +
+                       "PRINT 7 / 2 * 1.5" + "\n" +
+                       "PRINT -7 / 2 + a / 3" + "\n" +
+                       "LET n = 0.0 / 0" + "\n" +
+                       "IF n < 1 OR n != n AND 1 == 1 THEN\nPRINT \"nan\"\nENDIF" + "\n" +
+                       "IF 0 == 1 AND 1 / 0 == 1 THEN\nPRINT \"and\"\nENDIF" + "\n" +
+                       "IF NOT 0 < 4 AND 1 < 2 THEN\nPRINT \"not\"\nENDIF" + "\n";
+               Assertions.assertTrue(run(sourceCode, "").endsWith("nan\nnot\n"));
+          }
+
+          @Test
+          void IntDivisionByZeroFails() {
+               Assertions.assertThrows(RunException.class, () -> run("INPUT a\nPRINT 1 / 0\n", "", false));
+          }
+     }
+
+     @Nested
+     class Statements_BytecodeCompilerLower_CompareInstructions {
+          @Test
+          void FloatExpressionWritesVariableDirectly() {
+               Bytecode bytecode = BytecodeCompiler.compile(parse("INPUT b\nLET a = b\nLET a = a + b\n", false));
+               // INPUT b, MOVE a b, ADD_FLOAT a a b, HALT
+               Assertions.assertEquals(4, bytecode.size());
+               Assertions.assertArrayEquals(new int[] {Bytecode.ADD_FLOAT, 1, 1, 0}, instruction(bytecode, 2));
+               Assertions.assertEquals(2, bytecode.getRegisters());
+          }
+
+          @Test
+          void WhileComparisonIsOneJump() {
+               Bytecode bytecode = BytecodeCompiler.compile(parse("INPUT a\nWHILE a < 3 REPEAT\nINPUT a\nENDWHILE\n", false));
+               // INPUT a, LOAD_CONST t 3.0f, JUMP_UNLESS_LT a t end, INPUT a, JUMP top, HALT
+               Assertions.assertEquals(Bytecode.JUMP_UNLESS_LT, instruction(bytecode, 2)[0]);
+               Assertions.assertEquals(5 * Bytecode.WIDTH, instruction(bytecode, 2)[3]);
+               Assertions.assertArrayEquals(new int[] {Bytecode.JUMP, 1 * Bytecode.WIDTH, 0, 0}, instruction(bytecode, 4));
+          }
+
+          @Test
+          void GotoResolvedToLabelIndex() {
+               Bytecode bytecode = BytecodeCompiler.compile(parse("GOTO end\nPRINT \"skipped\"\nLABEL end\nPRINT \"end\"\n", false));
+               Assertions.assertArrayEquals(new int[] {Bytecode.JUMP, 2 * Bytecode.WIDTH, 0, 0}, instruction(bytecode, 0));
+          }
+     }
+}
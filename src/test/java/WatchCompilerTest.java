@@ -0,0 +1,162 @@
+import compiler.CompileOptions;
+import compiler.WatchCompiler;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+class WatchCompilerTest {
+     final static long debounceMillis = 200;
+     final static long timeoutMillis = 10000;
+
+     @TempDir
+     Path tempDir;
+
+     Path sourceDir;
+     Path outputDir;
+     ByteArrayOutputStream log;
+     WatchCompiler watchCompiler;
+     Thread watchThread;
+
+     @BeforeEach
+     void init() throws IOException {
+          sourceDir = Files.createDirectories(tempDir.resolve("src"));
+          outputDir = tempDir.resolve("out");
+          log = new ByteArrayOutputStream();
+     }
+
+     @AfterEach
+     void stop() throws IOException, InterruptedException {
+          if (watchCompiler != null) {
+               watchCompiler.close();
+               watchThread.join(timeoutMillis);
+          }
+     }
+
+     void startWatching(String input) throws IOException {
+          watchCompiler = new WatchCompiler(outputDir, CompileOptions.DEFAULT, debounceMillis, new PrintStream(log, true));
+          watchThread = new Thread(() -> {
+               try {
+                    watchCompiler.watch(List.of(input));
+               }
+               catch (IOException | InterruptedException e) {
+                    throw new RuntimeException(e);
+               }
+          });
+          watchThread.start();
+     }
+
+     void waitFor(BooleanSupplier condition) throws InterruptedException {
+          long deadline = System.currentTimeMillis() + timeoutMillis;
+          while (!condition.getAsBoolean()) {
+               Assertions.assertTrue(System.currentTimeMillis() < deadline, "timed out, log:\n" + log);
+               Thread.sleep(20);
+          }
+     }
+
+     boolean outputContains(Path output, String text) {
+          try {
+               return Files.exists(output) && Files.readString(output).contains(text);
+          }
+          catch (IOException e) {
+               return false;
+          }
+     }
+
+     int logCount(String text) {
+          String[] lines = log.toString().split("\n");
+          int count = 0;
+          for (String line : lines) {
+               if (line.startsWith(text)) {
+                    count++;
+               }
+          }
+          return count;
+     }
+
+     @Test
+     void SourceChanged_WatchRecompiles_OutputUpdated() throws IOException, InterruptedException {
+          Path source = Files.writeString(sourceDir.resolve("a.teenytiny"), "PRINT \"first\"\n");
+          Path output = outputDir.resolve("a.c");
+          startWatching(sourceDir.toString());
+          waitFor(() -> outputContains(output, "first"));
+
+          Files.writeString(source, "PRINT \"second\"\n");
+          waitFor(() -> outputContains(output, "second"));
+     }
+
+     @Test
+     void NewFileInSubdirectory_WatchCompiles_OutputKeepsLayout() throws IOException, InterruptedException {
+          startWatching(sourceDir.toString());
+          waitFor(() -> watchThread.isAlive() && log.size() == 0);
+          Thread.sleep(debounceMillis);
+
+          Path nested = Files.createDirectories(sourceDir.resolve("nested"));
+          Files.writeString(nested.resolve("b.teenytiny"), "PRINT \"nested\"\n");
+          waitFor(() -> outputContains(outputDir.resolve("nested").resolve("b.c"), "nested"));
+     }
+
+     @Test
+     void SameCodeGenerated_WatchLeavesOutput_FileNotRewritten() throws IOException, InterruptedException {
+          Path source = Files.writeString(sourceDir.resolve("a.teenytiny"), "PRINT \"same\"\n");
+          Path output = outputDir.resolve("a.c");
+          startWatching(source.toString());
+          waitFor(() -> outputContains(output, "same"));
+          FileTime written = FileTime.fromMillis(1000);
+          Files.setLastModifiedTime(output, written);
+
+          // A comment changes the source but not the C code
+          Files.writeString(source, "# comment\nPRINT \"same\"\n");
+          waitFor(() -> logCount("Unchanged") == 1);
+          Assertions.assertEquals(written, Files.getLastModifiedTime(output));
+     }
+
+     @Test
+     void BurstOfWrites_WatchDebounces_CompiledOnceWithLastContent() throws IOException, InterruptedException {
+          Path source = Files.writeString(sourceDir.resolve("a.teenytiny"), "PRINT \"start\"\n");
+          Path output = outputDir.resolve("a.c");
+          startWatching(sourceDir.toString());
+          waitFor(() -> outputContains(output, "start"));
+          Assertions.assertEquals(1, logCount("Compiled"));
+
+          for (int i = 0; i < 5; i++) {
+               Files.writeString(source, "PRINT \"write " + i + "\"\n");
+          }
+          waitFor(() -> outputContains(output, "write 4"));
+          Thread.sleep(debounceMillis * 2);
+          Assertions.assertEquals(2, logCount("Compiled"));
+     }
+
+     @Test
+     void SourceWithError_WatchReports_KeepsWatching() throws IOException, InterruptedException {
+          Path source = Files.writeString(sourceDir.resolve("a.teenytiny"), "PRINT \"ok\"\n");
+          Path output = outputDir.resolve("a.c");
+          startWatching(sourceDir.toString());
+          waitFor(() -> outputContains(output, "ok"));
+
+          Files.writeString(source, "GOTO nowhere\n");
+          waitFor(() -> log.toString().contains("undeclared label"));
+          Files.writeString(source, "PRINT \"fixed\"\n");
+          waitFor(() -> outputContains(output, "fixed"));
+     }
+
+     @Test
+     void StackOverflowInCompile_WatchReports_KeepsWatching() throws IOException, InterruptedException {
+          Path source = Files.writeString(sourceDir.resolve("a.teenytiny"), "PRINT \"ok\"\n");
+          Path output = outputDir.resolve("a.c");
+          startWatching(sourceDir.toString());
+          waitFor(() -> outputContains(output, "ok"));
+
+          Files.writeString(source, "PRINT " + "(".repeat(1000000) + "1" + ")".repeat(1000000) + "\n");
+          waitFor(() -> log.toString().contains("StackOverflowError"));
+          Files.writeString(source, "PRINT \"fixed\"\n");
+          waitFor(() -> outputContains(output, "fixed"));
+     }
+}